@@ -21,25 +21,40 @@ package me.ryanhamshire.ExtraHardMode;
 
 import me.ryanhamshire.ExtraHardMode.command.Commander;
 import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
 import me.ryanhamshire.ExtraHardMode.config.messages.MessageConfig;
+import me.ryanhamshire.ExtraHardMode.config.messages.MessageNode;
 import me.ryanhamshire.ExtraHardMode.event.BlockEventHandler;
 import me.ryanhamshire.ExtraHardMode.event.EntityEventHandler;
 import me.ryanhamshire.ExtraHardMode.event.PlayerEventHandler;
 import me.ryanhamshire.ExtraHardMode.module.BlockModule;
+import me.ryanhamshire.ExtraHardMode.module.BlockMutationModule;
+import me.ryanhamshire.ExtraHardMode.module.ChunkLoadModule;
 import me.ryanhamshire.ExtraHardMode.module.DataStoreModule;
 import me.ryanhamshire.ExtraHardMode.module.DataStoreModule.PlayerData;
+import me.ryanhamshire.ExtraHardMode.module.DragonModule;
+import me.ryanhamshire.ExtraHardMode.module.EffectModule;
+import me.ryanhamshire.ExtraHardMode.module.EntityIndexModule;
 import me.ryanhamshire.ExtraHardMode.module.EntityModule;
+import me.ryanhamshire.ExtraHardMode.module.EntityPersistenceModule;
+import me.ryanhamshire.ExtraHardMode.module.FeatureModule;
+import me.ryanhamshire.ExtraHardMode.module.GrinderModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.module.SchedulerModule;
+import me.ryanhamshire.ExtraHardMode.module.SpawnRegistryModule;
+import me.ryanhamshire.ExtraHardMode.module.TemporaryBlockModule;
 import me.ryanhamshire.ExtraHardMode.module.UtilityModule;
 import me.ryanhamshire.ExtraHardMode.service.IModule;
+import me.ryanhamshire.ExtraHardMode.service.ModuleContainer;
 import me.ryanhamshire.ExtraHardMode.task.MoreMonstersTask;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Main plugin class.
@@ -58,9 +73,20 @@ public class ExtraHardMode extends JavaPlugin
     private final Map<Class<? extends IModule>, IModule> modules = new HashMap<Class<? extends IModule>, IModule>();
 
     /**
-     * for computing random chance
+     * Messages which weren't sent because of the rate limit, by ordinal of the message node.
      */
-    private final Random randomNumberGenerator = new Random();
+    private final long[] suppressedMessages = new long[MessageNode.values().length];
+
+    private RootConfig rootC;
+
+    private MessageConfig messages;
+
+    private DataStoreModule dataStore;
+
+    /**
+     * Creates the modules and closes them again.
+     */
+    private ModuleContainer container;
 
     /**
      * initializes well... everything
@@ -68,13 +94,32 @@ public class ExtraHardMode extends JavaPlugin
     @Override
     public void onEnable()
     {
-        // Register modules
-        registerModule(RootConfig.class, new RootConfig(this));
-        registerModule(MessageConfig.class, new MessageConfig(this));
-        registerModule(DataStoreModule.class, new DataStoreModule(this));
-        registerModule(EntityModule.class, new EntityModule(this));
-        registerModule(BlockModule.class, new BlockModule(this));
-        registerModule(UtilityModule.class, new UtilityModule(this));
+        // Register modules, each one after the modules its constructor takes
+        container = new ModuleContainer(this)
+                .add(RootConfig.class)
+                .add(MessageConfig.class)
+                .add(RandomModule.class)
+                .add(SchedulerModule.class)
+                .add(UtilityModule.class)
+                .add(EffectModule.class)
+                .add(DataStoreModule.class)
+                .add(PermissionModule.class)
+                .add(EntityModule.class)
+                .add(EntityIndexModule.class)
+                .add(SpawnRegistryModule.class)
+                .add(TemporaryBlockModule.class)
+                .add(ChunkLoadModule.class)
+                .add(EntityPersistenceModule.class)
+                .add(GrinderModule.class)
+                .add(DragonModule.class)
+                .add(BlockModule.class)
+                .add(BlockMutationModule.class)
+                // feature events, only for features which are switched on
+                .add(FeatureModule.class);
+        container.start();
+        rootC = getModuleForClass(RootConfig.class);
+        messages = getModuleForClass(MessageConfig.class);
+        dataStore = getModuleForClass(DataStoreModule.class);
 
         //Register command
         getCommand("ehm").setExecutor(new Commander(this));
@@ -100,15 +145,33 @@ public class ExtraHardMode extends JavaPlugin
         this.getServer().getScheduler().scheduleSyncRepeatingTask(this, task, 120L, 120L);
     }
 
+    /**
+     * Saves state that has to survive a restart and stops pending tasks.
+     */
+    @Override
+    public void onDisable()
+    {
+        // every module closes before the modules it uses, so the grinder hands out held back drops
+        // before the scheduler cancels their deadlines
+        if (container != null)
+        {
+            container.stop();
+            container = null;
+        }
+    }
+
     /**
      * Sends a message to a player. Attempts to not spam the player with
-     * messages.
+     * messages: every message has its own token bucket per player, holding up
+     * to the configured burst, and all messages together are limited per
+     * minute. A message is only sent if both buckets hold a token.
      *
-     * @param player  - Target player.
-     * @param message - Message to send.
+     * @param player - Target player.
+     * @param node   - Message to send.
      */
-    public void sendMessage(Player player, String message)
+    public void sendMessage(Player player, MessageNode node)
     {
+        String message = messages.getString(node);
         if (player == null)
         {
             getLogger().warning("Could not send the following message: " + message);
@@ -116,36 +179,62 @@ public class ExtraHardMode extends JavaPlugin
         else
         {
             // FEATURE: don't spam messages
-            PlayerData playerData = getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
-            long now = Calendar.getInstance().getTimeInMillis();
-            if (!message.equals(playerData.lastMessageSent) || now - playerData.lastMessageTimestamp > 30000)
+            PlayerData playerData = dataStore.getPlayerData(player);
+            long now = dataStore.getClock().nanoTime();
+            int burst = rootC.getInt(RootNode.MESSAGE_BURST);
+            long interval = TimeUnit.SECONDS.toNanos(rootC.getInt(RootNode.MESSAGE_REFILL_SECONDS));
+            int perMinute = rootC.getInt(RootNode.MESSAGES_PER_MINUTE);
+            long globalInterval = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            int ordinal = node.ordinal();
+            if (!hasToken(playerData.messageBuckets[ordinal], now, interval, burst)
+                    || !hasToken(playerData.allMessagesBucket, now, globalInterval, perMinute))
             {
-                player.sendMessage(message);
-                playerData.lastMessageSent = message;
-                playerData.lastMessageTimestamp = now;
+                suppressedMessages[ordinal]++;
+                return;
             }
+            playerData.messageBuckets[ordinal] = takeToken(playerData.messageBuckets[ordinal], now, interval);
+            playerData.allMessagesBucket = takeToken(playerData.allMessagesBucket, now, globalInterval);
+            player.sendMessage(message);
         }
     }
 
     /**
-     * Computes random chance
+     * Check if a token bucket holds a token. A bucket is stored as the time
+     * it will be full again, 0 for a full bucket, so it fits into a long.
+     *
+     * @param fullAt   - Time the bucket is full again.
+     * @param now      - Current time.
+     * @param interval - Time to refill one token.
+     * @param capacity - Tokens the bucket holds when full.
+     * @return True if a token can be taken.
+     */
+    private static boolean hasToken(long fullAt, long now, long interval, int capacity)
+    {
+        return fullAt == 0 || fullAt - now <= (capacity - 1) * interval;
+    }
+
+    /**
+     * Take a token from a bucket.
      *
-     * @param percentChance - Percentage of success.
-     * @return True if it was successful, else false.
+     * @param fullAt   - Time the bucket is full again.
+     * @param now      - Current time.
+     * @param interval - Time to refill one token.
+     * @return Time the bucket is full again after taking the token.
      */
-    public boolean random(int percentChance)
+    private static long takeToken(long fullAt, long now, long interval)
     {
-        return randomNumberGenerator.nextInt(101) < percentChance;
+        return (fullAt == 0 || fullAt - now < 0 ? now : fullAt) + interval;
     }
 
     /**
-     * Get random generator.
+     * Get how often a message wasn't sent to a player since the plugin was enabled, because he got it too often.
      *
-     * @return a Random object
+     * @param node - Message.
+     * @return Number of suppressed messages.
      */
-    public Random getRandom()
+    public long getSuppressedMessages(MessageNode node)
     {
-        return randomNumberGenerator;
+        return suppressedMessages[node.ordinal()];
     }
 
     public String getTag()
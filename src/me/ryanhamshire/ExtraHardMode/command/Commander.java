@@ -33,6 +33,9 @@ public class Commander extends CommandHandler
         registerCommand("?", help);
         registerCommand("reload", new ReloadCommand());
         registerCommand("version", new VersionCommand());
+        registerCommand("stats", new StatsCommand());
+        registerCommand("farms", new FarmsCommand());
+        registerCommand("perms", new PermsCommand());
     }
 
     @Override
@@ -45,6 +48,9 @@ public class Commander extends CommandHandler
         if (sender.hasPermission(PermissionNode.ADMIN.getNode()))
         {
             sender.sendMessage("    reload " + ChatColor.YELLOW + "- Reload the plugin");
+            sender.sendMessage("    stats " + ChatColor.YELLOW + "- Show diagnostics");
+            sender.sendMessage("    farms " + ChatColor.YELLOW + "- Show the chunks where plants grow the most");
+            sender.sendMessage("    perms [player] " + ChatColor.YELLOW + "- Read cached permissions again");
         }
         return true;
     }
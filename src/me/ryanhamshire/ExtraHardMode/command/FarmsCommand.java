@@ -0,0 +1,70 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.command;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.BlockModule;
+import me.ryanhamshire.ExtraHardMode.service.ICommand;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+
+/**
+ * Shows the chunks in which plants grew the most during the last minute.
+ */
+public class FarmsCommand implements ICommand
+{
+    /**
+     * Number of chunks shown.
+     */
+    private static final int COUNT = 10;
+
+    @Override
+    public boolean execute(ExtraHardMode plugin, CommandSender sender, Command command, String label, String[] args)
+    {
+        if (sender.hasPermission(PermissionNode.ADMIN.getNode()))
+        {
+            int limit = plugin.getModuleForClass(RootConfig.class).getInt(RootNode.GROWTH_LIMIT_PER_CHUNK_PER_MINUTE);
+            sender.sendMessage(ChatColor.GRAY + "========= " + ChatColor.GOLD + plugin.getName() + " Farms" + ChatColor.GRAY + " =========");
+            if (limit == 0)
+            {
+                sender.sendMessage(ChatColor.YELLOW + "Growth isn't limited, so it isn't counted either.");
+                return true;
+            }
+            List<BlockModule.FarmChunk> farms = plugin.getModuleForClass(BlockModule.class).getHottestFarms(COUNT);
+            if (farms.isEmpty())
+            {
+                sender.sendMessage(ChatColor.YELLOW + "Nothing grew during the last minute.");
+                return true;
+            }
+            sender.sendMessage(ChatColor.BLUE + "Growths per minute (limit " + limit + ") / held back, by chunk:");
+            for (BlockModule.FarmChunk farm : farms)
+            {
+                sender.sendMessage(ChatColor.GRAY + " - " + farm.world + " " + farm.x + "," + farm.z + " (blocks " + (farm.x << 4) + "," + (farm.z << 4)
+                        + "): " + ChatColor.WHITE + farm.growths + " / " + farm.heldBack);
+            }
+        }
+        else
+        {
+            sender.sendMessage(ChatColor.RED + plugin.getTag() + " Lack permission: " + PermissionNode.ADMIN.getNode());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.command;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.service.ICommand;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+/**
+ * Reads the cached permissions of a player, or of all online players, again.
+ * Needed when permissions are changed while players are online.
+ */
+public class PermsCommand implements ICommand
+{
+
+    @Override
+    public boolean execute(ExtraHardMode plugin, CommandSender sender, Command command, String label, String[] args)
+    {
+        if (sender.hasPermission(PermissionNode.ADMIN.getNode()))
+        {
+            PermissionModule permissions = plugin.getModuleForClass(PermissionModule.class);
+            if (args.length > 0)
+            {
+                Player player = plugin.getServer().getPlayerExact(args[0]);
+                if (player == null)
+                {
+                    sender.sendMessage(ChatColor.YELLOW + plugin.getTag() + " Player isn't online: " + ChatColor.WHITE + args[0]);
+                    return true;
+                }
+                permissions.refresh(player);
+                sender.sendMessage(ChatColor.GREEN + plugin.getTag() + " Refreshed permissions of " + player.getName());
+            }
+            else
+            {
+                int count = permissions.refreshAll();
+                sender.sendMessage(ChatColor.GREEN + plugin.getTag() + " Refreshed permissions of " + count + " players");
+            }
+        }
+        else
+        {
+            sender.sendMessage(ChatColor.RED + plugin.getTag() + " Lack permission: " + PermissionNode.ADMIN.getNode());
+        }
+        return true;
+    }
+}
@@ -20,6 +20,10 @@ import me.ryanhamshire.ExtraHardMode.config.messages.MessageConfig;
 import me.ryanhamshire.ExtraHardMode.module.BlockModule;
 import me.ryanhamshire.ExtraHardMode.module.DataStoreModule;
 import me.ryanhamshire.ExtraHardMode.module.EntityModule;
+import me.ryanhamshire.ExtraHardMode.module.FeatureModule;
+import me.ryanhamshire.ExtraHardMode.module.GrinderModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.SchedulerModule;
 import me.ryanhamshire.ExtraHardMode.service.ICommand;
 import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
 import org.bukkit.ChatColor;
@@ -41,6 +45,15 @@ public class ReloadCommand implements ICommand
             root.closing();
             root.starting();
             plugin.getModuleForClass(MessageConfig.class).reload();
+            // Permission plugins may have been reloaded too.
+            plugin.getModuleForClass(PermissionModule.class).invalidateAll();
+            // Listen to the features which are switched on now.
+            plugin.getModuleForClass(FeatureModule.class).refresh();
+            // Drop pending tasks, they were planned with the old settings.
+            GrinderModule grinder = plugin.getModuleForClass(GrinderModule.class);
+            grinder.closing();
+            plugin.getModuleForClass(SchedulerModule.class).cancelDelayed();
+            grinder.starting();
             // Restart data store.
             DataStoreModule dataStore = plugin.getModuleForClass(DataStoreModule.class);
             dataStore.closing();
@@ -0,0 +1,115 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.command;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.messages.MessageNode;
+import me.ryanhamshire.ExtraHardMode.module.BlockMutationModule;
+import me.ryanhamshire.ExtraHardMode.module.ChunkLoadModule;
+import me.ryanhamshire.ExtraHardMode.module.DragonModule;
+import me.ryanhamshire.ExtraHardMode.module.EffectModule;
+import me.ryanhamshire.ExtraHardMode.module.FeatureModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.module.SchedulerModule;
+import me.ryanhamshire.ExtraHardMode.module.SpawnRegistryModule;
+import me.ryanhamshire.ExtraHardMode.module.TemporaryBlockModule;
+import me.ryanhamshire.ExtraHardMode.service.ICommand;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.ChatColor;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+
+/**
+ * Shows diagnostics of the plugin.
+ */
+public class StatsCommand implements ICommand
+{
+
+    @Override
+    public boolean execute(ExtraHardMode plugin, CommandSender sender, Command command, String label, String[] args)
+    {
+        if (sender.hasPermission(PermissionNode.ADMIN.getNode()))
+        {
+            sender.sendMessage(ChatColor.GRAY + "========= " + ChatColor.GOLD + plugin.getName() + " Stats" + ChatColor.GRAY + " =========");
+            sender.sendMessage(ChatColor.BLUE + "Random seed: " + ChatColor.WHITE + plugin.getModuleForClass(RandomModule.class).getSeed());
+            sender.sendMessage(ChatColor.BLUE + "Queued chunk loads: " + ChatColor.WHITE + plugin.getModuleForClass(ChunkLoadModule.class).getQueueSize());
+            FeatureModule features = plugin.getModuleForClass(FeatureModule.class);
+            sender.sendMessage(ChatColor.BLUE + "Feature listeners (registered / total): " + ChatColor.WHITE + features.getRegisteredCount() + " / "
+                    + features.getFeatureCount());
+            sender.sendMessage(ChatColor.BLUE + "Permission refreshes: " + ChatColor.WHITE + plugin.getModuleForClass(PermissionModule.class).getRefreshes());
+            DragonModule dragons = plugin.getModuleForClass(DragonModule.class);
+            for (World world : plugin.getServer().getWorlds())
+            {
+                if (world.getEnvironment() == Environment.THE_END)
+                {
+                    sender.sendMessage(ChatColor.BLUE + "Dragon minions / fireballs in " + world.getName() + ": " + ChatColor.WHITE
+                            + dragons.getMinionCount(world) + " / " + dragons.getFireballCount(world));
+                }
+            }
+            SpawnRegistryModule registry = plugin.getModuleForClass(SpawnRegistryModule.class);
+            for (World world : plugin.getServer().getWorlds())
+            {
+                sender.sendMessage(ChatColor.BLUE + "Spawned monsters in " + world.getName() + ": " + ChatColor.WHITE + registry.getCount(world));
+            }
+            TemporaryBlockModule temporaryBlocks = plugin.getModuleForClass(TemporaryBlockModule.class);
+            for (World world : plugin.getServer().getWorlds())
+            {
+                sender.sendMessage(ChatColor.BLUE + "Temporary blocks in " + world.getName() + " (pending / waiting for chunk): " + ChatColor.WHITE
+                        + temporaryBlocks.getCount(world) + " / " + temporaryBlocks.getWaitingCount(world));
+            }
+            sender.sendMessage(ChatColor.BLUE + "Temporary blocks removed: " + ChatColor.WHITE + temporaryBlocks.getRemoved());
+            SchedulerModule scheduler = plugin.getModuleForClass(SchedulerModule.class);
+            sender.sendMessage(ChatColor.BLUE + "Scheduled tasks (pending / run):");
+            for (TaskCategory category : TaskCategory.values())
+            {
+                sender.sendMessage(ChatColor.GRAY + " - " + category.name() + ": " + ChatColor.WHITE + scheduler.getQueueDepth(category) + " / "
+                        + scheduler.getExecuted(category));
+            }
+            sender.sendMessage(ChatColor.BLUE + "Scheduled tasks deferred by the tick budget: " + ChatColor.WHITE + scheduler.getDeferred());
+            BlockMutationModule mutations = plugin.getModuleForClass(BlockMutationModule.class);
+            sender.sendMessage(ChatColor.BLUE + "Block changes (last tick / max tick / total / merged / dropped): " + ChatColor.WHITE
+                    + mutations.getLastTickApplied() + " / " + mutations.getMaxTickApplied() + " / " + mutations.getApplied() + " / "
+                    + mutations.getMerged() + " / " + mutations.getDropped());
+            EffectModule effects = plugin.getModuleForClass(EffectModule.class);
+            sender.sendMessage(ChatColor.BLUE + "Effects (running / started / finished / stopped / rejected): " + ChatColor.WHITE
+                    + effects.getRunning() + " / " + effects.getStarted() + " / " + effects.getFinished() + " / " + effects.getStopped()
+                    + " / " + effects.getRejected());
+            sender.sendMessage(ChatColor.BLUE + "Cosmetic effects (played / downgraded / skipped):");
+            for (EffectModule.Cosmetic kind : EffectModule.Cosmetic.values())
+            {
+                sender.sendMessage(ChatColor.GRAY + " - " + kind.name() + ": " + ChatColor.WHITE + effects.getPlayed(kind) + " / "
+                        + effects.getDowngraded(kind) + " / " + effects.getSkipped(kind));
+            }
+            sender.sendMessage(ChatColor.BLUE + "Suppressed messages:");
+            for (MessageNode node : MessageNode.values())
+            {
+                long suppressed = plugin.getSuppressedMessages(node);
+                if (suppressed > 0)
+                {
+                    sender.sendMessage(ChatColor.GRAY + " - " + node.name() + ": " + ChatColor.WHITE + suppressed);
+                }
+            }
+        }
+        else
+        {
+            sender.sendMessage(ChatColor.RED + plugin.getTag() + " Lack permission: " + PermissionNode.ADMIN.getNode());
+        }
+        return true;
+    }
+}
@@ -20,7 +20,10 @@ import org.bukkit.World;
 import org.bukkit.configuration.ConfigurationSection;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Configuration handler for the root config.yml file.
@@ -28,6 +31,10 @@ import java.util.List;
 //TODO add default worlds to config
 public class RootConfig extends ModularConfig
 {
+    /**
+     * Names of the worlds EHM is enabled in, checked by nearly every event handler.
+     */
+    private volatile Set<String> enabledWorlds = Collections.emptySet();
 
     /**
      * @param plugin - plugin instance.
@@ -74,6 +81,27 @@ public class RootConfig extends ModularConfig
         boundsCheck();
     }
 
+    /**
+     * Check if EHM is enabled in a world, without reading the world list from the config.
+     *
+     * @param world - World.
+     * @return True if the world is one of the configured worlds.
+     */
+    public boolean isEnabledIn(World world)
+    {
+        return enabledWorlds.contains(world.getName());
+    }
+
+    /**
+     * Check if EHM is enabled in any world.
+     *
+     * @return True if at least one world is configured.
+     */
+    public boolean hasEnabledWorlds()
+    {
+        return !enabledWorlds.isEmpty();
+    }
+
     @Override
     public void loadSettings(ConfigurationSection config)
     {
@@ -128,6 +156,7 @@ public class RootConfig extends ModularConfig
         list.add(world.getName());
         set(RootNode.WORLDS, list);
         updateOption(RootNode.WORLDS);
+        enabledWorlds = Collections.unmodifiableSet(new HashSet<String>(list));
 
         // Check y coordinates
         validateYCoordinate(RootNode.STANDARD_TORCH_MIN_Y, worlds);
@@ -153,6 +182,17 @@ public class RootConfig extends ModularConfig
         //Custom Checking
         validateCustom(RootNode.PLAYER_RESPAWN_HEALTH, 0, 20);
         validateCustom(RootNode.PLAYER_RESPAWN_FOOD_LEVEL, 0, 20);
+        validateCustom(RootNode.CHUNK_LOADS_PER_TICK, 1, 1000);
+        validateCustom(RootNode.TEMPORARY_BLOCKS_PER_TICK, 1, 1000);
+        validateCustom(RootNode.GROWTH_LIMIT_PER_CHUNK_PER_MINUTE, 0, 1000000);
+        validateCustom(RootNode.MESSAGE_BURST, 1, 100);
+        validateCustom(RootNode.MESSAGE_REFILL_SECONDS, 0, 3600);
+        validateCustom(RootNode.MESSAGES_PER_MINUTE, 1, 1000);
+        validateCustom(RootNode.EFFECTS_MAX_RUNNING, 1, 1000);
+        validateCustom(RootNode.EFFECTS_PER_REGION_PER_SECOND, 0, 1000);
+        validateCustom(RootNode.EFFECT_ENTITIES_PER_REGION_PER_SECOND, 0, 1000);
+        validateCustom(RootNode.ENDER_DRAGON_MAX_MINIONS, 1, 200);
+        validateCustom(RootNode.ENDER_DRAGON_MAX_FIREBALLS, 1, 200);
     }
 
     /**
@@ -225,8 +265,8 @@ public class RootConfig extends ModularConfig
         int value = getInt(node);
         if (value < minVal)
         {
-            plugin.getLogger().warning(plugin.getTag() + " Value for " + node.getPath() + "cannot be smaller than 0.");
-            set(node, 0);
+            plugin.getLogger().warning(plugin.getTag() + " Value for " + node.getPath() + "cannot be smaller than " + minVal);
+            set(node, minVal);
             changed = true;
         }
         else if (value > maxVal)
@@ -37,6 +37,51 @@ public enum RootNode implements ConfigNode
      */
     DISABLE_EXPLOSIONS
             ("ExtraHardMode.Plugin.Disable Explosions", VarType.BOOLEAN, false),
+    /**
+     * how many loaded chunks are processed per tick, the rest waits for the next tick
+     */
+    CHUNK_LOADS_PER_TICK
+            ("ExtraHardMode.Plugin.Chunk Loads Per Tick", VarType.INTEGER, 20),
+    /**
+     * how many expired temporary blocks like spider webs are removed per tick, the rest waits for the next tick
+     */
+    TEMPORARY_BLOCKS_PER_TICK
+            ("ExtraHardMode.Plugin.Temporary Blocks Per Tick", VarType.INTEGER, 32),
+    /**
+     * how often the same message may be sent to a player in a row, before he has to wait
+     */
+    MESSAGE_BURST
+            ("ExtraHardMode.Plugin.Messages.Burst", VarType.INTEGER, 1),
+    /**
+     * seconds until a player may get the same message once more
+     */
+    MESSAGE_REFILL_SECONDS
+            ("ExtraHardMode.Plugin.Messages.Refill Seconds", VarType.INTEGER, 30),
+    /**
+     * how many messages a player gets per minute at most, of all kinds together
+     */
+    MESSAGES_PER_MINUTE
+            ("ExtraHardMode.Plugin.Messages.Per Minute", VarType.INTEGER, 6),
+    /**
+     * seed of all random decisions, the same seed makes the same events play out the same way. 0 for a new seed every start
+     */
+    RANDOM_SEED
+            ("ExtraHardMode.Plugin.Random Seed", VarType.INTEGER, 0),
+    /**
+     * how many effects like the firework show of burning creepers may run at the same time, further ones are left out
+     */
+    EFFECTS_MAX_RUNNING
+            ("ExtraHardMode.Plugin.Effects.Max Running", VarType.INTEGER, 16),
+    /**
+     * how many fireworks, sounds and particles may be played per second in an area of 4x4 chunks, further ones are left out
+     */
+    EFFECTS_PER_REGION_PER_SECOND
+            ("ExtraHardMode.Plugin.Effects.Per Region Per Second", VarType.INTEGER, 24),
+    /**
+     * how many of them may spawn an entity like a firework rocket, further ones only show particles
+     */
+    EFFECT_ENTITIES_PER_REGION_PER_SECOND
+            ("ExtraHardMode.Plugin.Effects.Entities Per Region Per Second", VarType.INTEGER, 4),
 
 
     /**
@@ -141,6 +186,11 @@ public enum RootNode implements ConfigNode
      */
     INHIBIT_MONSTER_GRINDERS
             ("ExtraHardMode.General Monster Rules.Inhibit Monster Grinders", VarType.BOOLEAN, true),
+    /**
+     * days after which remembered grinder flags of entities in chunks that never loaded again are dropped, 0 keeps them forever
+     */
+    GRINDER_FLAGS_EXPIRE_DAYS
+            ("ExtraHardMode.General Monster Rules.Grinder Flags Expire Days", VarType.INTEGER, 14),
     /**
      * max y value for extra monster spawns
      */
@@ -329,6 +379,16 @@ public enum RootNode implements ConfigNode
      */
     ENDER_DRAGON_NO_BUILDING
             ("ExtraHardMode.EnderDragon.No Building Allowed", VarType.BOOLEAN, true),
+    /**
+     * how many summoned minions may live in an end world, the oldest despawns to make room
+     */
+    ENDER_DRAGON_MAX_MINIONS
+            ("ExtraHardMode.EnderDragon.Max Minions", VarType.INTEGER, 12),
+    /**
+     * how many dragon fireballs may fly in an end world, the oldest is shot again instead of a new one
+     */
+    ENDER_DRAGON_MAX_FIREBALLS
+            ("ExtraHardMode.EnderDragon.Max Fireballs", VarType.INTEGER, 8),
 
     /**
      * whether food crops die more easily
@@ -345,6 +405,11 @@ public enum RootNode implements ConfigNode
      */
     ARID_DESSERTS
             ("ExtraHardMode.Farming.Weak Crops.Arid Infertile Desserts", VarType.BOOLEAN, true),
+    /**
+     * how often plants may grow per chunk and minute, growth above is held back. 0 for no limit
+     */
+    GROWTH_LIMIT_PER_CHUNK_PER_MINUTE
+            ("ExtraHardMode.Farming.Growth Limit Per Chunk Per Minute", VarType.INTEGER, 0),
     /**
      * Weather Snow should break crops
      */
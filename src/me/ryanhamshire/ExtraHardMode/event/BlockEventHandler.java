@@ -21,10 +21,17 @@ package me.ryanhamshire.ExtraHardMode.event;
 import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import me.ryanhamshire.ExtraHardMode.config.RootConfig;
 import me.ryanhamshire.ExtraHardMode.config.RootNode;
-import me.ryanhamshire.ExtraHardMode.config.messages.MessageConfig;
 import me.ryanhamshire.ExtraHardMode.config.messages.MessageNode;
 import me.ryanhamshire.ExtraHardMode.module.BlockModule;
+import me.ryanhamshire.ExtraHardMode.module.BlockMutationModule;
+import me.ryanhamshire.ExtraHardMode.module.EffectModule;
+import me.ryanhamshire.ExtraHardMode.module.GrinderModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.module.SchedulerModule;
 import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
 import me.ryanhamshire.ExtraHardMode.task.EvaporateWaterTask;
 import me.ryanhamshire.ExtraHardMode.task.RemoveExposedTorchesTask;
 import org.bukkit.*;
@@ -37,6 +44,10 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.*;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
 import org.bukkit.event.weather.WeatherChangeEvent;
 import org.bukkit.event.world.StructureGrowEvent;
 import org.bukkit.inventory.ItemStack;
@@ -59,6 +70,34 @@ public class BlockEventHandler implements Listener
      * Config instance
      */
     RootConfig rootC;
+    /**
+     * Random streams of the features
+     */
+    private RandomModule randomModule;
+    /**
+     * Falling blocks and crops
+     */
+    private final BlockModule blockModule;
+    /**
+     * Queued block changes
+     */
+    private final BlockMutationModule mutations;
+    /**
+     * Effects and sounds
+     */
+    private final EffectModule effects;
+    /**
+     * Monster grinder checks
+     */
+    private final GrinderModule grinder;
+    /**
+     * Cached permissions of players
+     */
+    private final PermissionModule permissions;
+    /**
+     * Delayed tasks
+     */
+    private final SchedulerModule scheduler;
     /**
      * Block faces to iterate through.
      */
@@ -74,6 +113,13 @@ public class BlockEventHandler implements Listener
     {
         this.plugin = plugin;
         rootC = plugin.getModuleForClass(RootConfig.class);
+        randomModule = plugin.getModuleForClass(RandomModule.class);
+        blockModule = plugin.getModuleForClass(BlockModule.class);
+        mutations = plugin.getModuleForClass(BlockMutationModule.class);
+        effects = plugin.getModuleForClass(EffectModule.class);
+        grinder = plugin.getModuleForClass(GrinderModule.class);
+        permissions = plugin.getModuleForClass(PermissionModule.class);
+        scheduler = plugin.getModuleForClass(SchedulerModule.class);
     }
 
     /**
@@ -88,9 +134,7 @@ public class BlockEventHandler implements Listener
         World world = block.getWorld();
         Player player = breakEvent.getPlayer();
 
-        MessageConfig messages = plugin.getModuleForClass(MessageConfig.class);
-
-        if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()) || player.hasPermission(PermissionNode.BYPASS.getNode()))
+        if (!rootC.isEnabledIn(world) || permissions.has(player, PermissionNode.BYPASS))
             return;
 
         // FEATURE: very limited building in the end
@@ -101,7 +145,7 @@ public class BlockEventHandler implements Listener
             if (block.getType() != Material.ENDER_STONE)
             {
                 breakEvent.setCancelled(true);
-                plugin.sendMessage(player, messages.getString(MessageNode.LIMITED_END_BUILDING));
+                plugin.sendMessage(player, MessageNode.LIMITED_END_BUILDING);
                 return;
             }
             else
@@ -116,7 +160,7 @@ public class BlockEventHandler implements Listener
                 if (block.getY() < player.getLocation().getBlockY() + absoluteDistanceFromBlock)
                 {
                     breakEvent.setCancelled(true);
-                    plugin.sendMessage(player, messages.getString(MessageNode.LIMITED_END_BUILDING));
+                    plugin.sendMessage(player, MessageNode.LIMITED_END_BUILDING);
                     return;
                 }
             }
@@ -164,13 +208,12 @@ public class BlockEventHandler implements Listener
             for (BlockFace face : blockFaces)
             {
                 Block adjacentBlock = block.getRelative(face);
+                // stone and cobble are both solid, neighbours don't care
                 if (adjacentBlock.getType() == Material.STONE)
-                    adjacentBlock.setType(Material.COBBLESTONE);
+                    mutations.setType(adjacentBlock, Material.COBBLESTONE, (byte) 0, false, Material.STONE);
             }
         }
 
-        BlockModule blockModule = plugin.getModuleForClass(BlockModule.class);
-
         // FEATURE: trees chop more naturally
         if (block.getType() == Material.LOG && rootC.getBoolean(RootNode.BETTER_TREE_CHOPPING))
         {
@@ -210,10 +253,10 @@ public class BlockEventHandler implements Listener
         if (rootC.getInt(RootNode.BROKEN_NETHERRACK_CATCHES_FIRE_PERCENT) > 0 && block.getType() == Material.NETHERRACK)
         {
             Block underBlock = block.getRelative(BlockFace.DOWN);
-            if (underBlock.getType() == Material.NETHERRACK && plugin.random(rootC.getInt(RootNode.BROKEN_NETHERRACK_CATCHES_FIRE_PERCENT)))
+            if (underBlock.getType() == Material.NETHERRACK && randomModule.chance(RandomFeature.BLOCKS, rootC.getInt(RootNode.BROKEN_NETHERRACK_CATCHES_FIRE_PERCENT)))
             {
                 breakEvent.setCancelled(true);
-                block.setType(Material.FIRE);
+                mutations.setType(block, Material.FIRE, (byte) 0, true, Material.NETHERRACK);
             }
         }
     }
@@ -230,9 +273,7 @@ public class BlockEventHandler implements Listener
         Block block = placeEvent.getBlock();
         World world = block.getWorld();
 
-        MessageConfig messages = plugin.getModuleForClass(MessageConfig.class);
-
-        if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()) || player.hasPermission(PermissionNode.BYPASS.getNode()))
+        if (!rootC.isEnabledIn(world) || permissions.has(player, PermissionNode.BYPASS))
             return;
 
         // FEATURE: very limited building in the end
@@ -241,7 +282,7 @@ public class BlockEventHandler implements Listener
         if (rootC.getBoolean(RootNode.ENDER_DRAGON_NO_BUILDING) && world.getEnvironment() == Environment.THE_END)
         {
             placeEvent.setCancelled(true);
-            plugin.sendMessage(player, messages.getString(MessageNode.LIMITED_END_BUILDING));
+            plugin.sendMessage(player, MessageNode.LIMITED_END_BUILDING);
             return;
         }
 
@@ -262,7 +303,7 @@ public class BlockEventHandler implements Listener
             {
                 if (adjacentBlock.getType() == Material.STONE)
                 {
-                    plugin.sendMessage(player, messages.getString(MessageNode.NO_PLACING_ORE_AGAINST_STONE));
+                    plugin.sendMessage(player, MessageNode.NO_PLACING_ORE_AGAINST_STONE);
                     placeEvent.setCancelled(true);
                     return;
                 }
@@ -276,9 +317,8 @@ public class BlockEventHandler implements Listener
             return;
         }
 
-        BlockModule module = plugin.getModuleForClass(BlockModule.class);
         // FEATURE: more falling blocks
-        if (!player.getGameMode().equals(GameMode.CREATIVE))module.physicsCheck(block, 0, true);
+        if (!player.getGameMode().equals(GameMode.CREATIVE))blockModule.physicsCheck(block, 0, true);
 
         // FEATURE: no standard torches, jack o lanterns, or fire on top of
         // netherrack near diamond level
@@ -365,7 +405,7 @@ public class BlockEventHandler implements Listener
         if (rootC.getBoolean(RootNode.DONT_MOVE_WATER_SOURCE_BLOCKS))
         {
             World world = event.getBlock().getWorld();
-            if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()))
+            if (!rootC.isEnabledIn(world))
                 return;
 
             // only care about water
@@ -391,8 +431,8 @@ public class BlockEventHandler implements Listener
                     block = event.getBlock().getLocation().add(0, 0, -1).getBlock();
                 }
 
-                EvaporateWaterTask task = new EvaporateWaterTask(block);
-                plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 1L);
+                EvaporateWaterTask task = new EvaporateWaterTask(plugin, mutations, block);
+                scheduler.schedule(TaskCategory.EVAPORATE, task, 1L, block.getWorld().getName(), null);
             }
         }
     }
@@ -411,7 +451,7 @@ public class BlockEventHandler implements Listener
         // FEATURE: prevent players from circumventing hardened stone rules by
         // placing ore, then pushing the ore next to stone before breaking it
 
-        if (!rootC.getBoolean(RootNode.SUPER_HARD_STONE) || !rootC.getStringList(RootNode.WORLDS).contains(world.getName()))
+        if (!rootC.getBoolean(RootNode.SUPER_HARD_STONE) || !rootC.isEnabledIn(world))
             return;
 
         // which blocks are being pushed?
@@ -445,7 +485,7 @@ public class BlockEventHandler implements Listener
         Block block = event.getRetractLocation().getBlock();
         World world = block.getWorld();
 
-        if (!rootC.getBoolean(RootNode.SUPER_HARD_STONE) || !rootC.getStringList(RootNode.WORLDS).contains(world.getName()))
+        if (!rootC.getBoolean(RootNode.SUPER_HARD_STONE) || !rootC.isEnabledIn(world))
             return;
 
         Material material = block.getType();
@@ -467,7 +507,7 @@ public class BlockEventHandler implements Listener
         // FEATURE: rainfall breaks exposed torches (exposed to the sky)
         World world = event.getWorld();
 
-        if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()))
+        if (!rootC.isEnabledIn(world))
         {
             return;
         }
@@ -482,13 +522,13 @@ public class BlockEventHandler implements Listener
         Chunk[] chunks = world.getLoadedChunks();
         if (chunks.length > 0)
         {
-            int startOffset = plugin.getRandom().nextInt(chunks.length);
+            int startOffset = randomModule.get(RandomFeature.WEATHER).nextInt(chunks.length);
             for (int i = 0; i < chunks.length; i++)
             {
                 Chunk chunk = chunks[(startOffset + i) % chunks.length];
 
-                RemoveExposedTorchesTask task = new RemoveExposedTorchesTask(plugin, chunk);
-                plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, i * 20L);
+                RemoveExposedTorchesTask task = new RemoveExposedTorchesTask(plugin, rootC, mutations, randomModule, chunk);
+                scheduler.schedule(TaskCategory.RAIN, task, i * 20L, world.getName(), null);
             }
         }
     }
@@ -501,8 +541,15 @@ public class BlockEventHandler implements Listener
     @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
     public void onBlockGrow(BlockGrowEvent event)
     {
+        // FEATURE: huge farms don't grow faster than a limit per chunk
+        if (rootC.isEnabledIn(event.getBlock().getWorld()) && !blockModule.allowGrowth(event.getBlock()))
+        {
+            event.setCancelled(true);
+            return;
+        }
+
         // FEATURE: fewer seeds = shrinking crops. when a plant grows to its full size, it may be replaced by a dead shrub
-        if (plugin.getModuleForClass(BlockModule.class).plantDies(event.getBlock(), event.getNewState().getData().getData()))
+        if (blockModule.plantDies(event.getBlock(), event.getNewState().getData().getData()))
         {
             event.setCancelled(true);
             event.getBlock().setType(Material.LONG_GRASS); // dead shrub
@@ -520,7 +567,7 @@ public class BlockEventHandler implements Listener
         World world = event.getWorld();
         Block block = event.getLocation().getBlock();
 
-        if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()) || (event.getPlayer() != null && event.getPlayer().hasPermission(PermissionNode.BYPASS.getNode())))
+        if (!rootC.isEnabledIn(world) || (event.getPlayer() != null && permissions.has(event.getPlayer(), PermissionNode.BYPASS)))
             return;
 
         // FEATURE: no big plant growth in deserts
@@ -534,6 +581,116 @@ public class BlockEventHandler implements Listener
         }
     }
 
+    /**
+     * When a block is broken, monster grinders and crops around it may have changed.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onGrinderBlockBreak(BlockBreakEvent event)
+    {
+        blockChanged(event.getBlock());
+    }
+
+    /**
+     * When a block is placed, monster grinders and crops around it may have changed.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onGrinderBlockPlace(BlockPlaceEvent event)
+    {
+        blockChanged(event.getBlock());
+    }
+
+    /**
+     * When a piston pushes, monster grinders and crops around the moved blocks may have changed.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onGrinderPistonExtend(BlockPistonExtendEvent event)
+    {
+        blockChanged(event.getBlock().getRelative(event.getDirection()));
+        for (Block block : event.getBlocks())
+        {
+            blockChanged(block.getRelative(event.getDirection()));
+        }
+    }
+
+    /**
+     * When a piston pulls, monster grinders and crops around the moved block may have changed.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onGrinderPistonRetract(BlockPistonRetractEvent event)
+    {
+        blockChanged(event.getBlock().getRelative(event.getDirection()));
+        if (event.isSticky())
+        {
+            blockChanged(event.getRetractLocation().getBlock());
+        }
+    }
+
+    /**
+     * When water or lava is placed, monster grinders and crops around it may have changed.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onGrinderBucketEmpty(PlayerBucketEmptyEvent event)
+    {
+        blockChanged(event.getBlockClicked().getRelative(event.getBlockFace()));
+    }
+
+    /**
+     * When water or lava is picked up, monster grinders and crops around it may have changed.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onGrinderBucketFill(PlayerBucketFillEvent event)
+    {
+        blockChanged(event.getBlockClicked());
+    }
+
+    /**
+     * When something explodes, monster grinders and crops around the destroyed blocks may have changed.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onGrinderExplosion(EntityExplodeEvent event)
+    {
+        for (Block block : event.blockList())
+        {
+            blockChanged(block);
+        }
+    }
+
+    /**
+     * When a falling block lands or an entity changes a block, monster grinders and crops around it may have changed.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.MONITOR)
+    public void onGrinderEntityChangeBlock(EntityChangeBlockEvent event)
+    {
+        blockChanged(event.getBlock());
+    }
+
+    /**
+     * Forget cached monster grinder decisions and crop context around a block.
+     *
+     * @param block - Block which changed.
+     */
+    private void blockChanged(Block block)
+    {
+        grinder.blockChanged(block.getWorld(), block.getX(), block.getY(), block.getZ());
+        blockModule.blockChanged(block);
+    }
+
     /**
      * Send the player an informative message to explain what he's doing wrong.
      * Play an optional sound aswell
@@ -547,12 +704,11 @@ public class BlockEventHandler implements Listener
      */
     void notifyPlayer(Player player, MessageNode node, PermissionNode perm, Sound sound, float soundPitch)
     {
-        if (!player.hasPermission(perm.getNode()))
+        if (!permissions.has(player, perm))
         {
-            MessageConfig config = plugin.getModuleForClass(MessageConfig.class);
-            plugin.sendMessage(player, config.getString(node));
+            plugin.sendMessage(player, node);
             if (sound != null)
-                player.playSound(player.getLocation(), sound, 1, soundPitch);
+                effects.playSound(player, sound, 1, soundPitch);
         }
     }
 
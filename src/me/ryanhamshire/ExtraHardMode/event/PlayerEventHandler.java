@@ -21,13 +21,18 @@ package me.ryanhamshire.ExtraHardMode.event;
 import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import me.ryanhamshire.ExtraHardMode.config.RootConfig;
 import me.ryanhamshire.ExtraHardMode.config.RootNode;
-import me.ryanhamshire.ExtraHardMode.config.messages.MessageConfig;
 import me.ryanhamshire.ExtraHardMode.config.messages.MessageNode;
 import me.ryanhamshire.ExtraHardMode.module.BlockModule;
+import me.ryanhamshire.ExtraHardMode.module.BlockMutationModule;
 import me.ryanhamshire.ExtraHardMode.module.DataStoreModule;
 import me.ryanhamshire.ExtraHardMode.module.DataStoreModule.PlayerData;
+import me.ryanhamshire.ExtraHardMode.module.EntityIndexModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.SchedulerModule;
+import me.ryanhamshire.ExtraHardMode.module.SpawnRegistryModule;
 import me.ryanhamshire.ExtraHardMode.module.UtilityModule;
 import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
 import me.ryanhamshire.ExtraHardMode.task.EvaporateWaterTask;
 import me.ryanhamshire.ExtraHardMode.task.SetPlayerHealthAndFoodTask;
 import org.bukkit.GameMode;
@@ -64,6 +69,34 @@ public class PlayerEventHandler implements Listener
      * Config
      */
     RootConfig rootC;
+    /**
+     * Falling blocks and crops
+     */
+    private final BlockModule blockModule;
+    /**
+     * Queued block changes
+     */
+    private final BlockMutationModule mutations;
+    /**
+     * Player data
+     */
+    private final DataStoreModule dataStore;
+    /**
+     * Entities by chunk
+     */
+    private final EntityIndexModule entityIndex;
+    /**
+     * Cached permissions of players
+     */
+    private final PermissionModule permissions;
+    /**
+     * Delayed tasks
+     */
+    private final SchedulerModule scheduler;
+    /**
+     * Monsters spawned by the plugin
+     */
+    private final SpawnRegistryModule spawnRegistry;
     /**
      * Constructor.
      *
@@ -74,6 +107,13 @@ public class PlayerEventHandler implements Listener
         this.plugin = plugin;
         utils = plugin.getModuleForClass(UtilityModule.class);
         rootC = plugin.getModuleForClass(RootConfig.class);
+        blockModule = plugin.getModuleForClass(BlockModule.class);
+        mutations = plugin.getModuleForClass(BlockMutationModule.class);
+        dataStore = plugin.getModuleForClass(DataStoreModule.class);
+        entityIndex = plugin.getModuleForClass(EntityIndexModule.class);
+        permissions = plugin.getModuleForClass(PermissionModule.class);
+        scheduler = plugin.getModuleForClass(SchedulerModule.class);
+        spawnRegistry = plugin.getModuleForClass(SpawnRegistryModule.class);
     }
 
     /**
@@ -86,15 +126,14 @@ public class PlayerEventHandler implements Listener
     {
         Player player = respawnEvent.getPlayer();
         World world = respawnEvent.getPlayer().getWorld();
-        if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()) || player.hasPermission(PermissionNode.BYPASS.getNode()))
+        if (!rootC.isEnabledIn(world) || permissions.has(player, PermissionNode.BYPASS))
         {
             return;
         }
-        SetPlayerHealthAndFoodTask task = new SetPlayerHealthAndFoodTask(player, rootC.getInt(RootNode.PLAYER_RESPAWN_HEALTH), rootC.getInt(RootNode.PLAYER_RESPAWN_FOOD_LEVEL));
-        plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 10L); // half-second
-        // delay
+        SetPlayerHealthAndFoodTask task = new SetPlayerHealthAndFoodTask(plugin, player, rootC.getInt(RootNode.PLAYER_RESPAWN_HEALTH), rootC.getInt(RootNode.PLAYER_RESPAWN_FOOD_LEVEL));
+        scheduler.schedule(TaskCategory.RESPAWN, task, 10L, null, player.getUniqueId()); // half-second delay
         // FEATURE: players can't swim when they're carrying a lot of weight
-        PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
+        PlayerData playerData = dataStore.getPlayerData(player);
         playerData.cachedWeightStatus = false;
     }
 
@@ -108,7 +147,7 @@ public class PlayerEventHandler implements Listener
     {
         Player player = event.getPlayer();
         World world = event.getPlayer().getWorld();
-        if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()) || player.hasPermission(PermissionNode.BYPASS.getNode()))
+        if (!rootC.isEnabledIn(world) || permissions.has(player, PermissionNode.BYPASS))
             return;
         Action action = event.getAction();
 
@@ -138,7 +177,7 @@ public class PlayerEventHandler implements Listener
             if (utils.isPlant(block.getType()))
             {
                 Material materialInHand = player.getItemInHand().getType();
-                if (materialInHand == Material.INK_SACK && plugin.getModuleForClass(BlockModule.class).plantDies(block, Byte.MAX_VALUE))
+                if (materialInHand == Material.INK_SACK && blockModule.plantDies(block, Byte.MAX_VALUE))
                 {
                     event.setCancelled(true);
                     block.setType(Material.LONG_GRASS); // dead shrub
@@ -170,7 +209,7 @@ public class PlayerEventHandler implements Listener
         {
             Player player = event.getPlayer();
             World world = event.getPlayer().getWorld();
-            if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()) || player.hasPermission(PermissionNode.BYPASS.getNode()))
+            if (!rootC.isEnabledIn(world) || permissions.has(player, PermissionNode.BYPASS))
                 return;
 
             // only care about stationary (source) water
@@ -211,7 +250,7 @@ public class PlayerEventHandler implements Listener
         {
             Player player = event.getPlayer();
             World world = event.getPlayer().getWorld();
-            if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()) || player.hasPermission(PermissionNode.BYPASS.getNode()))
+            if (!rootC.isEnabledIn(world) || permissions.has(player, PermissionNode.BYPASS))
             {
                 return;
             }
@@ -221,8 +260,8 @@ public class PlayerEventHandler implements Listener
                 // plan to change this block into a non-source block on the next
                 // tick
                 Block block = event.getBlockClicked().getRelative(event.getBlockFace());
-                EvaporateWaterTask task = new EvaporateWaterTask(block);
-                plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, task, 15L);
+                EvaporateWaterTask task = new EvaporateWaterTask(plugin, mutations, block);
+                scheduler.schedule(TaskCategory.EVAPORATE, task, 15L, world.getName(), null);
             }
         }
     }
@@ -239,7 +278,7 @@ public class PlayerEventHandler implements Listener
     {
         World world = event.getFrom();
 
-        if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()))
+        if (!rootC.isEnabledIn(world))
             return;
 
         // FEATURE: respawn the ender dragon when the last player leaves the end
@@ -251,23 +290,21 @@ public class PlayerEventHandler implements Listener
 
         // look for an ender dragon
         EnderDragon enderDragon = null;
-        for (Entity entity : world.getEntities())
+        for (Entity entity : entityIndex.getEntities(world, EntityType.ENDER_DRAGON))
         {
-            if (enderDragon != null && entity instanceof EnderDragon)
+            if (enderDragon != null)
             {  //If there is already a dragon for whatever reason, remove it
                 entity.remove();
             }
-            if (entity instanceof EnderDragon)
+            else
             {
                 enderDragon = (EnderDragon) entity;
             }
-            // clean up any summoned minions
-            if (entity.getType().equals(EntityType.ZOMBIE) || entity.getType().equals(EntityType.BLAZE))
-            {
-                entity.remove();
-            }
         }
 
+        // clean up any summoned minions
+        spawnRegistry.removeAll(world);
+
         // if he's there, full health
         if (enderDragon != null)
         {
@@ -330,11 +367,10 @@ public class PlayerEventHandler implements Listener
         // only enabled worlds, and players without bypass permission
         Player player = event.getPlayer();
         World world = player.getWorld();
-        if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()) || player.hasPermission(PermissionNode.BYPASS.getNode()))
+        if (!rootC.isEnabledIn(world) || permissions.has(player, PermissionNode.BYPASS))
             return;
 
-        PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
-        MessageConfig messages = plugin.getModuleForClass(MessageConfig.class);
+        PlayerData playerData = dataStore.getPlayerData(player);
         // if no cached value, calculate
         if (!playerData.cachedWeightStatus)
         {
@@ -370,7 +406,7 @@ public class PlayerEventHandler implements Listener
         if (playerData.cachedWeightStatus == true & !player.getGameMode().equals(GameMode.CREATIVE) & !player.isInsideVehicle())
         {
             event.setCancelled(true);
-            plugin.sendMessage(player, messages.getString(MessageNode.NO_SWIMMING_IN_ARMOR));
+            plugin.sendMessage(player, MessageNode.NO_SWIMMING_IN_ARMOR);
         }
     }
 
@@ -384,7 +420,7 @@ public class PlayerEventHandler implements Listener
     {
         // FEATURE: players can't swim when they're carrying a lot of weight
         Player player = event.getPlayer();
-        PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
+        PlayerData playerData = dataStore.getPlayerData(player);
         playerData.cachedWeightStatus = false;
     }
 
@@ -398,7 +434,7 @@ public class PlayerEventHandler implements Listener
     {
         // FEATURE: players can't swim when they're carrying a lot of weight
         Player player = event.getPlayer();
-        PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
+        PlayerData playerData = dataStore.getPlayerData(player);
         playerData.cachedWeightStatus = false;
     }
 
@@ -415,8 +451,67 @@ public class PlayerEventHandler implements Listener
         if (humanEntity instanceof Player)
         {
             Player player = (Player) humanEntity;
-            PlayerData playerData = plugin.getModuleForClass(DataStoreModule.class).getPlayerData(player.getName());
+            PlayerData playerData = dataStore.getPlayerData(player);
             playerData.cachedWeightStatus = false;
         }
     }
+
+    /**
+     * Before a player logs in, make sure his stored data was read. Runs on a
+     * login thread, so the main thread never waits for the disk.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    void onPlayerPreLogin(AsyncPlayerPreLoginEvent event)
+    {
+        dataStore.awaitStoredData();
+    }
+
+    /**
+     * When a player joins, keep his data for the session.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    void onPlayerJoin(PlayerJoinEvent event)
+    {
+        dataStore.playerJoined(event.getPlayer());
+    }
+
+    /**
+     * When a player joins, read his permissions on the next check, after permission plugins set them up.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    void onPlayerJoinPermissions(PlayerJoinEvent event)
+    {
+        permissions.invalidate(event.getPlayer());
+    }
+
+    /**
+     * When a player changes worlds, read his permissions again on the next check, they may be set per world.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    void onPlayerChangedWorld(PlayerChangedWorldEvent event)
+    {
+        permissions.invalidate(event.getPlayer());
+    }
+
+    /**
+     * When a player quits, his data is dropped after a while unless he comes back.
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    void onPlayerQuit(PlayerQuitEvent event)
+    {
+        // his data may be kept until he comes back, his permissions may have changed by then
+        permissions.invalidate(event.getPlayer());
+        dataStore.playerQuit(event.getPlayer());
+        scheduler.cancelPlayer(event.getPlayer().getUniqueId());
+    }
 }
@@ -0,0 +1,242 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.BlockMutationModule;
+import me.ryanhamshire.ExtraHardMode.module.EffectModule;
+import me.ryanhamshire.ExtraHardMode.module.EntityModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.module.SpawnRegistryModule;
+import me.ryanhamshire.ExtraHardMode.service.ColumnProbe;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Blaze;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Fireball;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Vector;
+
+/**
+ * Blazes drop nether loot, explode or multiply when they die, drop fire when
+ * they are hit, and magma cubes turn into blazes.
+ */
+public class BlazeListener extends FeatureListener
+{
+    /**
+     * How far down fire from blazes may land.
+     */
+    private static final int MAX_DROP_DEPTH = 32;
+    /**
+     * Queued block changes
+     */
+    private final BlockMutationModule mutations;
+    /**
+     * Effects and sounds
+     */
+    private final EffectModule effects;
+    /**
+     * Flags on entities
+     */
+    private final EntityModule entityModule;
+    /**
+     * Monsters spawned by the plugin
+     */
+    private final SpawnRegistryModule spawnRegistry;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin        - Plugin instance.
+     * @param rootC         - Configuration.
+     * @param random        - Random streams.
+     * @param permissions   - Cached permissions.
+     * @param mutations     - Queued block changes.
+     * @param effects       - Effect timelines.
+     * @param entityModule  - Entity flags.
+     * @param spawnRegistry - Registry of spawned monsters.
+     */
+    public BlazeListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions,
+                         BlockMutationModule mutations, EffectModule effects, EntityModule entityModule, SpawnRegistryModule spawnRegistry)
+    {
+        super(plugin, rootC, random, permissions);
+        this.mutations = mutations;
+        this.effects = effects;
+        this.entityModule = entityModule;
+        this.spawnRegistry = spawnRegistry;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        boolean explosions = !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS);
+        return rootC.getBoolean(RootNode.BLAZES_DROP_BONUS_LOOT) || (explosions && rootC.getBoolean(RootNode.BLAZES_EXPLODE_ON_DEATH))
+                || rootC.getInt(RootNode.NETHER_BLAZES_SPLIT_ON_DEATH_PERCENT) > 0 || rootC.getBoolean(RootNode.BLAZES_DROP_FIRE_ON_DAMAGE)
+                || (explosions && rootC.getBoolean(RootNode.MAGMA_CUBES_BECOME_BLAZES_ON_DAMAGE));
+    }
+
+    /**
+     * when a blaze dies...
+     * blazes drop extra loot (glowstone, gunpowder), explode in the normal world, may multiply in the nether
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        LivingEntity entity = event.getEntity();
+        World world = entity.getWorld();
+        if (!(entity instanceof Blaze) || !rootC.isEnabledIn(world))
+            return;
+
+        // FEATURE: nether blazes drop extra loot (glowstone and gunpowder)
+        if (rootC.getBoolean(RootNode.BLAZES_DROP_BONUS_LOOT))
+        {
+            if (world.getEnvironment() == Environment.NETHER)
+            {
+                // 50% chance of each
+                if (randomModule.get(RandomFeature.DEATHS).nextInt(2) == 0)
+                {
+                    event.getDrops().add(new ItemStack(Material.SULPHUR, 2));
+                }
+                else
+                {
+                    event.getDrops().add(new ItemStack(Material.GLOWSTONE_DUST, 2));
+                }
+            }
+            else // no drops in the normal world (restricting blaze rods to the
+            // nether)
+            {
+                event.getDrops().clear();
+            }
+        }
+
+        // FEATURE: blazes explode on death in normal world
+        if (rootC.getBoolean(RootNode.BLAZES_EXPLODE_ON_DEATH) && world.getEnvironment() == Environment.NORMAL
+                && !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS))
+        {
+            // create explosion
+            world.createExplosion(entity.getLocation(), 2F, true); // equal to a
+            // TNT blast,
+            // sets fires
+
+            // fire a fireball straight up in normal worlds, the tick after the explosion
+            final Location location = entity.getLocation();
+            Runnable fireball = new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Fireball fireball = (Fireball) location.getWorld().spawnEntity(location, EntityType.FIREBALL);
+                    fireball.setDirection(new Vector(0, 10, 0));
+                    fireball.setYield(1);
+                }
+            };
+            // the fireball is part of the feature, not just an effect, so launch it right away if the timeline is refused
+            if (!effects.play(new EffectModule.Timeline(location).at(1, fireball)))
+            {
+                fireball.run();
+            }
+        }
+
+        // FEATURE: nether blazes may multiply on death
+        final int blazeSplitPercent = rootC.getInt(RootNode.NETHER_BLAZES_SPLIT_ON_DEATH_PERCENT);
+        if (blazeSplitPercent > 0 && world.getEnvironment() == Environment.NETHER)
+        {
+            if (randomModule.chance(RandomFeature.DEATHS, blazeSplitPercent))
+            {
+                Entity firstNewBlaze = world.spawnEntity(entity.getLocation(), EntityType.BLAZE);
+                firstNewBlaze.setVelocity(new Vector(1, 0, 1));
+
+                Entity secondNewBlaze = world.spawnEntity(entity.getLocation(), EntityType.BLAZE);
+                secondNewBlaze.setVelocity(new Vector(-1, 0, -1));
+
+                spawnRegistry.register(firstNewBlaze);
+                spawnRegistry.register(secondNewBlaze);
+
+                // if this blaze was marked lootless, mark the new blazes the same
+                if (entityModule.isLootLess(entity))
+                {
+                    entityModule.markLootLess((LivingEntity) firstNewBlaze);
+                    entityModule.markLootLess((LivingEntity) secondNewBlaze);
+                }
+            }
+        }
+    }
+
+    /**
+     * when a blaze or magma cube is damaged...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onEntityDamage(EntityDamageEvent event)
+    {
+        Entity entity = event.getEntity();
+        EntityType entityType = entity.getType();
+        World world = entity.getWorld();
+        if ((entityType != EntityType.MAGMA_CUBE && entityType != EntityType.BLAZE) || !rootC.isEnabledIn(world))
+            return;
+
+        // FEATURE: magma cubes become blazes when they take damage
+        if (entityType == EntityType.MAGMA_CUBE && rootC.getBoolean(RootNode.MAGMA_CUBES_BECOME_BLAZES_ON_DAMAGE) && !entity.isDead() && !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS))
+        {
+            entity.remove(); // remove magma cube
+            entity.getWorld().spawnEntity(entity.getLocation().add(0, 2, 0), EntityType.BLAZE); // replace with blaze
+            entity.getWorld().createExplosion(entity.getLocation(), 2F, true); // fiery explosion for effect
+        }
+
+        // FEATURE: blazes drop fire on hit
+        if (rootC.getBoolean(RootNode.BLAZES_DROP_FIRE_ON_DAMAGE))
+        {
+            if (entityType == EntityType.BLAZE)
+            {
+                Blaze blaze = (Blaze) entity;
+
+                if (blaze.getHealth() > blaze.getMaxHealth() / 2)
+                {
+
+                    Location location = entity.getLocation();
+                    long ground = ColumnProbe.findGround(world, location.getBlockX(), location.getBlockY() - 1, location.getBlockZ(), MAX_DROP_DEPTH);
+                    if (ground != ColumnProbe.NONE && PackedCoords.blockY(ground) > 0)
+                    {
+                        Block underBlock = world.getBlockAt(PackedCoords.blockX(ground), PackedCoords.blockY(ground), PackedCoords.blockZ(ground));
+                        Block block = underBlock.getRelative(BlockFace.UP);
+                        if (block.getType() == Material.AIR && !underBlock.isLiquid())
+                        {
+                            mutations.setType(block, Material.FIRE, (byte) 0, true, Material.AIR);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
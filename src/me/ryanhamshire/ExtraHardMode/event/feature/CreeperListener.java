@@ -0,0 +1,197 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.EffectModule;
+import me.ryanhamshire.ExtraHardMode.module.EntityModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import me.ryanhamshire.ExtraHardMode.task.CoolCreeperExplosion;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.entity.Arrow;
+import org.bukkit.entity.Creeper;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDamageEvent.DamageCause;
+import org.bukkit.event.entity.EntityDeathEvent;
+
+/**
+ * Creepers drop TNT, burning creepers go off with fireworks and charged
+ * creepers explode when they are hit.
+ */
+public class CreeperListener extends FeatureListener
+{
+    /**
+     * Effects and sounds
+     */
+    private final EffectModule effects;
+    /**
+     * Flags on entities
+     */
+    private final EntityModule entityModule;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin       - Plugin instance.
+     * @param rootC        - Configuration.
+     * @param random       - Random streams.
+     * @param permissions  - Cached permissions.
+     * @param effects      - Effect timelines.
+     * @param entityModule - Entity flags.
+     */
+    public CreeperListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions, EffectModule effects,
+                           EntityModule entityModule)
+    {
+        super(plugin, rootC, random, permissions);
+        this.effects = effects;
+        this.entityModule = entityModule;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getInt(RootNode.CREEPERS_DROP_TNT_ON_DEATH_PERCENT) > 0 || rootC.getBoolean(RootNode.FLAMING_CREEPERS_EXPLODE)
+                || (rootC.getBoolean(RootNode.CHARGED_CREEPERS_EXPLODE_ON_HIT) && !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS));
+    }
+
+    /**
+     * when a creeper dies...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        LivingEntity entity = event.getEntity();
+        World world = entity.getWorld();
+        if (entity.getType() != EntityType.CREEPER || !rootC.isEnabledIn(world))
+            return;
+
+        // FEATURE: creepers may drop activated TNT when they die
+        final int creeperDropTNTPercent = rootC.getInt(RootNode.CREEPERS_DROP_TNT_ON_DEATH_PERCENT);
+        final int creeperDropTntMaxY = rootC.getInt(RootNode.CREEPERS_DROP_TNT_ON_DEATH_MAX_Y);
+        if (creeperDropTNTPercent > 0)
+        {
+            if (randomModule.chance(RandomFeature.DEATHS, creeperDropTNTPercent) && creeperDropTntMaxY < entity.getLocation().getBlockY())
+            {
+                world.spawnEntity(entity.getLocation(), EntityType.PRIMED_TNT);
+                if (rootC.getBoolean(RootNode.SOUND_CREEPER_TNT))
+                    effects.playSound(entity.getLocation(), Sound.GHAST_SCREAM, 1, 35);
+            }
+        }
+
+        //FEATURE: a burning creeper will create a nice explosion + fireworks and will fly in the air
+        //Will only trigger if creeper died from fire not from a sword with fireaspect or bow
+        if (rootC.getBoolean(RootNode.FLAMING_CREEPERS_EXPLODE))
+        {
+            if (entity.getLastDamageCause().getCause().equals(DamageCause.FIRE)
+                    || entity.getLastDamageCause().getCause().equals(DamageCause.FIRE_TICK)
+                    || entity.getLastDamageCause().getCause().equals(DamageCause.LAVA))
+            {
+                Creeper creeper = (Creeper) entity;
+                CoolCreeperExplosion bigBoom = new CoolCreeperExplosion(creeper, plugin, effects);
+                bigBoom.run();
+            }
+        }
+    }
+
+    /**
+     * when a creeper is damaged...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onEntityDamage(EntityDamageEvent event)
+    {
+        Entity entity = event.getEntity();
+        World world = entity.getWorld();
+        if (entity.getType() != EntityType.CREEPER || entity.isDead() || !rootC.isEnabledIn(world))
+            return;
+
+        // FEATURE: charged creepers explode on hit
+        if (rootC.getBoolean(RootNode.CHARGED_CREEPERS_EXPLODE_ON_HIT) && !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS))
+        {
+            Creeper creeper = (Creeper) entity;
+            if (creeper.isPowered())
+            {
+                //Always explode when damaged by a player
+                if (event instanceof EntityDamageByEntityEvent)
+                {
+                    EntityDamageByEntityEvent damageByEntityEvent = (EntityDamageByEntityEvent) event;
+                    if (damageByEntityEvent.getDamager() != null && damageByEntityEvent.getDamager() instanceof Player)
+                    {   //Normal Damage from a player
+                        Player damager = (Player) damageByEntityEvent.getDamager();
+                        if (damager != null && permissions.has(damager, PermissionNode.BYPASS_CREEPERS))
+                            return;
+                    }
+                    else if (damageByEntityEvent.getDamager() != null && damageByEntityEvent.getDamager() instanceof Arrow)
+                    {   //Damaged by an arrow shot by a player
+                        Arrow arrow = (Arrow) damageByEntityEvent.getDamager();
+                        Player damager = (Player) arrow.getShooter();
+                        if (damager != null && permissions.has(damager, PermissionNode.BYPASS_CREEPERS))
+                            return;
+                    }
+                }
+                if (creeper.getTarget() == null)
+                {   //If not targetting a player this is an explosion we don't need. Trying to prevent unecessary world damage
+                    return;
+                }
+                entityModule.markLootLess((LivingEntity) entity);
+                entity.remove();
+                world.createExplosion(entity.getLocation(), 4F); // equal to a TNT blast
+            }
+        }
+
+        // FEATURE: flaming creepers explode
+        /*if (rootC.getInt(RootNode.FLAMING_CREEPERS_EXPLODE) && !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS))
+        {
+            if (entityType == EntityType.CREEPER && !entity.isDead())
+            {
+                Creeper creeper = (Creeper) entity;
+                entityModule.addFireDamage(entity);
+                if (entityModule.getFireDamage(entity) >= 1 && 2 >= entityModule.getFireDamage(entity))
+                {
+                    Vector vec = creeper.getVelocity();
+                    vec.setY(0.5);
+                    creeper.setVelocity(vec);
+                }
+                else if (entityModule.getFireDamage(entity) > 3)
+                {
+                    utils.fireWorkRandomColors(FireworkEffect.Type.CREEPER, creeper.getLocation());
+                }
+                else if (entityModule.getFireDamage(entity) < 0)
+                {
+                    entityModule.markLootLess((LivingEntity) entity);
+                    entity.remove();
+                    world.createExplosion(entity.getLocation(), 4F); // equal to a TNT blast
+                }
+            }
+        }*/
+    }
+}
@@ -0,0 +1,361 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.config.messages.MessageNode;
+import me.ryanhamshire.ExtraHardMode.module.BlockMutationModule;
+import me.ryanhamshire.ExtraHardMode.module.DragonFight;
+import me.ryanhamshire.ExtraHardMode.module.DragonModule;
+import me.ryanhamshire.ExtraHardMode.module.EffectModule;
+import me.ryanhamshire.ExtraHardMode.module.EntityIndexModule;
+import me.ryanhamshire.ExtraHardMode.module.EntityModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.module.SpawnRegistryModule;
+import me.ryanhamshire.ExtraHardMode.module.TemporaryBlockModule;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.EnderDragon;
+import org.bukkit.entity.Enderman;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.FallingBlock;
+import org.bukkit.entity.Fireball;
+import org.bukkit.entity.Item;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Projectile;
+import org.bukkit.entity.Zombie;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.entity.ItemSpawnEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.Vector;
+
+import java.util.Random;
+
+/**
+ * A harder fight against the ender dragon, and its prizes.
+ */
+public class DragonListener extends FeatureListener
+{
+    /**
+     * Queued block changes
+     */
+    private final BlockMutationModule mutations;
+    /**
+     * Dragon fights
+     */
+    private final DragonModule dragons;
+    /**
+     * Effects and sounds
+     */
+    private final EffectModule effects;
+    /**
+     * Entities by chunk
+     */
+    private final EntityIndexModule entityIndex;
+    /**
+     * Flags on entities
+     */
+    private final EntityModule entityModule;
+    /**
+     * Monsters spawned by the plugin
+     */
+    private final SpawnRegistryModule spawnRegistry;
+    /**
+     * Blocks removed after a while
+     */
+    private final TemporaryBlockModule temporaryBlocks;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin          - Plugin instance.
+     * @param rootC           - Configuration.
+     * @param random          - Random streams.
+     * @param permissions     - Cached permissions.
+     * @param mutations       - Queued block changes.
+     * @param dragons         - Dragon fights.
+     * @param effects         - Effect timelines.
+     * @param entityIndex     - Index of entities by chunk.
+     * @param entityModule    - Entity flags.
+     * @param spawnRegistry   - Registry of spawned monsters.
+     * @param temporaryBlocks - Temporary blocks.
+     */
+    public DragonListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions,
+                          BlockMutationModule mutations, DragonModule dragons, EffectModule effects, EntityIndexModule entityIndex,
+                          EntityModule entityModule, SpawnRegistryModule spawnRegistry, TemporaryBlockModule temporaryBlocks)
+    {
+        super(plugin, rootC, random, permissions);
+        this.mutations = mutations;
+        this.dragons = dragons;
+        this.effects = effects;
+        this.entityIndex = entityIndex;
+        this.entityModule = entityModule;
+        this.spawnRegistry = spawnRegistry;
+        this.temporaryBlocks = temporaryBlocks;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getBoolean(RootNode.ENDER_DRAGON_ADDITIONAL_ATTACKS) || rootC.getBoolean(RootNode.ENDER_DRAGON_DROPS_EGG)
+                || rootC.getBoolean(RootNode.ENDER_DRAGON_DROPS_VILLAGER_EGGS) || rootC.getBoolean(RootNode.ENDER_DRAGON_COMBAT_ANNOUNCEMENTS)
+                || rootC.getBoolean(RootNode.ENDER_DRAGON_NO_BUILDING);
+    }
+
+    /**
+     * the fireball-event of the dragon is used to spawn monsters
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.NORMAL)
+    public void onExplosion(EntityExplodeEvent event)
+    {
+        World world = event.getLocation().getWorld();
+        if (!rootC.isEnabledIn(world))
+            return;
+
+        Entity entity = event.getEntity();
+
+        // FEATURE: ender dragon fireballs may summon minions and/or set fires
+        if (entity != null && entity.getType() == EntityType.FIREBALL)
+        {
+            Fireball fireball = (Fireball) entity;
+            Entity spawnedMonster = null;
+            if (fireball.getShooter() != null && fireball.getShooter().getType() == EntityType.ENDER_DRAGON)
+            {
+                int random = randomModule.get(RandomFeature.DRAGON).nextInt(100);
+                if (random < 40)
+                {
+                    spawnedMonster = entity.getWorld().spawnEntity(entity.getLocation(), EntityType.BLAZE);
+
+                    // ring of fire, put out after a while in case it doesn't burn out
+                    for (int x1 = -2; x1 <= 2; x1++)
+                    {
+                        for (int z1 = -2; z1 <= 2; z1++)
+                        {
+                            for (int y1 = 2; y1 >= -2; y1--)
+                            {
+                                Block block = fireball.getLocation().add(x1, y1, z1).getBlock();
+                                Material underType = block.getRelative(BlockFace.DOWN).getType();
+                                if (block.getType() == Material.AIR && underType != Material.AIR && underType != Material.FIRE)
+                                {
+                                    mutations.setType(block, Material.FIRE, (byte) 0, true, Material.AIR);
+                                    temporaryBlocks.register(block, Material.FIRE, 20L * 15);
+                                }
+                            }
+                        }
+                    }
+
+                    // fountain of fire, a few blocks per tick
+                    final Location location = fireball.getLocation().add(0, 1, 0);
+                    EffectModule.Timeline fountain = new EffectModule.Timeline(location);
+                    for (int i = 0; i < 5; i++)
+                    {
+                        fountain.at(i, new Runnable()
+                        {
+                            @Override
+                            public void run()
+                            {
+                                for (int j = 0; j < 2; j++)
+                                {
+                                    FallingBlock fire = location.getWorld().spawnFallingBlock(location, Material.FIRE, (byte) 0);
+                                    Random dragonRandom = randomModule.get(RandomFeature.DRAGON);
+                                    Vector velocity = new Vector(dragonRandom.nextDouble(), dragonRandom.nextDouble(), dragonRandom.nextDouble());
+                                    if (velocity.getY() < 0)
+                                    {
+                                        velocity.setY(velocity.getY() * -1);
+                                    }
+                                    if (dragonRandom.nextBoolean())
+                                    {
+                                        velocity.setZ(velocity.getZ() * -1);
+                                    }
+                                    if (dragonRandom.nextBoolean())
+                                    {
+                                        velocity.setX(velocity.getX() * -1);
+                                    }
+                                    fire.setVelocity(velocity);
+                                }
+                            }
+                        });
+                    }
+                    effects.play(fountain);
+                }
+                else if (random < 70)
+                {
+                    for (int i = 0; i < 2; i++)
+                    {
+                        Zombie zombie = (Zombie) entity.getWorld().spawnEntity(entity.getLocation(), EntityType.ZOMBIE);
+                        zombie.setVillager(true);
+                        entityModule.markLootLess(zombie);
+                        dragons.addMinion(zombie);
+                        spawnRegistry.register(zombie);
+                    }
+                }
+                else
+                {
+                    spawnedMonster = entity.getWorld().spawnEntity(entity.getLocation(), EntityType.ENDERMAN);
+                }
+            }
+
+            if (spawnedMonster != null)
+            {
+                entityModule.markLootLess((LivingEntity) spawnedMonster);
+                dragons.addMinion(spawnedMonster);
+                spawnRegistry.register(spawnedMonster);
+            }
+        }
+    }
+
+    /**
+     * when the dragon dies...
+     * drops villager eggs and the dragon egg, announces who fought it
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        LivingEntity entity = event.getEntity();
+        World world = entity.getWorld();
+
+        if (!rootC.isEnabledIn(world))
+            return;
+
+        // FEATURE: ender dragon drops prizes on death
+        if (entity instanceof EnderDragon)
+        {
+            if (rootC.getBoolean(RootNode.ENDER_DRAGON_DROPS_VILLAGER_EGGS))
+            {
+                ItemStack itemStack = new ItemStack(Material.MONSTER_EGG, 2, (short) 120);
+                world.dropItemNaturally(entity.getLocation().add(10, 0, 0), itemStack);
+            }
+
+            if (rootC.getBoolean(RootNode.ENDER_DRAGON_DROPS_EGG))
+            {
+                world.dropItemNaturally(entity.getLocation().add(10, 0, 0), new ItemStack(Material.DRAGON_EGG));
+            }
+
+            DragonFight fight = dragons.endFight(world);
+
+            if (rootC.getBoolean(RootNode.ENDER_DRAGON_COMBAT_ANNOUNCEMENTS))
+            {
+                StringBuilder builder = new StringBuilder("The dragon has been defeated!  ( By: ");
+                if (fight != null)
+                {
+                    for (String name : fight.getParticipantNames())
+                    {
+                        builder.append(name).append(" ");
+                    }
+                }
+                builder.append(")");
+
+                plugin.getServer().broadcastMessage(builder.toString());
+            }
+
+            if (rootC.getBoolean(RootNode.ENDER_DRAGON_NO_BUILDING) && fight != null)
+            {
+                for (Player player : fight.getParticipantsInWorld())
+                {
+                    plugin.sendMessage(player, MessageNode.DRAGON_FOUNTAIN_TIP);
+                }
+            }
+        }
+    }
+
+    /**
+     * when the dragon is damaged...
+     * starts or joins the fight against it
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onEntityDamage(EntityDamageEvent event)
+    {
+        Entity entity = event.getEntity();
+        if (entity.getType() != EntityType.ENDER_DRAGON || !(event instanceof EntityDamageByEntityEvent))
+            return;
+        if (!rootC.isEnabledIn(entity.getWorld()))
+            return;
+
+        // FEATURE: the dragon has new attacks
+        if (rootC.getBoolean(RootNode.ENDER_DRAGON_ADDITIONAL_ATTACKS))
+        {
+            EntityDamageByEntityEvent damageByEntityEvent = (EntityDamageByEntityEvent) event;
+            Player damager = null;
+            if (damageByEntityEvent.getDamager() instanceof Player)
+            {
+                damager = (Player) damageByEntityEvent.getDamager();
+            }
+            else if (damageByEntityEvent.getDamager() instanceof Projectile)
+            {
+                Projectile projectile = (Projectile) damageByEntityEvent.getDamager();
+                if (projectile.getShooter() != null && projectile.getShooter() instanceof Player)
+                {
+                    damager = (Player) projectile.getShooter();
+                }
+            }
+
+            if (damager != null)
+            {
+                dragons.hit((EnderDragon) entity, damager);
+
+                Chunk chunk = damager.getLocation().getChunk();
+                for (Entity entity1 : entityIndex.getEntities(chunk, EntityType.ENDERMAN))
+                {
+                    Enderman enderman = (Enderman) entity1;
+                    enderman.setTarget(damager);
+                }
+            }
+        }
+    }
+
+    /**
+     * when an item spawns
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onItemSpawn(ItemSpawnEvent event)
+    {
+        // FEATURE: fountain effect from dragon fireball explosions sometimes
+        // causes fire to drop as an item. this is the fix for that.
+        Item item = event.getEntity();
+        World world = item.getWorld();
+        if (!rootC.isEnabledIn(world) || world.getEnvironment() != Environment.THE_END)
+            return;
+
+        if (item.getItemStack().getType() == Material.FIRE)
+        {
+            event.setCancelled(true);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.EffectModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.service.ColumnProbe;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Enderman;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.entity.EntityDamageEvent.DamageCause;
+import org.bukkit.event.entity.EntityTeleportEvent;
+import org.bukkit.event.player.PlayerTeleportEvent.TeleportCause;
+
+/**
+ * Endermen take the players they fight along when they teleport.
+ */
+public class EndermanListener extends FeatureListener
+{
+    /**
+     * How far up players are moved to find room after an enderman teleport.
+     */
+    private static final int MAX_TELEPORT_RISE = 32;
+    /**
+     * Effects and sounds
+     */
+    private final EffectModule effects;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin      - Plugin instance.
+     * @param rootC       - Configuration.
+     * @param random      - Random streams.
+     * @param permissions - Cached permissions.
+     * @param effects     - Effect timelines.
+     */
+    public EndermanListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions, EffectModule effects)
+    {
+        super(plugin, rootC, random, permissions);
+        this.effects = effects;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getBoolean(RootNode.IMPROVED_ENDERMAN_TELEPORTATION);
+    }
+
+    /**
+     * when an entity (not a player) teleports...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityTeleport(EntityTeleportEvent event)
+    {
+        Entity entity = event.getEntity();
+        World world = entity.getWorld();
+
+        if (!(entity instanceof Enderman) || !rootC.isEnabledIn(world))
+            return;
+        if (world.getEnvironment() != Environment.NORMAL)
+            return;
+
+        Enderman enderman = (Enderman) entity;
+
+        // ignore endermen which aren't fighting players
+        if (enderman.getTarget() == null || !(enderman.getTarget() instanceof Player))
+            return;
+
+        // ignore endermen which are taking damage from the environment (to
+        // avoid rapid teleportation due to rain or suffocation)
+        if (enderman.getLastDamageCause() != null && enderman.getLastDamageCause().getCause() != DamageCause.ENTITY_ATTACK)
+            return;
+
+        // ignore endermen which are in caves (standing on stone)
+        if (enderman.getLocation().getBlock().getRelative(BlockFace.DOWN).getType() == Material.STONE)
+            return;
+
+        Player player = (Player) enderman.getTarget();
+
+        // ignore when player is in a different world from the enderman
+        if (!player.getWorld().equals(enderman.getWorld()))
+            return;
+
+        // half the time, teleport the player instead
+        if (randomModule.chance(RandomFeature.COMBAT, 50))
+        {
+            event.setCancelled(true);
+            int distanceSquared = (int) player.getLocation().distanceSquared(enderman.getLocation());
+
+            // play sound at old location
+            effects.playSound(player.getLocation(), Sound.ENDERMAN_TELEPORT, 1, 1);
+            Block destinationBlock;
+
+            // if the player is far away
+            if (distanceSquared > 75)
+            {
+                // have the enderman swap places with the player
+                destinationBlock = enderman.getLocation().getBlock();
+                enderman.teleport(player.getLocation());
+            }
+
+            // otherwise if the player is close
+            else
+            {
+                // teleport the player to the enderman's destination
+                destinationBlock = event.getTo().getBlock();
+            }
+
+            // find room for the player above the destination, or put him on the surface
+            int x = destinationBlock.getX();
+            int z = destinationBlock.getZ();
+            long destination = ColumnProbe.findHeadroom(world, x, destinationBlock.getY(), z, MAX_TELEPORT_RISE);
+            if (destination == ColumnProbe.NONE)
+            {
+                destination = ColumnProbe.surface(world, x, z);
+            }
+
+            player.teleport(new Location(world, x, PackedCoords.blockY(destination), z), TeleportCause.ENDER_PEARL);
+
+            // play sound at new location
+            effects.playSound(player.getLocation(), Sound.ENDERMAN_TELEPORT, 1, 1);
+        }
+    }
+}
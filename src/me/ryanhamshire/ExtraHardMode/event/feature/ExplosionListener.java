@@ -0,0 +1,201 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.BlockModule;
+import me.ryanhamshire.ExtraHardMode.module.BlockMutationModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.module.SchedulerModule;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import me.ryanhamshire.ExtraHardMode.task.CreateExplosionTask;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Creeper;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Fireball;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.CraftItemEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
+
+/**
+ * Better TNT, hardened stone and bigger explosions of ghasts and creepers.
+ */
+public class ExplosionListener extends FeatureListener
+{
+    /**
+     * Falling blocks
+     */
+    private final BlockModule blockModule;
+    /**
+     * Queued block changes
+     */
+    private final BlockMutationModule mutations;
+    /**
+     * Delayed tasks
+     */
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin      - Plugin instance.
+     * @param rootC       - Configuration.
+     * @param random      - Random streams.
+     * @param permissions - Cached permissions.
+     * @param blockModule - Falling blocks.
+     * @param mutations   - Queued block changes.
+     * @param scheduler   - Delayed tasks.
+     */
+    public ExplosionListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions,
+                             BlockModule blockModule, BlockMutationModule mutations, SchedulerModule scheduler)
+    {
+        super(plugin, rootC, random, permissions);
+        this.blockModule = blockModule;
+        this.mutations = mutations;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getBoolean(RootNode.BETTER_TNT) || rootC.getInt(RootNode.MORE_TNT_NUMBER) > 1 || rootC.getBoolean(RootNode.SUPER_HARD_STONE)
+                || !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS);
+    }
+
+    /**
+     * Handles all of EHM's custom explosions,
+     * this includes bigger random tnt explosions,
+     * TODO fix too extreme ghasts
+     * bigger ghast explosion
+     * turn stone into cobble in hardened stone mode
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.NORMAL)
+    public void onExplosion(EntityExplodeEvent event)
+    {
+        World world = event.getLocation().getWorld();
+        if (!rootC.isEnabledIn(world))
+            return;
+
+        Entity entity = event.getEntity();
+
+        // FEATURE: bigger TNT booms, all explosions have 100% block yield
+        if (rootC.getBoolean(RootNode.BETTER_TNT))
+        {
+            event.setYield(1);
+
+            if (entity != null && entity.getType() == EntityType.PRIMED_TNT && !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS))
+            {
+                // create more explosions nearby
+                long serverTime = world.getFullTime();
+                int random1 = (int) (serverTime + entity.getLocation().getBlockZ()) % 8;
+                int random2 = (int) (serverTime + entity.getLocation().getBlockX()) % 8;
+
+                Location[] locations = new Location[4];
+
+                locations[0] = entity.getLocation().add(random1, 1, random2);
+                locations[1] = entity.getLocation().add(-random2, 0, random1 / 2);
+                locations[2] = entity.getLocation().add(-random1 / 2, -1, -random2);
+                locations[3] = entity.getLocation().add(random1 / 2, 0, -random2 / 2);
+
+                for (int i = 0; i < locations.length; i++)
+                {
+                    CreateExplosionTask task = new CreateExplosionTask(plugin, locations[i], 6F);
+                    scheduler.schedule(TaskCategory.EXPLOSION, task, 3L * (i + 1), world.getName(), null);
+                }
+            }
+        }
+
+        // FEATURE: in hardened stone mode, TNT only softens stone to cobble
+        if (rootC.getBoolean(RootNode.SUPER_HARD_STONE))
+        {
+            List<Block> blocks = event.blockList();
+            for (int i = 0; i < blocks.size(); i++)
+            {
+                Block block = blocks.get(i);
+                if (block.getType() == Material.STONE)
+                {
+                    // stone and cobble are both solid, neighbours don't care
+                    mutations.setType(block, Material.COBBLESTONE, (byte) 0, false, Material.STONE);
+                    blocks.remove(i--);
+                }
+
+                // FEATURE: more falling blocks
+                blockModule.physicsCheck(block, 0, true);
+            }
+        }
+
+        // FEATURE: more powerful ghast fireballs
+        if (entity != null && entity instanceof Fireball && !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS))
+        {
+            Fireball fireball = (Fireball) entity;
+            if (fireball.getShooter() != null && fireball.getShooter().getType() == EntityType.GHAST)
+            {
+                event.setCancelled(true);
+                // same as vanilla TNT, plus fire
+                entity.getWorld().createExplosion(entity.getLocation(), 4F, true);
+            }
+        }
+
+        // FEATURE: bigger creeper explosions (for more-frequent cave-ins)
+        if (entity != null && entity instanceof Creeper && !rootC.getBoolean(RootNode.DISABLE_EXPLOSIONS))
+        {
+            event.setCancelled(true);
+            // same as vanilla TNT
+            entity.getWorld().createExplosion(entity.getLocation(), 3F, false);
+        }
+    }
+
+    /**
+     * when a player crafts something...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onItemCrafted(CraftItemEvent event)
+    {
+        HumanEntity entity = event.getWhoClicked();
+        if (entity == null || !(entity instanceof Player))
+            return;
+
+        Player player = (Player) entity;
+        World world = player.getWorld();
+
+        if (!rootC.isEnabledIn(world) || permissions.has(player, PermissionNode.BYPASS))
+            return;
+
+        // FEATURE: extra TNT from the TNT recipe
+        if (rootC.getInt(RootNode.MORE_TNT_NUMBER) > 1 && event.getRecipe().getResult().getType() == Material.TNT)
+        {
+            player.getInventory().addItem(new ItemStack(Material.TNT, rootC.getInt(RootNode.MORE_TNT_NUMBER)));
+        }
+    }
+}
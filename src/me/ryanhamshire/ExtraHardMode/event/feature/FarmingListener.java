@@ -0,0 +1,133 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.config.messages.MessageNode;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import org.bukkit.DyeColor;
+import org.bukkit.Material;
+import org.bukkit.entity.Animals;
+import org.bukkit.entity.Chicken;
+import org.bukkit.entity.Cow;
+import org.bukkit.entity.HumanEntity;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Pig;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.event.entity.SheepRegrowWoolEvent;
+import org.bukkit.event.inventory.CraftItemEvent;
+
+/**
+ * Farms are less rewarding: no seeds from melons and pumpkins, white sheep
+ * and no exp from animals.
+ */
+public class FarmingListener extends FeatureListener
+{
+    /**
+     * Constructor.
+     *
+     * @param plugin      - Plugin instance.
+     * @param rootC       - Configuration.
+     * @param random      - Random streams.
+     * @param permissions - Cached permissions.
+     */
+    public FarmingListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions)
+    {
+        super(plugin, rootC, random, permissions);
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getBoolean(RootNode.CANT_CRAFT_MELONSEEDS) || rootC.getBoolean(RootNode.SHEEP_REGROW_WHITE_WOOL)
+                || rootC.getBoolean(RootNode.ANIMAL_EXP_NERF);
+    }
+
+    /**
+     * when a player crafts something...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onItemCrafted(CraftItemEvent event)
+    {
+        HumanEntity entity = event.getWhoClicked();
+        if (entity == null || !(entity instanceof Player))
+            return;
+
+        Player player = (Player) entity;
+
+        if (!rootC.isEnabledIn(player.getWorld()) || permissions.has(player, PermissionNode.BYPASS))
+            return;
+
+        Material result = event.getRecipe().getResult().getType();
+
+        // FEATURE: no crafting melon seeds
+        if (rootC.getBoolean(RootNode.CANT_CRAFT_MELONSEEDS) && (result == Material.MELON_SEEDS || result == Material.PUMPKIN_SEEDS))
+        {
+            event.setCancelled(true);
+            plugin.sendMessage(player, MessageNode.NO_CRAFTING_MELON_SEEDS);
+        }
+    }
+
+    /**
+     * when a sheep regrows its wool...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onSheepRegrowWool(SheepRegrowWoolEvent event)
+    {
+        if (!rootC.isEnabledIn(event.getEntity().getWorld()))
+            return;
+
+        // FEATURE: sheep are all white, and may be dyed only temporarily
+        if (rootC.getBoolean(RootNode.SHEEP_REGROW_WHITE_WOOL))
+        {
+            event.getEntity().setColor(DyeColor.WHITE);
+        }
+    }
+
+    /**
+     * when an animal dies...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        LivingEntity entity = event.getEntity();
+        if (!(entity instanceof Animals) || !rootC.isEnabledIn(entity.getWorld()))
+            return;
+
+        // the grinder inhibitor leaves these alone, and their exp with them
+        if (rootC.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS) && (entity instanceof Chicken || entity instanceof Cow || entity instanceof Pig))
+            return;
+
+        // FEATURE: animals don't drop experience (because they're easy to "farm")
+        if (rootC.getBoolean(RootNode.ANIMAL_EXP_NERF))
+        {
+            event.setDroppedExp(0);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import org.bukkit.event.Listener;
+
+/**
+ * Handles the events of a group of related features. The listener is only
+ * registered while at least one of its features is switched on, so the
+ * events of disabled features aren't delivered to EHM at all.
+ */
+public abstract class FeatureListener implements Listener
+{
+    /**
+     * Plugin instance.
+     */
+    protected final ExtraHardMode plugin;
+    /**
+     * Config instance
+     */
+    protected final RootConfig rootC;
+    /**
+     * Random streams of the features
+     */
+    protected final RandomModule randomModule;
+    /**
+     * Cached permissions of players
+     */
+    protected final PermissionModule permissions;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin      - Plugin instance.
+     * @param rootC       - Configuration.
+     * @param random      - Random streams.
+     * @param permissions - Cached permissions.
+     */
+    public FeatureListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions)
+    {
+        this.plugin = plugin;
+        this.rootC = rootC;
+        this.randomModule = random;
+        this.permissions = permissions;
+    }
+
+    /**
+     * Check if any of the features handled here is switched on.
+     *
+     * @return True if the listener has to be registered.
+     */
+    public abstract boolean isEnabled();
+}
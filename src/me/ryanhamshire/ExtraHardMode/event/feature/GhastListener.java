@@ -0,0 +1,119 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import org.bukkit.entity.Arrow;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Ghast;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
+
+/**
+ * Ghasts deflect arrows and drop extra loot and exp.
+ */
+public class GhastListener extends FeatureListener
+{
+    /**
+     * Constructor.
+     *
+     * @param plugin      - Plugin instance.
+     * @param rootC       - Configuration.
+     * @param random      - Random streams.
+     * @param permissions - Cached permissions.
+     */
+    public GhastListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions)
+    {
+        super(plugin, rootC, random, permissions);
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getBoolean(RootNode.GHASTS_DEFLECT_ARROWS);
+    }
+
+    /**
+     * when a ghast dies...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        LivingEntity entity = event.getEntity();
+        if (!(entity instanceof Ghast) || !rootC.isEnabledIn(entity.getWorld()))
+            return;
+
+        // FEATURE: ghasts deflect arrows and drop extra loot and exp
+        event.setDroppedExp(event.getDroppedExp() * 10);
+        List<ItemStack> itemDrops = event.getDrops();
+        for (ItemStack itemDrop : itemDrops)
+        {
+            itemDrop.setAmount(itemDrop.getAmount() * 10);
+        }
+    }
+
+    /**
+     * when a ghast is damaged...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onEntityDamage(EntityDamageEvent event)
+    {
+        Entity entity = event.getEntity();
+
+        // only ghasts, and only if damaged by another entity (as opposed to
+        // environmental damage)
+        if (!(entity instanceof Ghast) || !(event instanceof EntityDamageByEntityEvent) || !rootC.isEnabledIn(entity.getWorld()))
+            return;
+
+        // FEATURE: ghasts deflect arrows and drop extra loot
+        Entity damageSource = ((EntityDamageByEntityEvent) event).getDamager();
+
+        // only arrows
+        if (damageSource instanceof Arrow)
+        {
+            // who shot it?
+            Arrow arrow = (Arrow) damageSource;
+            if (arrow.getShooter() != null && arrow.getShooter() instanceof Player)
+            {
+                // check permissions when it's shot by a player
+                Player player = (Player) arrow.getShooter();
+                event.setCancelled(!permissions.has(player, PermissionNode.BYPASS));
+            }
+            else
+            {
+                // otherwise always deflect
+                event.setCancelled(true);
+            }
+        }
+    }
+}
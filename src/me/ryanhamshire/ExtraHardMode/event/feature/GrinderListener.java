@@ -0,0 +1,201 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.EntityModule;
+import me.ryanhamshire.ExtraHardMode.module.GrinderModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Blaze;
+import org.bukkit.entity.Chicken;
+import org.bukkit.entity.Cow;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Enderman;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Pig;
+import org.bukkit.entity.Skeleton;
+import org.bukkit.entity.Skeleton.SkeletonType;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.CreatureSpawnEvent.SpawnReason;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDamageEvent.DamageCause;
+import org.bukkit.event.entity.EntityDeathEvent;
+
+/**
+ * Inhibited monster grinders: monsters from spawners or which take
+ * environmental damage don't drop loot or exp.
+ */
+public class GrinderListener extends FeatureListener
+{
+    /**
+     * Flags on entities
+     */
+    private final EntityModule entityModule;
+    /**
+     * Monster grinder checks
+     */
+    private final GrinderModule grinder;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin       - Plugin instance.
+     * @param rootC        - Configuration.
+     * @param random       - Random streams.
+     * @param permissions  - Cached permissions.
+     * @param entityModule - Entity flags.
+     * @param grinder      - Grinder detection.
+     */
+    public GrinderListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions,
+                           EntityModule entityModule, GrinderModule grinder)
+    {
+        super(plugin, rootC, random, permissions);
+        this.entityModule = entityModule;
+        this.grinder = grinder;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS);
+    }
+
+    /**
+     * when a creature spawns...
+     * runs first so the other spawn features see which monsters are lootless
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onEntitySpawn(CreatureSpawnEvent event)
+    {
+        Location location = event.getLocation();
+        World world = location.getWorld();
+        if (!rootC.isEnabledIn(world))
+            return;
+
+        // avoid infinite loops
+        SpawnReason reason = event.getSpawnReason();
+        if (reason == SpawnReason.CUSTOM)
+            return;
+
+        LivingEntity entity = event.getEntity();
+
+        //We don't know how to handle ghosts. (Mo Creatures)
+        if (entity.getType().equals(EntityType.UNKNOWN))
+            return;
+
+        // FEATURE: inhibited monster grinders/farms
+        // spawners and spawn eggs always spawn a monster, but the monster
+        // doesn't drop any loot
+        if (reason == SpawnReason.SPAWNER && (rootC.getInt(RootNode.BONUS_NETHER_BLAZE_SPAWN_PERCENT) > 0 || !(entity instanceof Blaze)))
+        {
+            entityModule.markLootLess(entity);
+        }
+
+        // otherwise, consider environment to stop monsters from spawning in
+        // non-natural places
+        else if (grinder.isUnnaturalSpawn(entity, location, reason))
+        {
+            event.setCancelled(true);
+        }
+    }
+
+    /**
+     * when an entity dies...
+     * runs after the other death features added their drops, so all of them are taken away
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.HIGH)
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        LivingEntity entity = event.getEntity();
+        if (!rootC.isEnabledIn(entity.getWorld()))
+            return;
+
+        // FEATURE: monsters which take environmental damage or spawn from
+        // spawners don't drop loot and exp (monster grinder inhibitor)
+        if (entity.getType() == EntityType.PLAYER || entity.getType() == EntityType.SQUID)
+            return;
+
+        //animals aren't affected by antigrinder
+        if (entity instanceof Chicken || entity instanceof Cow || entity instanceof Pig)
+            return;
+
+        boolean noLoot = false;
+        if (entityModule.isLootLess(entity))
+        {
+            noLoot = true;
+        }
+        else if (entity instanceof Skeleton)
+        {
+            Skeleton skeleton = (Skeleton) entity;
+            if (skeleton.getSkeletonType() == SkeletonType.WITHER && skeleton.getEyeLocation().getBlock().getType() != Material.AIR)
+            {
+                noLoot = true;
+            }
+        }
+        else if (entity instanceof Enderman)
+        {
+            if (entity.getEyeLocation().getBlock().getType() != Material.AIR)
+            {
+                noLoot = true;
+            }
+        }
+        else
+        {
+            // water and reachability checks, skipped in known grinders, drops may be held back until the search is done
+            noLoot = grinder.isGrinderDeath(entity, entity.getKiller());
+        }
+
+        if (noLoot)
+        {
+            event.setDroppedExp(0);
+            event.getDrops().clear();
+        }
+    }
+
+    /**
+     * when an entity is damaged
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onEntityDamage(EntityDamageEvent event)
+    {
+        Entity entity = event.getEntity();
+        if (!(entity instanceof LivingEntity) || !rootC.isEnabledIn(entity.getWorld()))
+            return;
+
+        // FEATURE: monsters which take environmental damage don't drop loot or
+        // experience (monster grinder inhibitor)
+        DamageCause damageCause = event.getCause();
+        if (damageCause != DamageCause.ENTITY_ATTACK && damageCause != DamageCause.PROJECTILE && damageCause != DamageCause.BLOCK_EXPLOSION)
+        {
+            entityModule.addEnvironmentalDamage((LivingEntity) entity, event.getDamage());
+        }
+    }
+}
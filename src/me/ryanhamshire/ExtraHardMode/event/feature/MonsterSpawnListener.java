@@ -0,0 +1,213 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.EntityModule;
+import me.ryanhamshire.ExtraHardMode.module.GrinderModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.Creeper;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.MagmaCube;
+import org.bukkit.entity.Monster;
+import org.bukkit.entity.PigZombie;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.CreatureSpawnEvent;
+import org.bukkit.event.entity.CreatureSpawnEvent.SpawnReason;
+
+/**
+ * More and nastier monsters: charged creepers, witches, spiders and blazes
+ * instead of common monsters, extra monsters underground and angry pig zombies.
+ */
+public class MonsterSpawnListener extends FeatureListener
+{
+    /**
+     * Flags on entities
+     */
+    private final EntityModule entityModule;
+    /**
+     * Monster grinder checks
+     */
+    private final GrinderModule grinder;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin       - Plugin instance.
+     * @param rootC        - Configuration.
+     * @param random       - Random streams.
+     * @param permissions  - Cached permissions.
+     * @param entityModule - Entity flags.
+     * @param grinder      - Grinder detection.
+     */
+    public MonsterSpawnListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions,
+                                EntityModule entityModule, GrinderModule grinder)
+    {
+        super(plugin, rootC, random, permissions);
+        this.entityModule = entityModule;
+        this.grinder = grinder;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getInt(RootNode.CHARGED_CREEPER_SPAWN_PERCENT) > 0 || rootC.getInt(RootNode.BONUS_WITCH_SPAWN_PERCENT) > 0
+                || rootC.getInt(RootNode.BONUS_UNDERGROUND_SPIDER_SPAWN_PERCENT) > 0 || rootC.getInt(RootNode.NEAR_BEDROCK_BLAZE_SPAWN_PERCENT) > 0
+                || rootC.getInt(RootNode.BONUS_NETHER_BLAZE_SPAWN_PERCENT) > 0 || rootC.getInt(RootNode.MONSTER_SPAWNS_IN_LIGHT_MAX_Y) > 0
+                || rootC.getBoolean(RootNode.ALWAYS_ANGRY_PIG_ZOMBIES);
+    }
+
+    /**
+     * when a creature spawns...
+     * More Monsters underground
+     * Charged Creepers
+     * More spiders underground
+     * Blazes on bedrocklevel
+     * more Blazes in Nether
+     * always angry pigzombies
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(priority = EventPriority.LOW)
+    public void onEntitySpawn(CreatureSpawnEvent event)
+    {
+        Location location = event.getLocation();
+        World world = location.getWorld();
+        if (!rootC.isEnabledIn(world))
+            return;
+
+        // avoid infinite loops
+        if (event.getSpawnReason() == SpawnReason.CUSTOM)
+            return;
+
+        LivingEntity entity = event.getEntity();
+
+        EntityType entityType = entity.getType();
+
+        //We don't know how to handle ghosts. (Mo Creatures)
+        if (entityType.equals(EntityType.UNKNOWN))
+            return;
+
+        // the grinder inhibitor cancelled this spawn
+        if (rootC.getBoolean(RootNode.INHIBIT_MONSTER_GRINDERS) && grinder.isUnnaturalSpawn(entity, location, event.getSpawnReason()))
+            return;
+
+        // FEATURE: charged creeper spawns
+        if (entityType == EntityType.CREEPER)
+        {
+            if (randomModule.chance(RandomFeature.MONSTER_SPAWNS, rootC.getInt(RootNode.CHARGED_CREEPER_SPAWN_PERCENT)))
+            {
+                ((Creeper) entity).setPowered(true);
+            }
+        }
+
+        // FEATURE: more witches above ground (on grass)
+        if (entityType == EntityType.ZOMBIE && world.getEnvironment() == Environment.NORMAL
+                && entity.getLocation().getBlock().getRelative(BlockFace.DOWN).getType() == Material.GRASS)
+        {
+            if (randomModule.chance(RandomFeature.MONSTER_SPAWNS, rootC.getInt(RootNode.BONUS_WITCH_SPAWN_PERCENT)))
+            {
+                event.setCancelled(true);
+                entityType = EntityType.WITCH;
+                world.spawnEntity(location, entityType);
+            }
+        }
+
+        // FEATURE: more spiders underground
+        if (entityType == EntityType.ZOMBIE && world.getEnvironment() == Environment.NORMAL && location.getBlockY() < world.getSeaLevel() - 5)
+        {
+            if (randomModule.chance(RandomFeature.MONSTER_SPAWNS, rootC.getInt(RootNode.BONUS_UNDERGROUND_SPIDER_SPAWN_PERCENT)))
+            {
+                event.setCancelled(true);
+                entityType = EntityType.SPIDER;
+                world.spawnEntity(location, entityType);
+            }
+        }
+
+        // FEATURE: blazes near bedrock
+        else if (entityType == EntityType.SKELETON && world.getEnvironment() == Environment.NORMAL && location.getBlockY() < 20)
+        {
+            if (randomModule.chance(RandomFeature.MONSTER_SPAWNS, rootC.getInt(RootNode.NEAR_BEDROCK_BLAZE_SPAWN_PERCENT)))
+            {
+                event.setCancelled(true);
+                entityType = EntityType.BLAZE;
+                world.spawnEntity(location, entityType);
+            }
+        }
+
+        // FEATURE: more blazes
+        else if (entityType == EntityType.PIG_ZOMBIE)
+        {
+            if (randomModule.chance(RandomFeature.MONSTER_SPAWNS, rootC.getInt(RootNode.BONUS_NETHER_BLAZE_SPAWN_PERCENT)))
+            {
+                event.setCancelled(true);
+                entityType = EntityType.BLAZE;
+
+                // FEATURE: magma cubes spawn with blazes
+                if (randomModule.chance(RandomFeature.MONSTER_SPAWNS, rootC.getInt(RootNode.BONUS_NETHER_BLAZE_SPAWN_PERCENT)))
+                {
+                    MagmaCube cube = (MagmaCube) (world.spawnEntity(location, EntityType.MAGMA_CUBE));
+                    cube.setSize(1);
+                }
+                world.spawnEntity(location, entityType);
+            }
+        }
+
+        // FEATURE: extra monster spawns underground
+        final int maxY = rootC.getInt(RootNode.MONSTER_SPAWNS_IN_LIGHT_MAX_Y);
+        final int multiplier = rootC.getInt(RootNode.MORE_MONSTERS_MULTIPLIER);
+        if (maxY > 0)
+        {
+            if (world.getEnvironment() == Environment.NORMAL && event.getLocation() != null
+                    && event.getLocation().getBlockY() < maxY && entityType != null && entity instanceof Monster)
+            {
+                if (!entityType.equals(EntityType.SILVERFISH)) //no multiple silverfish per block
+                {
+                    for (int i = 1; i < multiplier; i++)
+                    {
+                        Entity newEntity = world.spawnEntity(event.getLocation(), entityType);
+                        if (entityModule.isLootLess(entity))
+                        {
+                            entityModule.markLootLess((LivingEntity) newEntity);
+                        }
+                    }
+                }
+            }
+        }
+
+        // FEATURE: always-angry pig zombies
+        if (rootC.getBoolean(RootNode.ALWAYS_ANGRY_PIG_ZOMBIES))
+        {
+            if (entity instanceof PigZombie)
+            {
+                PigZombie pigZombie = (PigZombie) entity;
+                pigZombie.setAnger(Integer.MAX_VALUE);
+            }
+        }
+    }
+}
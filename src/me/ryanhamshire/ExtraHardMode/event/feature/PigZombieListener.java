@@ -0,0 +1,81 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.PigZombie;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.inventory.ItemStack;
+
+/**
+ * Pig zombies are the source of nether wart.
+ */
+public class PigZombieListener extends FeatureListener
+{
+    /**
+     * Constructor.
+     *
+     * @param plugin      - Plugin instance.
+     * @param rootC       - Configuration.
+     * @param random      - Random streams.
+     * @param permissions - Cached permissions.
+     */
+    public PigZombieListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions)
+    {
+        super(plugin, rootC, random, permissions);
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getBoolean(RootNode.FORTRESS_PIGS_DROP_WART);
+    }
+
+    /**
+     * when a pig zombie dies...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        LivingEntity entity = event.getEntity();
+        World world = entity.getWorld();
+        if (!(entity instanceof PigZombie) || !rootC.isEnabledIn(world))
+            return;
+
+        // FEATURE: pig zombies drop nether wart when slain in nether fortresses
+        if (world.getEnvironment().equals(Environment.NETHER))
+        {
+            Block underBlock = entity.getLocation().getBlock().getRelative(BlockFace.DOWN);
+            if (underBlock.getType() == Material.NETHER_BRICK)
+            {
+                event.getDrops().add(new ItemStack(Material.NETHER_STALK));
+            }
+        }
+    }
+}
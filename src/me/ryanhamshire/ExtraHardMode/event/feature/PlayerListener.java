@@ -0,0 +1,134 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDamageEvent.DamageCause;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+import java.util.List;
+
+/**
+ * Players lose items when they die and get hurt more by their environment.
+ */
+public class PlayerListener extends FeatureListener
+{
+    /**
+     * Constructor.
+     *
+     * @param plugin      - Plugin instance.
+     * @param rootC       - Configuration.
+     * @param random      - Random streams.
+     * @param permissions - Cached permissions.
+     */
+    public PlayerListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions)
+    {
+        super(plugin, rootC, random, permissions);
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getInt(RootNode.PLAYER_DEATH_ITEM_STACKS_FORFEIT_PERCENT) > 0 || rootC.getBoolean(RootNode.ENHANCED_ENVIRONMENTAL_DAMAGE);
+    }
+
+    /**
+     * when a player dies...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        if (!(event.getEntity() instanceof Player))
+            return;
+
+        Player player = (Player) event.getEntity();
+        if (!rootC.isEnabledIn(player.getWorld()))
+            return;
+
+        // FEATURE: some portion of player inventory is permanently lost on death
+        if (!permissions.has(player, PermissionNode.BYPASS))
+        {
+            List<ItemStack> drops = event.getDrops();
+            int numberOfStacksToRemove = (int) (drops.size() * (rootC.getInt(RootNode.PLAYER_DEATH_ITEM_STACKS_FORFEIT_PERCENT) / 100f));
+            for (int i = 0; i < numberOfStacksToRemove && drops.size() > 0; i++)
+            {
+                int indexOfStackToRemove = randomModule.get(RandomFeature.DEATHS).nextInt(drops.size());
+                drops.remove(indexOfStackToRemove);
+            }
+        }
+    }
+
+    /**
+     * when a player is damaged...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onEntityDamage(EntityDamageEvent event)
+    {
+        Entity entity = event.getEntity();
+        if (!(entity instanceof Player) || !rootC.isEnabledIn(entity.getWorld()))
+            return;
+
+        // FEATURE: extra damage and effects from environmental damage
+        if (rootC.getBoolean(RootNode.ENHANCED_ENVIRONMENTAL_DAMAGE))
+        {
+            Player player = (Player) entity;
+            if (!permissions.has(player, PermissionNode.BYPASS))
+            {
+                DamageCause cause = event.getCause();
+
+                if (event.getDamage() > 2 && (cause == DamageCause.BLOCK_EXPLOSION || cause == DamageCause.ENTITY_EXPLOSION))
+                {
+                    player.addPotionEffect(new PotionEffect(PotionEffectType.CONFUSION, 20 * 15, 3));
+                }
+                else if (cause == DamageCause.FALL)
+                {
+                    player.addPotionEffect(new PotionEffect(PotionEffectType.SLOW, 20 * event.getDamage(), 4));
+                    event.setDamage(event.getDamage() * 2);
+                }
+                else if (cause == DamageCause.SUFFOCATION)
+                {
+                    event.setDamage(event.getDamage() * 5);
+                }
+                else if (cause == DamageCause.LAVA)
+                {
+                    event.setDamage(event.getDamage() * 2);
+                }
+                else if (cause == DamageCause.FIRE_TICK)
+                {
+                    player.addPotionEffect(new PotionEffect(PotionEffectType.BLINDNESS, 20, 1));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityChangeBlockEvent;
+
+/**
+ * Silverfish can't hide in blocks. The check is the other way around than
+ * the name of the option says, false stops them from entering blocks.
+ */
+public class SilverfishListener extends FeatureListener
+{
+    /**
+     * Constructor.
+     *
+     * @param plugin      - Plugin instance.
+     * @param rootC       - Configuration.
+     * @param random      - Random streams.
+     * @param permissions - Cached permissions.
+     */
+    public SilverfishListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions)
+    {
+        super(plugin, rootC, random, permissions);
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return !rootC.getBoolean(RootNode.SILVERFISH_CANT_ENTER_BLOCKS);
+    }
+
+    /**
+     * when an entity tries to change a block (does not include player block
+     * changes)
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOW)
+    public void onEntityChangeBlock(EntityChangeBlockEvent event)
+    {
+        if (event.getEntity().getType() != EntityType.SILVERFISH || event.getTo() != Material.MONSTER_EGGS)
+            return;
+        if (!rootC.isEnabledIn(event.getBlock().getWorld()))
+            return;
+
+        // FEATURE: silverfish can't enter blocks
+        if (!rootC.getBoolean(RootNode.SILVERFISH_CANT_ENTER_BLOCKS))
+        {
+            event.setCancelled(true);
+        }
+    }
+}
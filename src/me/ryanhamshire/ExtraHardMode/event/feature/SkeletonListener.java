@@ -0,0 +1,174 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.EntityModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.module.SpawnRegistryModule;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import org.bukkit.World;
+import org.bukkit.entity.Arrow;
+import org.bukkit.entity.Creature;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Skeleton;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.ProjectileLaunchEvent;
+
+/**
+ * Skeletons shoot silverfish, deflect arrows and knock back their targets.
+ */
+public class SkeletonListener extends FeatureListener
+{
+    /**
+     * Flags on entities
+     */
+    private final EntityModule entityModule;
+    /**
+     * Monsters spawned by the plugin
+     */
+    private final SpawnRegistryModule spawnRegistry;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin        - Plugin instance.
+     * @param rootC         - Configuration.
+     * @param random        - Random streams.
+     * @param permissions   - Cached permissions.
+     * @param entityModule  - Entity flags.
+     * @param spawnRegistry - Registry of spawned monsters.
+     */
+    public SkeletonListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions,
+                            EntityModule entityModule, SpawnRegistryModule spawnRegistry)
+    {
+        super(plugin, rootC, random, permissions);
+        this.entityModule = entityModule;
+        this.spawnRegistry = spawnRegistry;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getInt(RootNode.SKELETONS_DEFLECT_ARROWS) > 0 || rootC.getInt(RootNode.SKELETONS_KNOCK_BACK_PERCENT) > 0;
+    }
+
+    /**
+     * when an entity shoots a bow...
+     * Skeletons: silverfish
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onShootProjectile(ProjectileLaunchEvent event)
+    {
+        if (event.getEntity() == null || event.getEntityType() != EntityType.ARROW)
+            return;
+
+        World world = event.getEntity().getWorld();
+        if (!rootC.isEnabledIn(world))
+            return;
+
+        // FEATURE: skeletons sometimes release silverfish to attack their targets
+        Arrow arrow = (Arrow) event.getEntity();
+
+        LivingEntity shooter = arrow.getShooter();
+        if (shooter != null && shooter.getType() == EntityType.SKELETON && randomModule.chance(RandomFeature.COMBAT, rootC.getInt(RootNode.SKELETONS_DEFLECT_ARROWS)))
+        {
+            Skeleton skeleton = (Skeleton) shooter;
+            // cancel arrow fire
+            event.setCancelled(true);
+
+            // replace with silverfish, quarter velocity of arrow, wants to attack
+            // same target as skeleton
+            Creature silverFish = (Creature) world.spawnEntity(skeleton.getLocation().add(0, 1.5, 0), EntityType.SILVERFISH);
+            silverFish.setVelocity(arrow.getVelocity().multiply(.25));
+            silverFish.setTarget(skeleton.getTarget());
+            entityModule.markLootLess(silverFish); // this silverfish doesn't
+            // drop loot
+            spawnRegistry.register(silverFish);
+        }
+    }
+
+    /**
+     * when an entity is hit by an arrow...
+     * Skeletons: arrows pass through them, knockback-arrows
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onEntityDamage(EntityDamageEvent event)
+    {
+        if (!(event instanceof EntityDamageByEntityEvent))
+            return;
+
+        EntityDamageByEntityEvent damageByEntityEvent = (EntityDamageByEntityEvent) event;
+        if (!(damageByEntityEvent.getDamager() instanceof Arrow))
+            return;
+
+        Entity entity = event.getEntity();
+        World world = entity.getWorld();
+        if (!rootC.isEnabledIn(world))
+            return;
+
+        Arrow arrow = (Arrow) damageByEntityEvent.getDamager();
+
+        // FEATURE: arrows pass through skeletons
+        final int deflect = rootC.getInt(RootNode.SKELETONS_DEFLECT_ARROWS);
+        if (entity.getType() == EntityType.SKELETON && deflect > 0)
+        {
+            // percent chance
+            if (randomModule.chance(RandomFeature.COMBAT, deflect))
+            {
+
+                // cancel the damage
+                event.setCancelled(true);
+
+                // teleport the arrow a single block farther along its flight
+                // path
+                // note that .6 and 12 were the unexplained recommended values
+                // for speed and spread, reflectively, in the bukkit wiki
+                arrow.remove();
+                world.spawnArrow(arrow.getLocation().add((arrow.getVelocity().normalize()).multiply(2)), arrow.getVelocity(), .6f, 12f);
+            }
+        }
+
+        // FEATURE: skeletons can knock back
+        final int knockBackPercent = rootC.getInt(RootNode.SKELETONS_KNOCK_BACK_PERCENT);
+        if (knockBackPercent > 0)
+        {
+            if (arrow.getShooter() != null && arrow.getShooter() instanceof Skeleton)
+            {
+                if (randomModule.chance(RandomFeature.COMBAT, knockBackPercent))
+                {
+                    // cut damage in half
+                    event.setDamage(event.getDamage() / 2);
+
+                    // knock back target with half the arrow's velocity
+                    entity.setVelocity(arrow.getVelocity());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.module.TemporaryBlockModule;
+import me.ryanhamshire.ExtraHardMode.service.ColumnProbe;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Spider;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.entity.EntityDeathEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spiders leave webs behind as a combat obstacle.
+ */
+public class SpiderListener extends FeatureListener
+{
+    /**
+     * How far down webs from spiders may land.
+     */
+    private static final int MAX_DROP_DEPTH = 32;
+    /**
+     * Blocks removed after a while
+     */
+    private final TemporaryBlockModule temporaryBlocks;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin          - Plugin instance.
+     * @param rootC           - Configuration.
+     * @param random          - Random streams.
+     * @param permissions     - Cached permissions.
+     * @param temporaryBlocks - Temporary blocks.
+     */
+    public SpiderListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions,
+                          TemporaryBlockModule temporaryBlocks)
+    {
+        super(plugin, rootC, random, permissions);
+        this.temporaryBlocks = temporaryBlocks;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getBoolean(RootNode.SPIDERS_DROP_WEB_ON_DEATH);
+    }
+
+    /**
+     * when a spider dies...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        LivingEntity entity = event.getEntity();
+        World world = entity.getWorld();
+        if (!(entity instanceof Spider) || !rootC.isEnabledIn(world))
+            return;
+
+        // FEATURE: spiders drop web on death
+        // random web placement
+        long serverTime = world.getFullTime();
+        int random1 = (int) (serverTime + entity.getLocation().getBlockZ()) % 9;
+        int random2 = (int) (serverTime + entity.getLocation().getBlockX()) % 9;
+
+        Location[] locations = new Location[4];
+
+        locations[0] = entity.getLocation().add(random1, 0, random2);
+        locations[1] = entity.getLocation().add(-random2, 0, random1 / 2);
+        locations[2] = entity.getLocation().add(-random1 / 2, 0, -random2);
+        locations[3] = entity.getLocation().add(random1 / 2, 0, -random2 / 2);
+
+        List<Block> changedBlocks = new ArrayList<Block>();
+        for (Location location : locations)
+        {
+            Block block = location.getBlock();
+
+            // don't replace anything solid with web
+            if (block.getType() != Material.AIR)
+                continue;
+
+            // only place web on the ground, not hanging up in the air
+            long ground = ColumnProbe.findGround(world, block.getX(), block.getY() - 1, block.getZ(), MAX_DROP_DEPTH);
+            if (ground == ColumnProbe.NONE)
+                continue;
+            block = world.getBlockAt(PackedCoords.blockX(ground), PackedCoords.blockY(ground), PackedCoords.blockZ(ground));
+
+            // don't place web over fluids or stack webs
+            if (!block.isLiquid() && block.getType() != Material.WEB)
+            {
+                block = block.getRelative(BlockFace.UP);
+
+                // don't place next to cactus, because it will break the
+                // cactus
+                Block[] adjacentBlocks = new Block[]{block.getRelative(BlockFace.EAST), block.getRelative(BlockFace.WEST),
+                        block.getRelative(BlockFace.NORTH), block.getRelative(BlockFace.SOUTH)};
+
+                boolean nextToCactus = false;
+                for (Block adjacentBlock : adjacentBlocks)
+                {
+                    if (adjacentBlock.getType() == Material.CACTUS)
+                    {
+                        nextToCactus = true;
+                        break;
+                    }
+                }
+
+                if (!nextToCactus)
+                {
+                    block.setType(Material.WEB);
+                    changedBlocks.add(block);
+                }
+            }
+        }
+
+        // any webs placed above sea level will be automatically cleaned up
+        // after a short time
+        if (entity.getLocation().getBlockY() >= entity.getLocation().getWorld().getSeaLevel() - 5)
+        {
+            for (Block web : changedBlocks)
+            {
+                temporaryBlocks.register(web, Material.WEB, 20L * 30);
+            }
+        }
+    }
+}
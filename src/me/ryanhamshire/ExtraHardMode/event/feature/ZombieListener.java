@@ -0,0 +1,150 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.event.feature;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.EntityModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.module.SchedulerModule;
+import me.ryanhamshire.ExtraHardMode.module.SpawnRegistryModule;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import me.ryanhamshire.ExtraHardMode.task.RespawnZombieTask;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.Zombie;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.potion.PotionEffect;
+import org.bukkit.potion.PotionEffectType;
+
+/**
+ * Zombies reanimate after they died and slow down the players they hit.
+ */
+public class ZombieListener extends FeatureListener
+{
+    /**
+     * Flags on entities
+     */
+    private final EntityModule entityModule;
+    /**
+     * Delayed tasks
+     */
+    private final SchedulerModule scheduler;
+    /**
+     * Monsters spawned by the plugin
+     */
+    private final SpawnRegistryModule spawnRegistry;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin        - Plugin instance.
+     * @param rootC         - Configuration.
+     * @param random        - Random streams.
+     * @param permissions   - Cached permissions.
+     * @param entityModule  - Entity flags.
+     * @param scheduler     - Delayed tasks.
+     * @param spawnRegistry - Registry of spawned monsters.
+     */
+    public ZombieListener(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions,
+                          EntityModule entityModule, SchedulerModule scheduler, SpawnRegistryModule spawnRegistry)
+    {
+        super(plugin, rootC, random, permissions);
+        this.entityModule = entityModule;
+        this.scheduler = scheduler;
+        this.spawnRegistry = spawnRegistry;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return rootC.getInt(RootNode.ZOMBIES_REANIMATE_PERCENT) > 0 || rootC.getBoolean(RootNode.ZOMBIES_DEBILITATE_PLAYERS);
+    }
+
+    /**
+     * when a zombie dies...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler
+    public void onEntityDeath(EntityDeathEvent event)
+    {
+        LivingEntity entity = event.getEntity();
+        World world = entity.getWorld();
+        if (entity.getType() != EntityType.ZOMBIE || !rootC.isEnabledIn(world))
+            return;
+
+        // FEATURE: zombies may reanimate if not on fire when they die
+        final int zombiesReanimatePercent = rootC.getInt(RootNode.ZOMBIES_REANIMATE_PERCENT);
+        if (zombiesReanimatePercent > 0)
+        {
+            Zombie zombie = (Zombie) entity;
+
+            if (!zombie.isVillager() && entity.getFireTicks() < 1 && randomModule.chance(RandomFeature.DEATHS, zombiesReanimatePercent))
+            {
+                Player playerTarget = null;
+                Entity target = zombie.getTarget();
+                if (target instanceof Player)
+                {
+                    playerTarget = (Player) target;
+                }
+
+                RespawnZombieTask task = new RespawnZombieTask(plugin, entityModule, spawnRegistry, entity.getLocation(), playerTarget);
+                int respawnSeconds = randomModule.get(RandomFeature.DEATHS).nextInt(6) + 3; // 3-8
+                // seconds
+                scheduler.schedule(TaskCategory.ZOMBIE_RESPAWN, task, 20L * respawnSeconds, world.getName(), null);
+                // second
+            }
+        }
+    }
+
+    /**
+     * when a player is hit by a zombie...
+     *
+     * @param event - Event that occurred.
+     */
+    @EventHandler(ignoreCancelled = true, priority = EventPriority.LOWEST)
+    public void onEntityDamage(EntityDamageEvent event)
+    {
+        Entity entity = event.getEntity();
+        if (!(entity instanceof Player) || !(event instanceof EntityDamageByEntityEvent) || !rootC.isEnabledIn(entity.getWorld()))
+            return;
+
+        // FEATURE: zombies can apply a debilitating effect
+        if (rootC.getBoolean(RootNode.ZOMBIES_DEBILITATE_PLAYERS))
+        {
+            if (((EntityDamageByEntityEvent) event).getDamager() instanceof Zombie)
+            {
+                Player player = (Player) entity;
+                if (!permissions.has(player, PermissionNode.BYPASS))
+                {
+                    player.addPotionEffect(new PotionEffect(PotionEffectType.SLOW, 20 * 10, 3));
+                }
+            }
+        }
+    }
+}
@@ -18,12 +18,13 @@ import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import me.ryanhamshire.ExtraHardMode.config.RootConfig;
 import me.ryanhamshire.ExtraHardMode.config.RootNode;
 import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
 import me.ryanhamshire.ExtraHardMode.task.BlockPhysicsCheckTask;
+import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.block.Biome;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 import org.bukkit.entity.FallingBlock;
 
 import java.util.ArrayList;
@@ -40,17 +41,40 @@ public class BlockModule extends EHMModule
      */
     private final List<Material> fallingBlocks = new ArrayList<Material>();
 
-    private RootConfig rootC;
+    private final RootConfig rootC;
+
+    private final SchedulerModule scheduler;
+
+    private final RandomModule random;
+
+    private final GrinderModule grinder;
+
+    /**
+     * What decides whether crops die, by column.
+     */
+    private final CropContextCache cropContext = new CropContextCache();
+
+    /**
+     * Growths per chunk, to hold back growth in huge farms.
+     */
+    private final GrowthGovernor growthGovernor = new GrowthGovernor();
 
     /**
      * Constructor.
      *
-     * @param plugin - plugin instance.
+     * @param plugin    - plugin instance.
+     * @param rootC     - Configuration.
+     * @param scheduler - Scheduler for the physics checks.
+     * @param random    - Random streams.
+     * @param grinder   - Learns about blocks which start to fall.
      */
-    public BlockModule(ExtraHardMode plugin)
+    public BlockModule(ExtraHardMode plugin, RootConfig rootC, SchedulerModule scheduler, RandomModule random, GrinderModule grinder)
     {
         super(plugin);
-        rootC = plugin.getModuleForClass(RootConfig.class);
+        this.rootC = rootC;
+        this.scheduler = scheduler;
+        this.random = random;
+        this.grinder = grinder;
     }
 
     /**
@@ -62,12 +86,8 @@ public class BlockModule extends EHMModule
      */
     public void physicsCheck(Block block, int recursionCount, boolean skipCenterBlock)
     {
-        int id = plugin.getServer().getScheduler().scheduleSyncDelayedTask(plugin, new BlockPhysicsCheckTask(plugin, block, recursionCount), 5L);
-        // check if it was scheduled. If not, notify in console.
-        if (id == -1)
-        {
-            plugin.getLogger().severe("Failed schedule BlockPhysicsCheck task!");
-        }
+        scheduler.schedule(TaskCategory.PHYSICS, new BlockPhysicsCheckTask(plugin, this, block, recursionCount), 5L,
+                block.getWorld().getName(), null);
     }
 
     /**
@@ -89,6 +109,7 @@ public class BlockModule extends EHMModule
 
         // remove original block
         block.setType(Material.AIR);
+        grinder.blockChanged(block.getWorld(), block.getX(), block.getY(), block.getZ());
     }
 
     /**
@@ -100,14 +121,8 @@ public class BlockModule extends EHMModule
      */
     public boolean plantDies(Block block, byte newDataValue)
     {
-        World world = block.getWorld();
-        if (!rootC.getStringList(RootNode.WORLDS).contains(world.getName()) || !rootC.getBoolean(RootNode.WEAK_FOOD_CROPS))
-        {
-            return false;
-        }
-
         // not evaluated until the plant is nearly full grown
-        if (newDataValue <= (byte) 6)
+        if (newDataValue <= (byte) 6 || !rootC.getBoolean(RootNode.WEAK_FOOD_CROPS) || !rootC.isEnabledIn(block.getWorld()))
         {
             return false;
         }
@@ -116,38 +131,29 @@ public class BlockModule extends EHMModule
         if (material == Material.CROPS || material == Material.CARROT || material == Material.POTATO)
         {
             int deathProbability = rootC.getInt(RootNode.WEAK_FOOD_CROPS_LOSS_RATE);
+            int context = cropContext.get(block, System.currentTimeMillis());
 
             // plants in the dark always die
-            if (block.getLightFromSky() < 10)
+            if ((context & CropContextCache.DARK) != 0)
             {
                 deathProbability = 100;
             }
             else
             {
-                Biome biome = block.getBiome();
-
                 // the desert environment is very rough on crops
-                if (biome == Biome.DESERT || biome == Biome.DESERT_HILLS
-                        && rootC.getBoolean(RootNode.ARID_DESSERTS))
+                if ((context & CropContextCache.DESERT) != 0 && rootC.getBoolean(RootNode.ARID_DESSERTS))
                 {
                     deathProbability += 50;
                 }
 
                 // unwatered crops are more likely to die
-                Block belowBlock = block.getRelative(BlockFace.DOWN);
-                byte moistureLevel = 0;
-                if (belowBlock.getType() == Material.SOIL)
-                {
-                    moistureLevel = belowBlock.getData();
-                }
-
-                if (moistureLevel == 0)
+                if ((context & CropContextCache.DRY) != 0)
                 {
                     deathProbability += 25;
                 }
             }
 
-            if (plugin.random(deathProbability))
+            if (random.chance(RandomFeature.FARMING, deathProbability))
             {
                 return true;
             }
@@ -156,6 +162,61 @@ public class BlockModule extends EHMModule
         return false;
     }
 
+    /**
+     * Check if a plant may grow, or if its chunk has grown too much during the last minute.
+     *
+     * @param block - Block which grows.
+     * @return False if the growth should be held back.
+     */
+    public boolean allowGrowth(Block block)
+    {
+        int limit = rootC.getInt(RootNode.GROWTH_LIMIT_PER_CHUNK_PER_MINUTE);
+        return limit == 0 || growthGovernor.allow(block, limit, System.currentTimeMillis(), random.get(RandomFeature.FARMING));
+    }
+
+    /**
+     * Get the chunks in which plants grew the most during the last minute.
+     *
+     * @param count - Number of chunks.
+     * @return Chunks, the most growths first. Empty if growth isn't limited.
+     */
+    public List<FarmChunk> getHottestFarms(int count)
+    {
+        return growthGovernor.getHottest(count, System.currentTimeMillis());
+    }
+
+    /**
+     * A block changed, light and soil of crops in its column have to be read again.
+     *
+     * @param block - Block which changed.
+     */
+    public void blockChanged(Block block)
+    {
+        cropContext.invalidate(block.getWorld(), block.getX(), block.getZ());
+    }
+
+    /**
+     * Forget what is known about crops in a chunk which unloads.
+     *
+     * @param chunk - Chunk.
+     */
+    public void forgetChunk(Chunk chunk)
+    {
+        cropContext.forgetChunk(chunk);
+        growthGovernor.forgetChunk(chunk);
+    }
+
+    /**
+     * Forget what is known about crops in a world which unloads.
+     *
+     * @param world - World.
+     */
+    public void forgetWorld(World world)
+    {
+        cropContext.forgetWorld(world);
+        growthGovernor.forgetWorld(world);
+    }
+
     /**
      * Get the list of falling blocks.
      *
@@ -188,5 +249,34 @@ public class BlockModule extends EHMModule
     public void closing()
     {
         fallingBlocks.clear();
+        cropContext.clear();
+        growthGovernor.clear();
+    }
+
+    /**
+     * Growth in a chunk during the last minute.
+     */
+    public static class FarmChunk
+    {
+        public final String world;
+        public final int x;
+        public final int z;
+        /**
+         * Plants which grew or tried to grow.
+         */
+        public final int growths;
+        /**
+         * Growths held back since the chunk started growing.
+         */
+        public final long heldBack;
+
+        FarmChunk(String world, int x, int z, int growths, long heldBack)
+        {
+            this.world = world;
+            this.x = x;
+            this.z = z;
+            this.growths = growths;
+            this.heldBack = heldBack;
+        }
     }
 }
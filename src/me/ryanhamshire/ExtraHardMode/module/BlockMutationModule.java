@@ -0,0 +1,291 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the block changes EHM makes during a tick and applies them at
+ * once, chunk by chunk, instead of changing every block right where it's
+ * decided.
+ * <p/>
+ * Several changes of the same block within a tick are merged, only the last
+ * one is applied, so the block and its neighbours are updated once. Callers
+ * which know that a change can't make a neighbour fall, break or flow can
+ * skip physics for it. A change may expect the block to still be of a
+ * material, it's dropped if the block changed in the meantime.
+ * <p/>
+ * Changes are applied in the next tick, or later if the scheduler ran out of
+ * time in that tick, so code reading the block right after queueing a change
+ * still sees the old block.
+ */
+public class BlockMutationModule extends EHMModule
+{
+    /**
+     * Type id of a change which only sets the data value.
+     */
+    private static final int KEEP_TYPE = -1;
+
+    /**
+     * Pending changes by world name, packed chunk coordinates and packed block coordinates.
+     */
+    private final Map<String, Map<Long, Map<Long, Mutation>>> pending = new HashMap<String, Map<Long, Map<Long, Mutation>>>();
+
+    private int lastTickApplied = 0;
+    private int maxTickApplied = 0;
+    private long applied = 0;
+    private long merged = 0;
+    private long dropped = 0;
+
+    private long flushTask = -1;
+
+    private final GrinderModule grinder;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin    - plugin instance.
+     * @param grinder   - Learns about changed blocks.
+     * @param scheduler - Runs the repeating task.
+     */
+    public BlockMutationModule(ExtraHardMode plugin, GrinderModule grinder, SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.grinder = grinder;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Change the type and data value of a block, if it still is of the expected type.
+     *
+     * @param block    - Block to change.
+     * @param material - New type.
+     * @param data     - New data value.
+     * @param physics  - False if neighbours can't be affected by the change.
+     * @param expected - Type the block must have when the change is applied, null for any.
+     */
+    public void setType(Block block, Material material, byte data, boolean physics, Material expected)
+    {
+        queue(block, material.getId(), data, physics, expected);
+    }
+
+    /**
+     * Change the data value of a block, if it still is of the expected type.
+     *
+     * @param block    - Block to change.
+     * @param data     - New data value.
+     * @param physics  - False if neighbours can't be affected by the change.
+     * @param expected - Type the block must have when the change is applied, null for any.
+     */
+    public void setData(Block block, byte data, boolean physics, Material expected)
+    {
+        queue(block, KEEP_TYPE, data, physics, expected);
+    }
+
+    private void queue(Block block, int typeId, byte data, boolean physics, Material expected)
+    {
+        String world = block.getWorld().getName();
+        Map<Long, Map<Long, Mutation>> chunks = pending.get(world);
+        if (chunks == null)
+        {
+            chunks = new HashMap<Long, Map<Long, Mutation>>();
+            pending.put(world, chunks);
+        }
+        Long chunkKey = PackedCoords.chunkKey(block.getX() >> 4, block.getZ() >> 4);
+        Map<Long, Mutation> blocks = chunks.get(chunkKey);
+        if (blocks == null)
+        {
+            blocks = new LinkedHashMap<Long, Mutation>();
+            chunks.put(chunkKey, blocks);
+        }
+        Long blockKey = PackedCoords.blockKey(block.getX(), block.getY(), block.getZ());
+        Mutation previous = blocks.get(blockKey);
+        Mutation mutation = new Mutation(typeId, data, physics, expected);
+        if (previous != null)
+        {
+            merged++;
+            // a data change keeps the type of the change before it
+            if (typeId == KEEP_TYPE && previous.typeId != KEEP_TYPE)
+            {
+                mutation = new Mutation(previous.typeId, data, physics || previous.physics, previous.expected);
+            }
+            else
+            {
+                // the earlier expectation is checked against the block as it is now
+                mutation = new Mutation(typeId, data, physics || previous.physics, previous.expected);
+            }
+        }
+        blocks.put(blockKey, mutation);
+    }
+
+    /**
+     * Apply all pending changes, chunk by chunk. Changes in chunks which
+     * unloaded in the meantime are dropped.
+     */
+    private void flush()
+    {
+        int count = 0;
+        for (Map.Entry<String, Map<Long, Map<Long, Mutation>>> worldEntry : pending.entrySet())
+        {
+            World world = plugin.getServer().getWorld(worldEntry.getKey());
+            for (Map.Entry<Long, Map<Long, Mutation>> chunkEntry : worldEntry.getValue().entrySet())
+            {
+                long chunkKey = chunkEntry.getKey();
+                if (world == null || !world.isChunkLoaded(PackedCoords.chunkX(chunkKey), PackedCoords.chunkZ(chunkKey)))
+                {
+                    dropped += chunkEntry.getValue().size();
+                    continue;
+                }
+                for (Map.Entry<Long, Mutation> blockEntry : chunkEntry.getValue().entrySet())
+                {
+                    long blockKey = blockEntry.getKey();
+                    Mutation mutation = blockEntry.getValue();
+                    Block block = world.getBlockAt(PackedCoords.blockX(blockKey), PackedCoords.blockY(blockKey), PackedCoords.blockZ(blockKey));
+                    if (mutation.expected != null && block.getType() != mutation.expected)
+                    {
+                        dropped++;
+                        continue;
+                    }
+                    if (mutation.typeId == KEEP_TYPE)
+                    {
+                        block.setData(mutation.data, mutation.physics);
+                    }
+                    else
+                    {
+                        block.setTypeIdAndData(mutation.typeId, mutation.data, mutation.physics);
+                    }
+                    grinder.blockChanged(world, block.getX(), block.getY(), block.getZ());
+                    count++;
+                }
+            }
+        }
+        pending.clear();
+        lastTickApplied = count;
+        maxTickApplied = Math.max(maxTickApplied, count);
+        applied += count;
+    }
+
+    /**
+     * Get the number of changes applied in the last tick.
+     *
+     * @return Number of changes.
+     */
+    public int getLastTickApplied()
+    {
+        return lastTickApplied;
+    }
+
+    /**
+     * Get the highest number of changes applied in a single tick.
+     *
+     * @return Number of changes.
+     */
+    public int getMaxTickApplied()
+    {
+        return maxTickApplied;
+    }
+
+    /**
+     * Get the number of changes applied since the module started.
+     *
+     * @return Number of changes.
+     */
+    public long getApplied()
+    {
+        return applied;
+    }
+
+    /**
+     * Get the number of changes which replaced an earlier change of the same block in the same tick.
+     *
+     * @return Number of changes.
+     */
+    public long getMerged()
+    {
+        return merged;
+    }
+
+    /**
+     * Get the number of changes which were dropped, because the chunk unloaded or the block changed.
+     *
+     * @return Number of changes.
+     */
+    public long getDropped()
+    {
+        return dropped;
+    }
+
+    @Override
+    public void starting()
+    {
+        flushTask = scheduler.scheduleRepeating(TaskCategory.TICK, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                flush();
+            }
+        }, 1L, 1L);
+    }
+
+    @Override
+    public void closing()
+    {
+        if (flushTask != -1)
+        {
+            scheduler.cancel(flushTask);
+            flushTask = -1;
+        }
+        // changes which were decided are still made
+        flush();
+    }
+
+    /**
+     * A pending change of a block.
+     */
+    private static final class Mutation
+    {
+        /**
+         * New type id, KEEP_TYPE to only set the data value.
+         */
+        final int typeId;
+        final byte data;
+        final boolean physics;
+        /**
+         * Type the block must have, null for any.
+         */
+        final Material expected;
+
+        Mutation(int typeId, byte data, boolean physics, Material expected)
+        {
+            this.typeId = typeId;
+            this.data = data;
+            this.physics = physics;
+            this.expected = expected;
+        }
+    }
+}
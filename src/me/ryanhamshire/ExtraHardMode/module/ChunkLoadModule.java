@@ -0,0 +1,217 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.PigZombie;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Work for loaded chunks. Chunks are queued when they load and processed a
+ * limited number per tick, so a burst of chunk loads doesn't stall a single
+ * tick. A chunk which is queued twice is processed once, a chunk which unloads
+ * before its turn is skipped.
+ */
+public class ChunkLoadModule extends EHMModule
+{
+    /**
+     * Chunks waiting to be processed, in the order they loaded.
+     */
+    private final Set<QueuedChunk> queue = new LinkedHashSet<QueuedChunk>();
+
+    private final RootConfig rootC;
+
+    private final EntityIndexModule index;
+
+    private final SpawnRegistryModule spawnRegistry;
+
+    /**
+     * Handle of the task draining the queue, -1 while the queue is empty.
+     */
+    private long drainTask = -1;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin        - plugin instance.
+     * @param rootC         - Configuration.
+     * @param index         - Index of entities by chunk.
+     * @param spawnRegistry - Registry of spawned monsters.
+     * @param scheduler     - Runs the repeating task.
+     */
+    public ChunkLoadModule(ExtraHardMode plugin, RootConfig rootC, EntityIndexModule index, SpawnRegistryModule spawnRegistry,
+                           SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.rootC = rootC;
+        this.index = index;
+        this.spawnRegistry = spawnRegistry;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Queue a chunk which just loaded.
+     *
+     * @param chunk - Loaded chunk.
+     */
+    public void queue(Chunk chunk)
+    {
+        queue.add(new QueuedChunk(chunk.getWorld().getName(), PackedCoords.chunkKey(chunk.getX(), chunk.getZ())));
+        if (drainTask == -1)
+        {
+            drainTask = scheduler.scheduleRepeating(TaskCategory.TICK, new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    drain();
+                }
+            }, 1L, 1L);
+        }
+    }
+
+    /**
+     * Remove a chunk which unloads from the queue.
+     *
+     * @param chunk - Unloading chunk.
+     */
+    public void dequeue(Chunk chunk)
+    {
+        queue.remove(new QueuedChunk(chunk.getWorld().getName(), PackedCoords.chunkKey(chunk.getX(), chunk.getZ())));
+    }
+
+    /**
+     * Number of chunks waiting to be processed.
+     *
+     * @return Size of the queue.
+     */
+    public int getQueueSize()
+    {
+        return queue.size();
+    }
+
+    /**
+     * Process the next chunks of the queue, stop the task once it's empty.
+     */
+    private void drain()
+    {
+        int budget = rootC.getInt(RootNode.CHUNK_LOADS_PER_TICK);
+        Iterator<QueuedChunk> it = queue.iterator();
+        while (budget > 0 && it.hasNext())
+        {
+            QueuedChunk queued = it.next();
+            it.remove();
+            World world = plugin.getServer().getWorld(queued.world);
+            int x = PackedCoords.chunkX(queued.key);
+            int z = PackedCoords.chunkZ(queued.key);
+            if (world != null && world.isChunkLoaded(x, z))
+            {
+                process(world.getChunkAt(x, z));
+                budget--;
+            }
+        }
+        if (queue.isEmpty())
+        {
+            scheduler.cancel(drainTask);
+            drainTask = -1;
+        }
+    }
+
+    /**
+     * Do the work for a loaded chunk.
+     *
+     * @param chunk - Loaded chunk.
+     */
+    private void process(Chunk chunk)
+    {
+        index.indexChunk(chunk);
+        spawnRegistry.attachChunk(chunk);
+
+        if (!rootC.isEnabledIn(chunk.getWorld()))
+            return;
+
+        // FEATURE: always-angry pig zombies
+        if (rootC.getBoolean(RootNode.ALWAYS_ANGRY_PIG_ZOMBIES))
+        {
+            for (Entity entity : index.getEntities(chunk, EntityType.PIG_ZOMBIE))
+            {
+                PigZombie pigZombie = (PigZombie) entity;
+                pigZombie.setAnger(Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    @Override
+    public void starting()
+    {
+    }
+
+    @Override
+    public void closing()
+    {
+        if (drainTask != -1)
+        {
+            scheduler.cancel(drainTask);
+            drainTask = -1;
+        }
+        queue.clear();
+    }
+
+    /**
+     * A queued chunk, identified by world name and packed chunk coordinates.
+     */
+    private static class QueuedChunk
+    {
+        final String world;
+        final long key;
+
+        QueuedChunk(String world, long key)
+        {
+            this.world = world;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof QueuedChunk))
+            {
+                return false;
+            }
+            QueuedChunk other = (QueuedChunk) obj;
+            return key == other.key && world.equals(other.world);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * world.hashCode() + (int) (key ^ (key >>> 32));
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Biome;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers what decides whether a crop dies, per column of a chunk: if it
+ * is a desert, if the crop gets enough sky light and if its soil is wet.
+ * Reading light, biome and soil for every grow event adds up on big farms.
+ * <p/>
+ * A column is read again when it was changed, when a crop at another height
+ * grows in it or after a while, because soil dries and gets wet without an
+ * event telling about it.
+ */
+final class CropContextCache
+{
+    /**
+     * The crop grows in a desert.
+     */
+    static final int DESERT = 1;
+    /**
+     * The crop doesn't get enough sky light.
+     */
+    static final int DARK = 2;
+    /**
+     * The soil of the crop isn't wet.
+     */
+    static final int DRY = 4;
+
+    /**
+     * Milliseconds a column is trusted.
+     */
+    private static final long MAX_AGE_MILLIS = 60 * 1000;
+    /**
+     * Height of a column which has to be read.
+     */
+    private static final int UNKNOWN = -1;
+
+    /**
+     * Columns by world name and packed chunk coordinates.
+     */
+    private final Map<String, Map<Long, Columns>> worlds = new HashMap<String, Map<Long, Columns>>();
+
+    /**
+     * Get the context of a crop, reading it if it isn't known or outdated.
+     *
+     * @param block - Block of the crop.
+     * @param now   - Current time in milliseconds.
+     * @return Flags DESERT, DARK and DRY.
+     */
+    int get(Block block, long now)
+    {
+        String worldName = block.getWorld().getName();
+        Map<Long, Columns> chunks = worlds.get(worldName);
+        if (chunks == null)
+        {
+            chunks = new HashMap<Long, Columns>();
+            worlds.put(worldName, chunks);
+        }
+        Long chunkKey = PackedCoords.chunkKey(block.getX() >> 4, block.getZ() >> 4);
+        Columns columns = chunks.get(chunkKey);
+        if (columns == null)
+        {
+            columns = new Columns();
+            chunks.put(chunkKey, columns);
+        }
+        int column = column(block.getX(), block.getZ());
+        if (columns.y[column] != block.getY() || now - columns.readAt[column] > MAX_AGE_MILLIS)
+        {
+            columns.y[column] = block.getY();
+            columns.readAt[column] = now;
+            columns.flags[column] = read(block);
+        }
+        return columns.flags[column];
+    }
+
+    /**
+     * Forget the column of a block which changed.
+     *
+     * @param world - World of the block.
+     * @param x     - X coordinate.
+     * @param z     - Z coordinate.
+     */
+    void invalidate(World world, int x, int z)
+    {
+        Map<Long, Columns> chunks = worlds.get(world.getName());
+        if (chunks == null)
+        {
+            return;
+        }
+        Columns columns = chunks.get(PackedCoords.chunkKey(x >> 4, z >> 4));
+        if (columns != null)
+        {
+            columns.y[column(x, z)] = UNKNOWN;
+        }
+    }
+
+    void forgetChunk(Chunk chunk)
+    {
+        Map<Long, Columns> chunks = worlds.get(chunk.getWorld().getName());
+        if (chunks != null)
+        {
+            chunks.remove(PackedCoords.chunkKey(chunk.getX(), chunk.getZ()));
+        }
+    }
+
+    void forgetWorld(World world)
+    {
+        worlds.remove(world.getName());
+    }
+
+    void clear()
+    {
+        worlds.clear();
+    }
+
+    private static int column(int x, int z)
+    {
+        return (x & 15) << 4 | (z & 15);
+    }
+
+    /**
+     * Read light, biome and soil of a crop.
+     */
+    private static byte read(Block block)
+    {
+        int flags = 0;
+        if (block.getLightFromSky() < 10)
+        {
+            flags |= DARK;
+        }
+        Biome biome = block.getBiome();
+        if (biome == Biome.DESERT || biome == Biome.DESERT_HILLS)
+        {
+            flags |= DESERT;
+        }
+        Block belowBlock = block.getRelative(BlockFace.DOWN);
+        if (belowBlock.getType() != Material.SOIL || belowBlock.getData() == 0)
+        {
+            flags |= DRY;
+        }
+        return (byte) flags;
+    }
+
+    /**
+     * Context of the 256 columns of a chunk.
+     */
+    private static final class Columns
+    {
+        /**
+         * Height of the crop each column was read for, UNKNOWN if it has to be read.
+         */
+        final int[] y = new int[256];
+        final long[] readAt = new long[256];
+        final byte[] flags = new byte[256];
+
+        Columns()
+        {
+            Arrays.fill(y, UNKNOWN);
+        }
+    }
+}
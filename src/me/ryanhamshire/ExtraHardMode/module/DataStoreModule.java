@@ -16,62 +16,266 @@
 package me.ryanhamshire.ExtraHardMode.module;
 
 import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.messages.MessageNode;
+import me.ryanhamshire.ExtraHardMode.service.Clock;
 import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
+import java.io.File;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages miscellaneous data.
  */
 public class DataStoreModule extends EHMModule
 {
+    /**
+     * How long data of players who left is kept, in case they come back.
+     */
+    private static final long QUIT_GRACE_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    /**
+     * Ticks between saving changed player data and removing data of players who left.
+     */
+    private static final long EVICT_INTERVAL = 20L * 60;
+
+    /**
+     * Longest time a login waits for stored player data to be read.
+     */
+    private static final long LOAD_TIMEOUT_SECONDS = 10;
 
     /**
      * In-memory cache for player data
      */
-    private final Map<String, PlayerData> playerNameToPlayerDataMap = new ConcurrentHashMap<String, PlayerData>();
+    private final ConcurrentMap<UUID, PlayerData> players = new ConcurrentHashMap<UUID, PlayerData>();
 
     /**
      * List of previous locations.
      */
     private final List<SimpleEntry<Player, Location>> previousLocations = new CopyOnWriteArrayList<SimpleEntry<Player, Location>>();
 
+    /**
+     * Time source for timestamps in player data.
+     */
+    private final Clock clock;
+
+    /**
+     * Stores player data across restarts and reloads.
+     */
+    private PlayerDataJournal journal;
+
+    private long evictTask = -1;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin    - Plugin instance.
+     * @param scheduler - Runs the eviction and hands loaded data to the main thread.
+     */
+    public DataStoreModule(ExtraHardMode plugin, SchedulerModule scheduler)
+    {
+        this(plugin, scheduler, Clock.SYSTEM);
+    }
+
     /**
      * Constructor.
      *
-     * @param plugin - Plugin instance.
+     * @param plugin    - Plugin instance.
+     * @param scheduler - Runs the eviction and hands loaded data to the main thread.
+     * @param clock     - Time source.
      */
-    public DataStoreModule(ExtraHardMode plugin)
+    public DataStoreModule(ExtraHardMode plugin, SchedulerModule scheduler, Clock clock)
     {
         super(plugin);
+        this.scheduler = scheduler;
+        this.clock = clock;
     }
 
     /**
-     * Retrieves player data from memory
+     * Retrieves player data from memory, creating it if needed. The same
+     * PlayerData is returned for the whole session of a player, so it can be
+     * kept instead of looking it up again.
      *
-     * @param playerName - Name of player.
+     * @param player - Player.
      * @return PlayerData associated with it.
      */
-    public PlayerData getPlayerData(String playerName)
+    public PlayerData getPlayerData(Player player)
     {
-        // first, look in memory
-        PlayerData playerData = this.playerNameToPlayerDataMap.get(playerName);
-
-        // if not there, create a fresh entry
+        PlayerData playerData = players.get(player.getUniqueId());
         if (playerData == null)
         {
-            playerData = new PlayerData();
-            this.playerNameToPlayerDataMap.put(playerName, playerData);
+            PlayerData created = new PlayerData(player.getName());
+            // data of players who already left has to be evicted as well
+            if (!player.isOnline())
+            {
+                created.quitTimestamp = clock.nanoTime();
+            }
+            playerData = players.putIfAbsent(player.getUniqueId(), created);
+            if (playerData == null)
+            {
+                playerData = created;
+            }
+        }
+        return playerData;
+    }
+
+    /**
+     * A player joined, keep his data until he leaves.
+     *
+     * @param player - Player who joined.
+     */
+    public void playerJoined(Player player)
+    {
+        PlayerData playerData = getPlayerData(player);
+        playerData.quitTimestamp = 0;
+        restore(player.getUniqueId(), playerData);
+    }
+
+    /**
+     * A player left, his data will be removed if he doesn't come back soon.
+     *
+     * @param player - Player who left.
+     */
+    public void playerQuit(Player player)
+    {
+        PlayerData playerData = getPlayerData(player);
+        playerData.quitTimestamp = clock.nanoTime();
+        save(player.getUniqueId(), playerData);
+    }
+
+    /**
+     * Block until stored player data was read. Meant for login threads, so
+     * joining players find their stored data without the main thread waiting.
+     */
+    public void awaitStoredData()
+    {
+        if (!journal.awaitLoaded(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        {
+            plugin.getLogger().warning("Stored player data isn't available yet, letting the player join anyway.");
+        }
+    }
+
+    /**
+     * Get the time source used for timestamps in player data.
+     *
+     * @return Clock.
+     */
+    public Clock getClock()
+    {
+        return clock;
+    }
+
+    /**
+     * Save changed data and remove data of players who left longer than the grace period ago.
+     */
+    private void evict()
+    {
+        long now = clock.nanoTime();
+        for (Map.Entry<UUID, PlayerData> entry : players.entrySet())
+        {
+            PlayerData playerData = entry.getValue();
+            save(entry.getKey(), playerData);
+            if (playerData.quitTimestamp != 0 && now - playerData.quitTimestamp > QUIT_GRACE_NANOS)
+            {
+                players.remove(entry.getKey(), playerData);
+            }
+        }
+    }
+
+    /**
+     * Write player data to the journal if it changed since it was written last.
+     * Data which wasn't filled with the stored data yet isn't written, it
+     * would replace the stored record.
+     */
+    private void save(UUID id, PlayerData playerData)
+    {
+        restore(id, playerData);
+        if (!playerData.restored)
+        {
+            return;
+        }
+        // times of the clock mean nothing after a restart, store wall clock time instead
+        long now = clock.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        Map<String, Long> messagesFullAt = new HashMap<String, Long>();
+        MessageNode[] nodes = MessageNode.values();
+        for (int i = 0; i < nodes.length; i++)
+        {
+            long fullAt = toWallClock(playerData.messageBuckets[i], now, nowMillis);
+            if (fullAt != 0)
+            {
+                messagesFullAt.put(nodes[i].name(), fullAt);
+            }
+        }
+        PlayerDataJournal.Record record = new PlayerDataJournal.Record(id, playerData.name, playerData.deaths, playerData.dragonAttempts,
+                toWallClock(playerData.allMessagesBucket, now, nowMillis), messagesFullAt);
+        if (!record.sameState(journal.get(id, null)))
+        {
+            journal.write(record);
+        }
+    }
+
+    /**
+     * Fill fresh player data with what was stored for the player, once the stored data was read.
+     */
+    private void restore(UUID id, PlayerData playerData)
+    {
+        if (playerData.restored || !journal.awaitLoaded(0, TimeUnit.SECONDS))
+        {
+            return;
         }
+        playerData.restored = true;
+        PlayerDataJournal.Record record = journal.get(id, playerData.name);
+        if (record == null)
+        {
+            return;
+        }
+        playerData.deaths = record.deaths;
+        playerData.dragonAttempts = record.dragonAttempts;
+        long now = clock.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        playerData.allMessagesBucket = fromWallClock(record.allMessagesFullAt, now, nowMillis);
+        MessageNode[] nodes = MessageNode.values();
+        for (int i = 0; i < nodes.length; i++)
+        {
+            Long fullAt = record.messagesFullAt.get(nodes[i].name());
+            if (fullAt != null)
+            {
+                playerData.messageBuckets[i] = fromWallClock(fullAt, now, nowMillis);
+            }
+        }
+    }
 
-        // try the hash map again. if it's STILL not there, we have a bug to fix
-        return this.playerNameToPlayerDataMap.get(playerName);
+    /**
+     * Convert the time a message bucket is full again to wall clock time.
+     *
+     * @return Wall clock time in milliseconds, 0 if the bucket is full.
+     */
+    private static long toWallClock(long fullAt, long now, long nowMillis)
+    {
+        return fullAt == 0 || fullAt - now <= 0 ? 0 : nowMillis + TimeUnit.NANOSECONDS.toMillis(fullAt - now);
+    }
+
+    /**
+     * Convert a stored wall clock time back to the time of the clock.
+     *
+     * @return Time of the clock, 0 if the bucket is full by now.
+     */
+    private static long fromWallClock(long fullAtMillis, long now, long nowMillis)
+    {
+        return fullAtMillis - nowMillis <= 0 ? 0 : now + TimeUnit.MILLISECONDS.toNanos(fullAtMillis - nowMillis);
     }
 
     /**
@@ -87,32 +291,113 @@ public class DataStoreModule extends EHMModule
     @Override
     public void starting()
     {
+        journal = new PlayerDataJournal(plugin, new File(plugin.getDataFolder(), "players"));
+        journal.open(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (!plugin.isEnabled())
+                {
+                    return;
+                }
+                // players who are online already, e.g. after a reload
+                scheduler.runOnMainThread(TaskCategory.OTHER, new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for (Player player : plugin.getServer().getOnlinePlayers())
+                        {
+                            restore(player.getUniqueId(), getPlayerData(player));
+                        }
+                    }
+                });
+            }
+        });
+        evictTask = scheduler.scheduleRepeating(TaskCategory.MAINTENANCE, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                evict();
+            }
+        }, EVICT_INTERVAL, EVICT_INTERVAL);
     }
 
     @Override
     public void closing()
     {
-        playerNameToPlayerDataMap.clear();
+        if (evictTask != -1)
+        {
+            scheduler.cancel(evictTask);
+            evictTask = -1;
+        }
+        for (Map.Entry<UUID, PlayerData> entry : players.entrySet())
+        {
+            save(entry.getKey(), entry.getValue());
+        }
+        journal.close();
+        players.clear();
         previousLocations.clear();
     }
 
     /**
      * Holds all of ExtraHardMode's player-tied data
      */
-    public class PlayerData
+    public static class PlayerData
     {
         /**
-         * Last message sent.
-         */
-        public String lastMessageSent = "";
-        /**
-         * Last message timestamp.
+         * Name of the player.
          */
-        public long lastMessageTimestamp = 0;
+        final String name;
         /**
          * Cached weight status.
          * TODO need to check and see that I didn't just break this.
          */
         public boolean cachedWeightStatus = false;
+        /**
+         * How often the player died in hard mode worlds.
+         */
+        public int deaths = 0;
+        /**
+         * How many dragon fights the player joined.
+         */
+        public int dragonAttempts = 0;
+        /**
+         * Token bucket of each message by ordinal of the message node, stored
+         * as the time the bucket is full again, 0 if it's full.
+         */
+        public final long[] messageBuckets = new long[MessageNode.values().length];
+        /**
+         * Token bucket of all messages together, stored like the ones of each message.
+         */
+        public long allMessagesBucket = 0;
+        /**
+         * Permission nodes the player has, as bits by ordinal of the node.
+         */
+        int permissions = 0;
+        /**
+         * Whether the permission bits were read since they were last invalidated.
+         */
+        boolean permissionsCached = false;
+        /**
+         * Whether stored data was filled in already.
+         */
+        boolean restored = false;
+        /**
+         * When the player left, from the clock of the data store. 0 while online.
+         */
+        volatile long quitTimestamp = 0;
+
+        /**
+         * Constructor.
+         *
+         * @param name - Name of the player.
+         */
+        PlayerData(String name)
+        {
+            this.name = name;
+        }
     }
 }
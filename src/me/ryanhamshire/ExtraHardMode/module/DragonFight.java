@@ -0,0 +1,239 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import me.ryanhamshire.ExtraHardMode.task.DragonAttackTask;
+import org.bukkit.World;
+import org.bukkit.entity.EnderDragon;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * State of the fight against the dragon of one world. Hits on the dragon only
+ * change the state, the attacks are chosen once per second from it, so the
+ * number of fireballs doesn't grow with the number of hits.
+ */
+public class DragonFight
+{
+    /**
+     * Fireballs added to the budget by a hit on the dragon.
+     */
+    private static final int FIREBALLS_PER_HIT = 5;
+    /**
+     * Fireballs added to the budget for each participant every volley.
+     */
+    private static final int FIREBALLS_PER_VOLLEY = 3;
+    /**
+     * Seconds between volleys.
+     */
+    private static final int VOLLEY_SECONDS = 30;
+    /**
+     * Most fireballs the budget holds.
+     */
+    private static final int MAX_FIREBALL_BUDGET = 15;
+    /**
+     * Most fireballs shot per second.
+     */
+    private static final int FIREBALLS_PER_SECOND = 2;
+
+    private final ExtraHardMode plugin;
+    private final DragonModule module;
+    private final RootConfig rootC;
+    private final RandomModule random;
+    private final World world;
+
+    /**
+     * Dragon of the world, replaced if a new one is hit.
+     */
+    private EnderDragon dragon;
+    /**
+     * Names of the players fighting the dragon by UUID, in the order they joined.
+     */
+    private final Map<UUID, String> participants = new LinkedHashMap<UUID, String>();
+    /**
+     * Fireballs the dragon may still shoot.
+     */
+    private int fireballBudget = 0;
+    /**
+     * Seconds until the next volley.
+     */
+    private int secondsToVolley = VOLLEY_SECONDS;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     * @param module - Module running the fight.
+     * @param rootC  - Configuration.
+     * @param random - Random streams.
+     * @param dragon - Dragon which is fought.
+     */
+    DragonFight(ExtraHardMode plugin, DragonModule module, RootConfig rootC, RandomModule random, EnderDragon dragon)
+    {
+        this.plugin = plugin;
+        this.module = module;
+        this.rootC = rootC;
+        this.random = random;
+        this.world = dragon.getWorld();
+        this.dragon = dragon;
+    }
+
+    /**
+     * A player hit the dragon.
+     *
+     * @param dragon  - Dragon which was hit.
+     * @param damager - Player who hit it.
+     * @return True if the player just joined the fight.
+     */
+    boolean hit(EnderDragon dragon, Player damager)
+    {
+        this.dragon = dragon;
+        fireballBudget = Math.min(MAX_FIREBALL_BUDGET, fireballBudget + FIREBALLS_PER_HIT);
+        if (participants.containsKey(damager.getUniqueId()))
+        {
+            return false;
+        }
+        participants.put(damager.getUniqueId(), damager.getName());
+        // first volley at the new participant right away
+        fireballBudget = Math.min(MAX_FIREBALL_BUDGET, fireballBudget + FIREBALLS_PER_VOLLEY);
+        return true;
+    }
+
+    /**
+     * Advance the fight by one second.
+     *
+     * @return False once the fight is over.
+     */
+    boolean tick()
+    {
+        if (dragon.isDead() || !dragon.isValid() || world.getPlayers().isEmpty())
+        {
+            return false;
+        }
+
+        List<Player> fighting = new ArrayList<Player>(participants.size());
+        for (Player player : world.getPlayers())
+        {
+            if (!player.isDead() && participants.containsKey(player.getUniqueId()))
+            {
+                fighting.add(player);
+            }
+        }
+
+        // players who died, left the world or logged off have been defeated
+        if (fighting.size() < participants.size())
+        {
+            for (Iterator<Map.Entry<UUID, String>> it = participants.entrySet().iterator(); it.hasNext(); )
+            {
+                Map.Entry<UUID, String> participant = it.next();
+                if (find(fighting, participant.getKey()) == null)
+                {
+                    it.remove();
+                    // players who died get a death message already
+                    Player player = find(world.getPlayers(), participant.getKey());
+                    if (player == null || !player.isDead())
+                    {
+                        announceDefeat(participant.getValue());
+                    }
+                    restoreHealth();
+                }
+            }
+        }
+        if (participants.isEmpty())
+        {
+            return false;
+        }
+
+        if (--secondsToVolley <= 0)
+        {
+            secondsToVolley = VOLLEY_SECONDS;
+            fireballBudget = Math.min(MAX_FIREBALL_BUDGET, fireballBudget + FIREBALLS_PER_VOLLEY * fighting.size());
+        }
+        for (int i = 0; i < FIREBALLS_PER_SECOND && fireballBudget > 0; i++)
+        {
+            fireballBudget--;
+            Player target = fighting.get(random.get(RandomFeature.DRAGON).nextInt(fighting.size()));
+            new DragonAttackTask(module, random, dragon, target).run();
+        }
+        return true;
+    }
+
+    /**
+     * Get the names of the players fighting the dragon.
+     *
+     * @return Names in the order the players joined.
+     */
+    public Collection<String> getParticipantNames()
+    {
+        return participants.values();
+    }
+
+    /**
+     * Get the players fighting the dragon who are in its world.
+     *
+     * @return Participants in the world.
+     */
+    public List<Player> getParticipantsInWorld()
+    {
+        List<Player> result = new ArrayList<Player>();
+        for (Player player : world.getPlayers())
+        {
+            if (participants.containsKey(player.getUniqueId()))
+            {
+                result.add(player);
+            }
+        }
+        return result;
+    }
+
+    private void announceDefeat(String name)
+    {
+        if (rootC.getBoolean(RootNode.ENDER_DRAGON_COMBAT_ANNOUNCEMENTS))
+        {
+            plugin.getServer().broadcastMessage(name + " has been defeated by the dragon!");
+        }
+    }
+
+    /**
+     * Restore some of the dragon's health.
+     */
+    private void restoreHealth()
+    {
+        dragon.setHealth(Math.min(dragon.getMaxHealth(), (int) (dragon.getHealth() + dragon.getMaxHealth() * .25)));
+    }
+
+    private static Player find(List<Player> players, UUID id)
+    {
+        for (Player player : players)
+        {
+            if (player.getUniqueId().equals(id))
+            {
+                return player;
+            }
+        }
+        return null;
+    }
+}
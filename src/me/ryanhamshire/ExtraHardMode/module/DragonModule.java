@@ -0,0 +1,304 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.EnderDragon;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+import org.bukkit.entity.Fireball;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Runs the fights against ender dragons, one per world. All fights are
+ * advanced by a single task once per second.
+ * <p/>
+ * Also accounts for the minions and fireballs spawned for dragons, so their
+ * number per world stays within the configured limits however long a fight
+ * lasts.
+ */
+public class DragonModule extends EHMModule
+{
+    /**
+     * Ticks between advancing the fights.
+     */
+    private static final long TICK_INTERVAL = 20L;
+
+    /**
+     * Running fights by world name.
+     */
+    private final Map<String, DragonFight> fights = new HashMap<String, DragonFight>();
+
+    /**
+     * Spawned minions and fireballs by world name.
+     */
+    private final Map<String, Spawned> spawned = new HashMap<String, Spawned>();
+
+    private final RootConfig rootC;
+
+    private final DataStoreModule dataStore;
+
+    private final RandomModule random;
+
+    private long tickTask = -1;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin    - plugin instance.
+     * @param rootC     - Configuration.
+     * @param dataStore - Player data, counts dragon attempts.
+     * @param random    - Random streams, picks fireball targets.
+     * @param scheduler - Runs the repeating task.
+     */
+    public DragonModule(ExtraHardMode plugin, RootConfig rootC, DataStoreModule dataStore, RandomModule random, SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.rootC = rootC;
+        this.dataStore = dataStore;
+        this.random = random;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * A player hit a dragon, start a fight or let him join the running one.
+     *
+     * @param dragon  - Dragon which was hit.
+     * @param damager - Player who hit it.
+     */
+    public void hit(EnderDragon dragon, Player damager)
+    {
+        String world = dragon.getWorld().getName();
+        DragonFight fight = fights.get(world);
+        if (fight == null)
+        {
+            fight = new DragonFight(plugin, this, rootC, random, dragon);
+            fights.put(world, fight);
+        }
+        if (fight.hit(dragon, damager))
+        {
+            dataStore.getPlayerData(damager).dragonAttempts++;
+            if (rootC.getBoolean(RootNode.ENDER_DRAGON_COMBAT_ANNOUNCEMENTS))
+            {
+                plugin.getServer().broadcastMessage(damager.getName() + " is challenging the dragon!");
+            }
+        }
+    }
+
+    /**
+     * End the fight of a world, e.g. because the dragon died.
+     *
+     * @param world - World of the fight.
+     * @return The fight which ended, null if there was none.
+     */
+    public DragonFight endFight(World world)
+    {
+        return fights.remove(world.getName());
+    }
+
+    /**
+     * Get the running fight of a world.
+     *
+     * @param world - World of the fight.
+     * @return Fight, null if there is none.
+     */
+    public DragonFight getFight(World world)
+    {
+        return fights.get(world.getName());
+    }
+
+    /**
+     * Get a fireball for a dragon to shoot. If the world holds as many
+     * fireballs as allowed, the oldest one is moved to the location and
+     * shot again instead of spawning a new one.
+     *
+     * @param location - Location to shoot the fireball from.
+     * @return Fireball at the location.
+     */
+    public Fireball spawnFireball(Location location)
+    {
+        Deque<Entity> fireballs = getSpawned(location.getWorld()).fireballs;
+        prune(fireballs);
+        Fireball fireball;
+        if (fireballs.size() >= rootC.getInt(RootNode.ENDER_DRAGON_MAX_FIREBALLS))
+        {
+            fireball = (Fireball) fireballs.pollFirst();
+            fireball.teleport(location);
+        }
+        else
+        {
+            fireball = (Fireball) location.getWorld().spawnEntity(location, EntityType.FIREBALL);
+        }
+        fireballs.addLast(fireball);
+        return fireball;
+    }
+
+    /**
+     * Account for a minion summoned by a dragon. If the world holds more
+     * minions than allowed, the oldest ones are despawned.
+     *
+     * @param minion - Summoned minion.
+     */
+    public void addMinion(Entity minion)
+    {
+        Deque<Entity> minions = getSpawned(minion.getWorld()).minions;
+        minions.addLast(minion);
+        prune(minions);
+        int max = rootC.getInt(RootNode.ENDER_DRAGON_MAX_MINIONS);
+        while (minions.size() > max)
+        {
+            minions.pollFirst().remove();
+        }
+    }
+
+    /**
+     * Get the number of live minions summoned by dragons in a world.
+     *
+     * @param world - World to count in.
+     * @return Number of minions.
+     */
+    public int getMinionCount(World world)
+    {
+        Spawned entities = spawned.get(world.getName());
+        if (entities == null)
+        {
+            return 0;
+        }
+        prune(entities.minions);
+        return entities.minions.size();
+    }
+
+    /**
+     * Get the number of flying dragon fireballs in a world.
+     *
+     * @param world - World to count in.
+     * @return Number of fireballs.
+     */
+    public int getFireballCount(World world)
+    {
+        Spawned entities = spawned.get(world.getName());
+        if (entities == null)
+        {
+            return 0;
+        }
+        prune(entities.fireballs);
+        return entities.fireballs.size();
+    }
+
+    /**
+     * Forget the fight and the spawned entities of a world.
+     *
+     * @param world - Unloaded world.
+     */
+    public void forgetWorld(World world)
+    {
+        fights.remove(world.getName());
+        spawned.remove(world.getName());
+    }
+
+    private Spawned getSpawned(World world)
+    {
+        Spawned entities = spawned.get(world.getName());
+        if (entities == null)
+        {
+            entities = new Spawned();
+            spawned.put(world.getName(), entities);
+        }
+        return entities;
+    }
+
+    /**
+     * Drop entities which died, exploded or were removed.
+     */
+    private static void prune(Deque<Entity> entities)
+    {
+        for (Iterator<Entity> it = entities.iterator(); it.hasNext(); )
+        {
+            if (!it.next().isValid())
+            {
+                it.remove();
+            }
+        }
+    }
+
+    private void tick()
+    {
+        for (Iterator<DragonFight> it = fights.values().iterator(); it.hasNext(); )
+        {
+            if (!it.next().tick())
+            {
+                it.remove();
+            }
+        }
+        for (Iterator<Spawned> it = spawned.values().iterator(); it.hasNext(); )
+        {
+            Spawned entities = it.next();
+            prune(entities.minions);
+            prune(entities.fireballs);
+            if (entities.minions.isEmpty() && entities.fireballs.isEmpty())
+            {
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void starting()
+    {
+        tickTask = scheduler.scheduleRepeating(TaskCategory.TICK, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                tick();
+            }
+        }, TICK_INTERVAL, TICK_INTERVAL);
+    }
+
+    @Override
+    public void closing()
+    {
+        if (tickTask != -1)
+        {
+            scheduler.cancel(tickTask);
+            tickTask = -1;
+        }
+        fights.clear();
+        spawned.clear();
+    }
+
+    /**
+     * Entities spawned for the dragons of one world, oldest first.
+     */
+    private static class Spawned
+    {
+        final Deque<Entity> minions = new ArrayDeque<Entity>();
+        final Deque<Entity> fireballs = new ArrayDeque<Entity>();
+    }
+}
@@ -0,0 +1,534 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.Effect;
+import org.bukkit.FireworkEffect;
+import org.bukkit.Location;
+import org.bukkit.Sound;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Plays effects which take a few ticks, like the firework show of a burning
+ * creeper. An effect is a timeline of steps, each at an offset in ticks from
+ * the start of the effect. All running effects are advanced by a single task
+ * once per tick, on the main thread.
+ * <p/>
+ * An effect plays around an entity or a location. It stops as soon as the
+ * entity is gone or the chunk of the location unloads, the remaining steps
+ * are left out. Only a limited number of effects may run at the same time,
+ * further ones aren't started at all.
+ * <p/>
+ * Cosmetic effects like fireworks and sounds are budgeted per region of 4x4
+ * chunks and second, so a creeper farm on fire can't flood the server with
+ * entities and the clients with packets. Fireworks over the entity budget
+ * only show particles, anything over the total budget is left out.
+ */
+public class EffectModule extends EHMModule
+{
+    /**
+     * Bits of a block coordinate dropped to get the coordinate of its region, 4x4 chunks.
+     */
+    private static final int REGION_SHIFT = 6;
+    /**
+     * Ticks until the budgets of all regions are full again.
+     */
+    private static final int BUDGET_TICKS = 20;
+    /**
+     * Index of the count of all effects in the budget of a region.
+     */
+    private static final int ALL = 0;
+    /**
+     * Index of the count of effects which spawned an entity in the budget of a region.
+     */
+    private static final int ENTITIES = 1;
+
+    /**
+     * Effects which are running.
+     */
+    private final List<Timeline> running = new ArrayList<Timeline>();
+
+    private long started = 0;
+    private long finished = 0;
+    private long stopped = 0;
+    private long rejected = 0;
+
+    /**
+     * Effects played in the current second, by world name and packed region coordinates.
+     */
+    private final Map<String, Map<Long, int[]>> budgets = new HashMap<String, Map<Long, int[]>>();
+    private int budgetTicks = 0;
+
+    /**
+     * Cosmetic effects played, downgraded and left out, by ordinal of their kind.
+     */
+    private final long[] played = new long[Cosmetic.values().length];
+    private final long[] downgraded = new long[Cosmetic.values().length];
+    private final long[] skipped = new long[Cosmetic.values().length];
+
+    private long tickTask = -1;
+
+    private final RootConfig rootC;
+
+    private final UtilityModule utils;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin    - plugin instance.
+     * @param rootC     - Configuration.
+     * @param utils     - Spawns the fireworks.
+     * @param scheduler - Runs the repeating task.
+     */
+    public EffectModule(ExtraHardMode plugin, RootConfig rootC, UtilityModule utils, SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.rootC = rootC;
+        this.utils = utils;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Check if another effect may start right now.
+     *
+     * @return True if less effects than allowed are running.
+     */
+    public boolean canPlay()
+    {
+        return running.size() < rootC.getInt(RootNode.EFFECTS_MAX_RUNNING);
+    }
+
+    /**
+     * Start an effect. Steps at offset 0 run right away.
+     *
+     * @param timeline - Effect to play.
+     * @return True if it was started, false if too many effects are running already.
+     */
+    public boolean play(Timeline timeline)
+    {
+        if (!canPlay())
+        {
+            rejected++;
+            return false;
+        }
+        started++;
+        if (advance(timeline))
+        {
+            running.add(timeline);
+        }
+        return true;
+    }
+
+    /**
+     * Launch a firework with random colors, if the region has budget left.
+     * Otherwise only show some flames or nothing at all.
+     *
+     * @param type     - Type of the firework.
+     * @param location - Location to launch it at.
+     */
+    public void firework(FireworkEffect.Type type, Location location)
+    {
+        int[] budget = getBudget(location);
+        if (budget[ALL] >= rootC.getInt(RootNode.EFFECTS_PER_REGION_PER_SECOND))
+        {
+            skipped[Cosmetic.FIREWORK.ordinal()]++;
+            return;
+        }
+        budget[ALL]++;
+        if (budget[ENTITIES] >= rootC.getInt(RootNode.EFFECT_ENTITIES_PER_REGION_PER_SECOND))
+        {
+            downgraded[Cosmetic.FIREWORK.ordinal()]++;
+            location.getWorld().playEffect(location, Effect.MOBSPAWNER_FLAMES, 0);
+            return;
+        }
+        budget[ENTITIES]++;
+        played[Cosmetic.FIREWORK.ordinal()]++;
+        utils.fireWorkRandomColors(type, location);
+    }
+
+    /**
+     * Play a sound for everyone nearby, if the region has budget left.
+     *
+     * @param location - Location of the sound.
+     * @param sound    - Sound.
+     * @param volume   - Volume.
+     * @param pitch    - Pitch.
+     */
+    public void playSound(Location location, Sound sound, float volume, float pitch)
+    {
+        if (takeSound(location))
+        {
+            location.getWorld().playSound(location, sound, volume, pitch);
+        }
+    }
+
+    /**
+     * Play a sound only the player hears, if the region he is in has budget left.
+     *
+     * @param player - Player.
+     * @param sound  - Sound.
+     * @param volume - Volume.
+     * @param pitch  - Pitch.
+     */
+    public void playSound(Player player, Sound sound, float volume, float pitch)
+    {
+        Location location = player.getLocation();
+        if (takeSound(location))
+        {
+            player.playSound(location, sound, volume, pitch);
+        }
+    }
+
+    /**
+     * Take a sound from the budget of the region of a location.
+     *
+     * @return True if the sound may be played.
+     */
+    private boolean takeSound(Location location)
+    {
+        int[] budget = getBudget(location);
+        if (budget[ALL] >= rootC.getInt(RootNode.EFFECTS_PER_REGION_PER_SECOND))
+        {
+            skipped[Cosmetic.SOUND.ordinal()]++;
+            return false;
+        }
+        budget[ALL]++;
+        played[Cosmetic.SOUND.ordinal()]++;
+        return true;
+    }
+
+    /**
+     * Get what was played in the region of a location during the current second.
+     *
+     * @return Counts by ALL and ENTITIES.
+     */
+    private int[] getBudget(Location location)
+    {
+        String world = location.getWorld().getName();
+        Map<Long, int[]> regions = budgets.get(world);
+        if (regions == null)
+        {
+            regions = new HashMap<Long, int[]>();
+            budgets.put(world, regions);
+        }
+        Long key = PackedCoords.chunkKey(location.getBlockX() >> REGION_SHIFT, location.getBlockZ() >> REGION_SHIFT);
+        int[] budget = regions.get(key);
+        if (budget == null)
+        {
+            budget = new int[2];
+            regions.put(key, budget);
+        }
+        return budget;
+    }
+
+    /**
+     * Stop all effects playing in a world, e.g. because it unloads.
+     *
+     * @param world - World.
+     */
+    public void stopWorld(World world)
+    {
+        budgets.remove(world.getName());
+        Iterator<Timeline> iterator = running.iterator();
+        while (iterator.hasNext())
+        {
+            if (world.equals(iterator.next().getWorld()))
+            {
+                iterator.remove();
+                stopped++;
+            }
+        }
+    }
+
+    /**
+     * Get the number of effects which are running.
+     *
+     * @return Number of effects.
+     */
+    public int getRunning()
+    {
+        return running.size();
+    }
+
+    /**
+     * Get the number of effects which were started since the module started.
+     *
+     * @return Number of effects.
+     */
+    public long getStarted()
+    {
+        return started;
+    }
+
+    /**
+     * Get the number of effects which ran all of their steps.
+     *
+     * @return Number of effects.
+     */
+    public long getFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * Get the number of effects which were stopped early, because their entity or chunk was gone.
+     *
+     * @return Number of effects.
+     */
+    public long getStopped()
+    {
+        return stopped;
+    }
+
+    /**
+     * Get the number of effects which weren't started because too many were running.
+     *
+     * @return Number of effects.
+     */
+    public long getRejected()
+    {
+        return rejected;
+    }
+
+    /**
+     * Get the number of cosmetic effects of a kind which were played as they are.
+     *
+     * @param kind - Kind of effect.
+     * @return Number of effects.
+     */
+    public long getPlayed(Cosmetic kind)
+    {
+        return played[kind.ordinal()];
+    }
+
+    /**
+     * Get the number of cosmetic effects of a kind which were played in a cheaper way.
+     *
+     * @param kind - Kind of effect.
+     * @return Number of effects.
+     */
+    public long getDowngraded(Cosmetic kind)
+    {
+        return downgraded[kind.ordinal()];
+    }
+
+    /**
+     * Get the number of cosmetic effects of a kind which were left out.
+     *
+     * @param kind - Kind of effect.
+     * @return Number of effects.
+     */
+    public long getSkipped(Cosmetic kind)
+    {
+        return skipped[kind.ordinal()];
+    }
+
+    /**
+     * Advance all running effects by one tick.
+     */
+    private void tick()
+    {
+        if (++budgetTicks >= BUDGET_TICKS)
+        {
+            budgetTicks = 0;
+            budgets.clear();
+        }
+        // index loop, steps may start new effects which are appended
+        int size = running.size();
+        int kept = 0;
+        for (int i = 0; i < running.size(); i++)
+        {
+            Timeline timeline = running.get(i);
+            if (i >= size || advance(timeline))
+            {
+                running.set(kept++, timeline);
+            }
+        }
+        running.subList(kept, running.size()).clear();
+    }
+
+    /**
+     * Run the steps of an effect which are due and move it on by one tick.
+     *
+     * @return True if the effect has steps left.
+     */
+    private boolean advance(Timeline timeline)
+    {
+        while (timeline.next < timeline.offsets.size() && timeline.offsets.get(timeline.next) <= timeline.elapsed)
+        {
+            if (timeline.isGone())
+            {
+                stopped++;
+                return false;
+            }
+            Runnable step = timeline.steps.get(timeline.next++);
+            try
+            {
+                step.run();
+            } catch (Throwable t)
+            {
+                plugin.getLogger().log(Level.SEVERE, "Step of an effect failed, stopping the effect", t);
+                stopped++;
+                return false;
+            }
+        }
+        timeline.elapsed++;
+        if (timeline.next >= timeline.offsets.size())
+        {
+            finished++;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void starting()
+    {
+        tickTask = scheduler.scheduleRepeating(TaskCategory.TICK, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                tick();
+            }
+        }, 1L, 1L);
+    }
+
+    @Override
+    public void closing()
+    {
+        if (tickTask != -1)
+        {
+            scheduler.cancel(tickTask);
+            tickTask = -1;
+        }
+        running.clear();
+        budgets.clear();
+    }
+
+    /**
+     * Kinds of cosmetic effects, used for metrics.
+     */
+    public enum Cosmetic
+    {
+        FIREWORK,
+        SOUND
+    }
+
+    /**
+     * Steps of an effect at their offsets in ticks from its start.
+     */
+    public static class Timeline
+    {
+        /**
+         * Entity the effect plays around, null if it plays at a location.
+         */
+        private final Entity target;
+        /**
+         * Location the effect plays at, null if it plays around an entity.
+         */
+        private final Location location;
+        private final List<Integer> offsets = new ArrayList<Integer>();
+        private final List<Runnable> steps = new ArrayList<Runnable>();
+        /**
+         * Index of the next step to run.
+         */
+        private int next = 0;
+        /**
+         * Ticks since the effect started.
+         */
+        private int elapsed = 0;
+
+        /**
+         * Effect around an entity, it stops when the entity is gone.
+         *
+         * @param target - Entity.
+         */
+        public Timeline(Entity target)
+        {
+            this.target = target;
+            this.location = null;
+        }
+
+        /**
+         * Effect at a location, it stops when the chunk unloads.
+         *
+         * @param location - Location.
+         */
+        public Timeline(Location location)
+        {
+            this.target = null;
+            this.location = location.clone();
+        }
+
+        /**
+         * Add a step. Steps at the same offset run in the order they were added.
+         *
+         * @param offset - Ticks from the start of the effect.
+         * @param step   - Step to run.
+         * @return This timeline, to add more steps.
+         */
+        public Timeline at(int offset, Runnable step)
+        {
+            int index = offsets.size();
+            while (index > 0 && offsets.get(index - 1) > offset)
+            {
+                index--;
+            }
+            offsets.add(index, offset);
+            steps.add(index, step);
+            return this;
+        }
+
+        /**
+         * Get the world the effect plays in.
+         *
+         * @return World.
+         */
+        public World getWorld()
+        {
+            return target != null ? target.getWorld() : location.getWorld();
+        }
+
+        /**
+         * Check if the entity or the chunk of the effect is gone.
+         */
+        boolean isGone()
+        {
+            if (target != null)
+            {
+                return !target.isValid();
+            }
+            return !location.getWorld().isChunkLoaded(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+        }
+    }
+}
@@ -0,0 +1,406 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Index of the entities features look up by chunk, so they don't have to copy
+ * and walk all entities of a chunk or world.
+ * <p/>
+ * Kept up to date from spawn, death and chunk events. Entities are only held
+ * weakly, entities which are removed without dying simply disappear from the
+ * index. Entities walking into another chunk are moved by a periodic sweep and
+ * every lookup checks the current chunk of the entities it returns.
+ * <p/>
+ * Only use it from the main thread.
+ */
+public class EntityIndexModule extends EHMModule
+{
+    /**
+     * Entity types which are indexed.
+     */
+    private static final Set<EntityType> TRACKED = EnumSet.of(EntityType.ZOMBIE, EntityType.PIG_ZOMBIE, EntityType.ENDERMAN,
+            EntityType.BLAZE, EntityType.ENDER_DRAGON);
+
+    /**
+     * Ticks between moving entities to the chunk they walked into.
+     */
+    private static final long SWEEP_INTERVAL = 100L;
+
+    /**
+     * Index by world name.
+     */
+    private final Map<String, WorldIndex> worlds = new HashMap<String, WorldIndex>();
+
+    private long sweepTask = -1;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin    - plugin instance.
+     * @param scheduler - Runs the repeating task.
+     */
+    public EntityIndexModule(ExtraHardMode plugin, SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Add an entity to the index, does nothing for types which aren't indexed.
+     *
+     * @param entity - Entity to add.
+     */
+    public void add(Entity entity)
+    {
+        if (!TRACKED.contains(entity.getType()))
+        {
+            return;
+        }
+        Location location = entity.getLocation();
+        getWorldIndex(location.getWorld()).put(entity, PackedCoords.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+    }
+
+    /**
+     * Remove an entity from the index.
+     *
+     * @param entity - Entity to remove.
+     */
+    public void remove(Entity entity)
+    {
+        if (!TRACKED.contains(entity.getType()))
+        {
+            return;
+        }
+        WorldIndex index = worlds.get(entity.getWorld().getName());
+        if (index != null)
+        {
+            index.remove(entity);
+        }
+    }
+
+    /**
+     * Index all entities of a chunk which was just loaded.
+     *
+     * @param chunk - Loaded chunk.
+     */
+    public void indexChunk(Chunk chunk)
+    {
+        WorldIndex index = null;
+        long key = PackedCoords.chunkKey(chunk.getX(), chunk.getZ());
+        for (Entity entity : chunk.getEntities())
+        {
+            if (TRACKED.contains(entity.getType()))
+            {
+                if (index == null)
+                {
+                    index = getWorldIndex(chunk.getWorld());
+                }
+                index.put(entity, key);
+            }
+        }
+    }
+
+    /**
+     * Forget the entities of an unloaded chunk.
+     *
+     * @param chunk - Unloaded chunk.
+     */
+    public void forgetChunk(Chunk chunk)
+    {
+        WorldIndex index = worlds.get(chunk.getWorld().getName());
+        if (index == null)
+        {
+            return;
+        }
+        List<Entity> removed = index.removeChunk(PackedCoords.chunkKey(chunk.getX(), chunk.getZ()));
+        // keep entities which walked into another chunk before the sweep noticed
+        for (Entity entity : removed)
+        {
+            Location location = entity.getLocation();
+            if (entity.isValid() && (location.getBlockX() >> 4 != chunk.getX() || location.getBlockZ() >> 4 != chunk.getZ()))
+            {
+                index.put(entity, PackedCoords.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+            }
+        }
+    }
+
+    /**
+     * Forget all entities of a world.
+     *
+     * @param world - Unloaded world.
+     */
+    public void forgetWorld(World world)
+    {
+        worlds.remove(world.getName());
+    }
+
+    /**
+     * Get the entities of a type in a chunk.
+     *
+     * @param chunk - Chunk to look in.
+     * @param type  - Indexed entity type.
+     * @return Valid entities currently in the chunk.
+     */
+    public List<Entity> getEntities(Chunk chunk, EntityType type)
+    {
+        List<Entity> result = new ArrayList<Entity>();
+        WorldIndex index = worlds.get(chunk.getWorld().getName());
+        if (index == null)
+        {
+            return result;
+        }
+        Set<Entity> entities = index.get(PackedCoords.chunkKey(chunk.getX(), chunk.getZ()), type);
+        if (entities == null)
+        {
+            return result;
+        }
+        for (Entity entity : entities)
+        {
+            Location location = entity.getLocation();
+            if (entity.isValid() && location.getBlockX() >> 4 == chunk.getX() && location.getBlockZ() >> 4 == chunk.getZ())
+            {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the entities of a type in the loaded chunks of a world.
+     *
+     * @param world - World to look in.
+     * @param type  - Indexed entity type.
+     * @return Valid entities in the world.
+     */
+    public List<Entity> getEntities(World world, EntityType type)
+    {
+        List<Entity> result = new ArrayList<Entity>();
+        WorldIndex index = worlds.get(world.getName());
+        if (index == null)
+        {
+            return result;
+        }
+        for (Entity entity : index.chunkOf.keySet())
+        {
+            if (entity.getType() == type && entity.isValid())
+            {
+                result.add(entity);
+            }
+        }
+        return result;
+    }
+
+    private WorldIndex getWorldIndex(World world)
+    {
+        WorldIndex index = worlds.get(world.getName());
+        if (index == null)
+        {
+            index = new WorldIndex();
+            worlds.put(world.getName(), index);
+        }
+        return index;
+    }
+
+    /**
+     * Move entities to the chunk they are in now and drop the ones which are gone.
+     */
+    private void sweep()
+    {
+        for (WorldIndex index : worlds.values())
+        {
+            List<Entity> moved = null;
+            for (Iterator<Map.Entry<Entity, Long>> it = index.chunkOf.entrySet().iterator(); it.hasNext(); )
+            {
+                Map.Entry<Entity, Long> entry = it.next();
+                Entity entity = entry.getKey();
+                if (!entity.isValid())
+                {
+                    index.removeFromChunk(entity, entry.getValue());
+                    it.remove();
+                    continue;
+                }
+                Location location = entity.getLocation();
+                if (PackedCoords.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4) != entry.getValue())
+                {
+                    if (moved == null)
+                    {
+                        moved = new ArrayList<Entity>();
+                    }
+                    moved.add(entity);
+                }
+            }
+            if (moved != null)
+            {
+                for (Entity entity : moved)
+                {
+                    Location location = entity.getLocation();
+                    index.put(entity, PackedCoords.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void starting()
+    {
+        // entities which are already around, e.g. after a reload
+        for (World world : plugin.getServer().getWorlds())
+        {
+            for (Chunk chunk : world.getLoadedChunks())
+            {
+                indexChunk(chunk);
+            }
+        }
+        sweepTask = scheduler.scheduleRepeating(TaskCategory.MAINTENANCE, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                sweep();
+            }
+        }, SWEEP_INTERVAL, SWEEP_INTERVAL);
+    }
+
+    @Override
+    public void closing()
+    {
+        if (sweepTask != -1)
+        {
+            scheduler.cancel(sweepTask);
+            sweepTask = -1;
+        }
+        worlds.clear();
+    }
+
+    /**
+     * Indexed entities of one world.
+     */
+    private static class WorldIndex
+    {
+        /**
+         * Weak sets of entities by packed chunk coordinates and type.
+         */
+        final Map<Long, Map<EntityType, Set<Entity>>> chunks = new HashMap<Long, Map<EntityType, Set<Entity>>>();
+        /**
+         * Chunk each entity is indexed under.
+         */
+        final Map<Entity, Long> chunkOf = new WeakHashMap<Entity, Long>();
+
+        Set<Entity> get(long chunkKey, EntityType type)
+        {
+            Map<EntityType, Set<Entity>> byType = chunks.get(chunkKey);
+            return byType == null ? null : byType.get(type);
+        }
+
+        void put(Entity entity, long chunkKey)
+        {
+            Long previous = chunkOf.put(entity, chunkKey);
+            if (previous != null)
+            {
+                if (previous == chunkKey)
+                {
+                    return;
+                }
+                removeFromChunk(entity, previous);
+            }
+            Map<EntityType, Set<Entity>> byType = chunks.get(chunkKey);
+            if (byType == null)
+            {
+                byType = new EnumMap<EntityType, Set<Entity>>(EntityType.class);
+                chunks.put(chunkKey, byType);
+            }
+            Set<Entity> entities = byType.get(entity.getType());
+            if (entities == null)
+            {
+                entities = Collections.newSetFromMap(new WeakHashMap<Entity, Boolean>());
+                byType.put(entity.getType(), entities);
+            }
+            entities.add(entity);
+        }
+
+        void remove(Entity entity)
+        {
+            Long chunkKey = chunkOf.remove(entity);
+            if (chunkKey != null)
+            {
+                removeFromChunk(entity, chunkKey);
+            }
+        }
+
+        void removeFromChunk(Entity entity, long chunkKey)
+        {
+            Map<EntityType, Set<Entity>> byType = chunks.get(chunkKey);
+            if (byType == null)
+            {
+                return;
+            }
+            Set<Entity> entities = byType.get(entity.getType());
+            if (entities != null)
+            {
+                entities.remove(entity);
+                if (entities.isEmpty())
+                {
+                    byType.remove(entity.getType());
+                    if (byType.isEmpty())
+                    {
+                        chunks.remove(chunkKey);
+                    }
+                }
+            }
+        }
+
+        List<Entity> removeChunk(long chunkKey)
+        {
+            List<Entity> removed = new ArrayList<Entity>();
+            Map<EntityType, Set<Entity>> byType = chunks.remove(chunkKey);
+            if (byType == null)
+            {
+                return removed;
+            }
+            for (Set<Entity> entities : byType.values())
+            {
+                for (Entity entity : entities)
+                {
+                    chunkOf.remove(entity);
+                    removed.add(entity);
+                }
+            }
+            return removed;
+        }
+    }
+}
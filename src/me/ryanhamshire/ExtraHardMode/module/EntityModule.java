@@ -16,29 +16,49 @@ package me.ryanhamshire.ExtraHardMode.module;
 
 import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.EntityStateStore;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.Chunk;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Creature;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.LivingEntity;
 import org.bukkit.entity.Wither;
-import org.bukkit.metadata.FixedMetadataValue;
+
+import java.util.Arrays;
 
 /**
  * Module that contains logic dealing with entities.
  */
 public class EntityModule extends EHMModule
 {
+    /**
+     * Ticks between forgetting entities which are gone without dying, like despawned monsters.
+     */
+    private static final long SWEEP_INTERVAL = 20L * 60 * 5;
+
+    /**
+     * Lootless flag, environmental damage and fire counter of tracked entities.
+     */
+    private final EntityStateStore entityStates = new EntityStateStore();
+
+    private long sweepTask = -1;
+
+    private final SchedulerModule scheduler;
 
     /**
      * Constructor.
      *
-     * @param plugin - plugin instance.
+     * @param plugin    - plugin instance.
+     * @param scheduler - Runs the repeating task.
      */
-    public EntityModule(ExtraHardMode plugin)
+    public EntityModule(ExtraHardMode plugin, SchedulerModule scheduler)
     {
         super(plugin);
+        this.scheduler = scheduler;
     }
 
     /**
@@ -49,7 +69,7 @@ public class EntityModule extends EHMModule
      */
     public void markLootLess(LivingEntity entity)
     {
-        entity.setMetadata("extrahard_environmentalDamage", new FixedMetadataValue(plugin, entity.getMaxHealth()));
+        entityStates.addFlags(entity.getEntityId(), EntityStateStore.FLAG_LOOTLESS);
     }
 
     /**
@@ -60,15 +80,7 @@ public class EntityModule extends EHMModule
      */
     public void addEnvironmentalDamage(LivingEntity entity, int damage)
     {
-        if (!entity.hasMetadata("extrahard_environmentalDamage"))
-        {
-            entity.setMetadata("extrahard_environmentalDamage", new FixedMetadataValue(plugin, damage));
-        }
-        else
-        {
-            int currentTotalDamage = entity.getMetadata("extrahard_environmentalDamage").get(0).asInt();
-            entity.setMetadata("extrahard_environmentalDamage", new FixedMetadataValue(plugin, currentTotalDamage + damage));
-        }
+        entityStates.addDamage(entity.getEntityId(), damage);
     }
 
     /**
@@ -79,11 +91,12 @@ public class EntityModule extends EHMModule
      */
     public boolean isLootLess(LivingEntity entity)
     {
-        if (entity instanceof Creature && entity.hasMetadata("extrahard_environmentalDamage"))
+        if (entity instanceof Creature)
         {
-            int totalDamage = entity.getMetadata("extrahard_environmentalDamage").get(0).asInt();
+            int id = entity.getEntityId();
             // wither is exempt. he can't be farmed because creating him requires combining not-farmable components
-            return !(entity instanceof Wither) && (totalDamage > entity.getMaxHealth() / 2);
+            return !(entity instanceof Wither)
+                    && (entityStates.hasFlag(id, EntityStateStore.FLAG_LOOTLESS) || entityStates.getDamage(id) > entity.getMaxHealth() / 2);
         }
 
         return false;
@@ -117,14 +130,14 @@ public class EntityModule extends EHMModule
      */
     public void addFireDamage(Entity entity)
     {
-        if (!entity.hasMetadata("extrahardmode_firedamage_counter"))
+        int id = entity.getEntityId();
+        if (!entityStates.hasFlag(id, EntityStateStore.FLAG_FIRE_TRACKED))
         {
-            entity.setMetadata("extrahardmode_firedamage_counter", new FixedMetadataValue(plugin, 0));
+            entityStates.addFlags(id, EntityStateStore.FLAG_FIRE_TRACKED);
         }
         else
         {
-            int currentDmg = entity.getMetadata("extrahardmode_firedamage_counter").get(0).asInt();
-            entity.setMetadata("extrahardmode_firedamage_counter", new FixedMetadataValue(plugin, ++currentDmg));
+            entityStates.setFireCount(id, entityStates.getFireCount(id) + 1);
         }
     }
 
@@ -136,22 +149,151 @@ public class EntityModule extends EHMModule
      */
     public int getFireDamage(Entity entity)
     {
-        if (entity.hasMetadata("extrahardmode_firedamage_counter"))
+        return entityStates.getFireCount(entity.getEntityId());
+    }
+
+    /**
+     * Get the flags of an entity that should survive chunk unloads and restarts.
+     *
+     * @param entity - Entity to check.
+     * @return Flags, see EntityStateStore.
+     */
+    public int getPersistentFlags(Entity entity)
+    {
+        return entityStates.getFlags(entity.getEntityId()) & EntityStateStore.FLAG_LOOTLESS;
+    }
+
+    /**
+     * Get the environmental damage an entity has taken so far.
+     *
+     * @param entity - Entity to check.
+     * @return Accumulated damage.
+     */
+    public int getEnvironmentalDamage(Entity entity)
+    {
+        return entityStates.getDamage(entity.getEntityId());
+    }
+
+    /**
+     * Restore previously persisted state of an entity.
+     *
+     * @param entity - Entity to restore.
+     * @param flags  - Persisted flags.
+     * @param damage - Persisted environmental damage.
+     */
+    public void restoreState(Entity entity, int flags, int damage)
+    {
+        int id = entity.getEntityId();
+        if (flags != 0)
+        {
+            entityStates.addFlags(id, flags);
+        }
+        if (damage != 0)
+        {
+            entityStates.addDamage(id, damage);
+        }
+    }
+
+    /**
+     * Forget all tracked state of an entity, e.g. when it died.
+     *
+     * @param entity - Entity to forget.
+     */
+    public void forgetEntity(Entity entity)
+    {
+        if (entityStates.size() > 0)
+        {
+            entityStates.remove(entity.getEntityId());
+        }
+    }
+
+    /**
+     * Forget the tracked state of all entities in a chunk. Entities get a new id
+     * once their chunk is loaded again.
+     *
+     * @param chunk - Chunk that is being unloaded.
+     */
+    public void forgetEntities(Chunk chunk)
+    {
+        if (entityStates.size() > 0)
+        {
+            for (Entity entity : chunk.getEntities())
+            {
+                entityStates.remove(entity.getEntityId());
+            }
+        }
+    }
+
+    /**
+     * Forget the tracked state of all entities in a world.
+     *
+     * @param world - World that is being unloaded.
+     */
+    public void forgetEntities(World world)
+    {
+        if (entityStates.size() > 0)
+        {
+            for (Entity entity : world.getEntities())
+            {
+                entityStates.remove(entity.getEntityId());
+            }
+        }
+    }
+
+    /**
+     * Forget the tracked state of entities which don't exist anymore. Deaths
+     * and chunk unloads are handled as they happen, this catches the rest.
+     *
+     * @return Number of entities forgotten.
+     */
+    public int sweep()
+    {
+        if (entityStates.size() == 0)
+        {
+            return 0;
+        }
+        int[] liveIds = new int[64];
+        int count = 0;
+        for (World world : plugin.getServer().getWorlds())
         {
-            int dmg = entity.getMetadata("extrahardmode_firedamage_counter").get(0).asInt();
-            return dmg;
+            for (Entity entity : world.getEntities())
+            {
+                if (entity.isValid())
+                {
+                    if (count == liveIds.length)
+                    {
+                        liveIds = Arrays.copyOf(liveIds, count * 2);
+                    }
+                    liveIds[count++] = entity.getEntityId();
+                }
+            }
         }
-        return 0;
+        Arrays.sort(liveIds, 0, count);
+        return entityStates.retain(liveIds, count);
     }
 
     @Override
     public void starting()
     {
+        sweepTask = scheduler.scheduleRepeating(TaskCategory.MAINTENANCE, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                sweep();
+            }
+        }, SWEEP_INTERVAL, SWEEP_INTERVAL);
     }
 
     @Override
     public void closing()
     {
+        // entity states are kept across reloads, otherwise all spawner mobs would drop loot again
+        if (sweepTask != -1)
+        {
+            scheduler.cancel(sweepTask);
+            sweepTask = -1;
+        }
     }
 
 }
@@ -0,0 +1,693 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.service.AtomicFiles;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.LivingEntity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Persists grinder flags of entities across chunk unloads and restarts.
+ * <p/>
+ * Flags are stored per region (32x32 chunks) in a small binary file next to
+ * the config. Files are written on a background thread and read into memory
+ * for lookups when a chunk of the region loads. Nothing keeps a file open, so
+ * the writer can replace it at any time.
+ */
+public class EntityPersistenceModule extends EHMModule
+{
+    /**
+     * File header, "EHMF".
+     */
+    private static final int MAGIC = 0x45484D46;
+    /**
+     * File format version.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Header size in bytes: magic, version, record count.
+     */
+    private static final int HEADER_SIZE = 12;
+    /**
+     * Record size in bytes: uuid (16), chunk index (2), flags (2), damage (4), saved at (8).
+     */
+    private static final int RECORD_SIZE = 32;
+    /**
+     * Ticks between two garbage collection passes, 5 minutes.
+     */
+    private static final long GC_INTERVAL = 20L * 60 * 5;
+    /**
+     * Idle regions are dropped from memory after this many milliseconds.
+     */
+    private static final long REGION_IDLE_MILLIS = 1000L * 60 * 5;
+
+    /**
+     * Loaded regions by world name and packed region coordinates. Only accessed from the main thread.
+     */
+    private final Map<String, Map<Long, RegionFile>> regions = new HashMap<String, Map<Long, RegionFile>>();
+
+    /**
+     * Writes region files and collects garbage.
+     */
+    private ExecutorService writer;
+
+    /**
+     * Handle of the garbage collection task.
+     */
+    private long gcTask = -1;
+
+    private final RootConfig rootC;
+
+    private final EntityModule entityModule;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin       - Plugin instance.
+     * @param rootC        - Configuration.
+     * @param entityModule - Marks entities with their state.
+     * @param scheduler    - Runs the repeating task.
+     */
+    public EntityPersistenceModule(ExtraHardMode plugin, RootConfig rootC, EntityModule entityModule, SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.rootC = rootC;
+        this.entityModule = entityModule;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Remember the flags of all tracked entities in a chunk that is about to unload.
+     *
+     * @param chunk - Chunk that unloads.
+     */
+    public void saveChunk(Chunk chunk)
+    {
+        RegionFile region = null;
+        long now = System.currentTimeMillis();
+        for (Entity entity : chunk.getEntities())
+        {
+            if (!(entity instanceof LivingEntity))
+            {
+                continue;
+            }
+            int flags = entityModule.getPersistentFlags(entity);
+            int damage = entityModule.getEnvironmentalDamage(entity);
+            if (flags == 0 && damage == 0)
+            {
+                continue;
+            }
+            if (region == null)
+            {
+                region = getRegion(chunk.getWorld(), chunk.getX() >> 5, chunk.getZ() >> 5);
+            }
+            UUID uuid = entity.getUniqueId();
+            region.put(new Record(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), chunkIndex(chunk), flags, damage, now));
+        }
+        if (region != null)
+        {
+            queueWrite(region);
+        }
+    }
+
+    /**
+     * Remember the flags of all tracked entities in a world that is about to unload.
+     *
+     * @param world - World that unloads.
+     */
+    public void saveWorld(World world)
+    {
+        for (Chunk chunk : world.getLoadedChunks())
+        {
+            saveChunk(chunk);
+        }
+    }
+
+    /**
+     * Restore the flags of entities in a chunk that just loaded. Records of
+     * entities which aren't in the chunk anymore are dropped.
+     *
+     * @param chunk - Chunk that loaded.
+     */
+    public void loadChunk(Chunk chunk)
+    {
+        RegionFile region = getRegion(chunk.getWorld(), chunk.getX() >> 5, chunk.getZ() >> 5);
+        List<Record> records = region.get(chunkIndex(chunk));
+        if (records.isEmpty())
+        {
+            return;
+        }
+        Map<UUID, Entity> entities = new HashMap<UUID, Entity>();
+        for (Entity entity : chunk.getEntities())
+        {
+            if (entity instanceof LivingEntity)
+            {
+                entities.put(entity.getUniqueId(), entity);
+            }
+        }
+        for (Record record : records)
+        {
+            UUID uuid = new UUID(record.msb, record.lsb);
+            Entity entity = entities.get(uuid);
+            if (entity != null)
+            {
+                entityModule.restoreState(entity, record.flags, record.damage);
+            }
+            // either restored and tracked in memory again, or the entity is gone
+            region.remove(uuid);
+        }
+        queueWrite(region);
+    }
+
+    /**
+     * Get a region, reading its file if it isn't loaded yet.
+     */
+    private RegionFile getRegion(World world, int regionX, int regionZ)
+    {
+        Map<Long, RegionFile> worldRegions = regions.get(world.getName());
+        if (worldRegions == null)
+        {
+            worldRegions = new HashMap<Long, RegionFile>();
+            regions.put(world.getName(), worldRegions);
+        }
+        long key = PackedCoords.chunkKey(regionX, regionZ);
+        RegionFile region = worldRegions.get(key);
+        if (region == null)
+        {
+            File folder = new File(plugin.getDataFolder(), "entities" + File.separator + world.getName());
+            region = new RegionFile(new File(folder, "r." + regionX + "." + regionZ + ".ehm"));
+            try
+            {
+                region.load();
+            } catch (IOException e)
+            {
+                plugin.getLogger().log(Level.WARNING, "Could not read " + region.file.getPath() + ", starting with an empty region.", e);
+            }
+            worldRegions.put(key, region);
+        }
+        region.lastAccess = System.currentTimeMillis();
+        return region;
+    }
+
+    /**
+     * Write a region in the background if it has changes and isn't already queued.
+     */
+    private void queueWrite(final RegionFile region)
+    {
+        synchronized (region)
+        {
+            if (region.writeQueued || !region.isDirty() || writer == null)
+            {
+                return;
+            }
+            region.writeQueued = true;
+        }
+        writer.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    writeRegion(region, expiryCutoff());
+                } catch (IOException e)
+                {
+                    plugin.getLogger().log(Level.WARNING, "Could not write " + region.file.getPath(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Records saved before this time are dropped.
+     */
+    private long expiryCutoff()
+    {
+        int days = rootC.getInt(RootNode.GRINDER_FLAGS_EXPIRE_DAYS);
+        return days > 0 ? System.currentTimeMillis() - days * 24L * 60 * 60 * 1000 : Long.MIN_VALUE;
+    }
+
+    /**
+     * Write all live records of a region to its file and read the new file. Runs on the writer thread.
+     */
+    private void writeRegion(RegionFile region, long cutoff) throws IOException
+    {
+        List<Record> records;
+        Map<UUID, Record> writtenPending;
+        Set<UUID> writtenRemoved;
+        synchronized (region)
+        {
+            region.writeQueued = false;
+            records = region.liveRecords();
+            writtenPending = new HashMap<UUID, Record>(region.pending);
+            writtenRemoved = new HashSet<UUID>(region.removed);
+        }
+
+        for (Iterator<Record> iterator = records.iterator(); iterator.hasNext(); )
+        {
+            if (iterator.next().savedAt < cutoff)
+            {
+                iterator.remove();
+            }
+        }
+        writeRecords(region.file, records);
+
+        synchronized (region)
+        {
+            region.load();
+            // everything written is on disk now, unless it changed in the meantime
+            for (Map.Entry<UUID, Record> entry : writtenPending.entrySet())
+            {
+                if (region.pending.get(entry.getKey()) == entry.getValue())
+                {
+                    region.pending.remove(entry.getKey());
+                }
+            }
+            region.removed.removeAll(writtenRemoved);
+        }
+    }
+
+    /**
+     * Replace a region file with the given records. The old file is replaced with a rename,
+     * regions only hold a copy of its contents.
+     */
+    private static void writeRecords(File file, List<Record> records) throws IOException
+    {
+        if (records.isEmpty())
+        {
+            if (file.exists() && !file.delete())
+            {
+                throw new IOException("Could not delete empty region file");
+            }
+            return;
+        }
+        File folder = file.getParentFile();
+        if (!folder.exists() && !folder.mkdirs())
+        {
+            throw new IOException("Could not create " + folder.getPath());
+        }
+        File temp = new File(folder, file.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(records.size());
+            for (Record record : records)
+            {
+                out.writeLong(record.msb);
+                out.writeLong(record.lsb);
+                out.writeShort(record.chunkIndex);
+                out.writeShort(record.flags);
+                out.writeInt(record.damage);
+                out.writeLong(record.savedAt);
+            }
+        } finally
+        {
+            out.close();
+        }
+        AtomicFiles.replace(temp, file);
+    }
+
+    /**
+     * Drop idle regions from memory, flush changed ones and remove expired records from
+     * region files that aren't loaded.
+     */
+    private void collectGarbage()
+    {
+        long now = System.currentTimeMillis();
+        final Set<File> loaded = new HashSet<File>();
+        final List<File> folders = new ArrayList<File>();
+        for (Map.Entry<String, Map<Long, RegionFile>> worldEntry : regions.entrySet())
+        {
+            folders.add(new File(plugin.getDataFolder(), "entities" + File.separator + worldEntry.getKey()));
+            for (Iterator<RegionFile> iterator = worldEntry.getValue().values().iterator(); iterator.hasNext(); )
+            {
+                RegionFile region = iterator.next();
+                synchronized (region)
+                {
+                    if (!region.writeQueued && !region.isDirty() && now - region.lastAccess > REGION_IDLE_MILLIS)
+                    {
+                        iterator.remove();
+                        continue;
+                    }
+                }
+                loaded.add(region.file);
+                queueWrite(region);
+            }
+        }
+        final long cutoff = expiryCutoff();
+        if (cutoff == Long.MIN_VALUE || writer == null)
+        {
+            return;
+        }
+        writer.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (File folder : folders)
+                {
+                    File[] files = folder.listFiles();
+                    if (files == null)
+                    {
+                        continue;
+                    }
+                    for (File file : files)
+                    {
+                        if (file.getName().endsWith(".ehm") && !loaded.contains(file))
+                        {
+                            try
+                            {
+                                compactFile(file, cutoff);
+                            } catch (IOException e)
+                            {
+                                plugin.getLogger().log(Level.WARNING, "Could not clean up " + file.getPath(), e);
+                            }
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Rewrite a region file that isn't loaded without its expired records.
+     */
+    private static void compactFile(File file, long cutoff) throws IOException
+    {
+        List<Record> records = new ArrayList<Record>();
+        boolean expired = false;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                Record record = new Record(in.readLong(), in.readLong(), in.readShort(), in.readShort(), in.readInt(), in.readLong());
+                if (record.savedAt < cutoff)
+                {
+                    expired = true;
+                }
+                else
+                {
+                    records.add(record);
+                }
+            }
+        } finally
+        {
+            in.close();
+        }
+        if (expired)
+        {
+            writeRecords(file, records);
+        }
+    }
+
+    /**
+     * Index of a chunk inside its region.
+     */
+    private static int chunkIndex(Chunk chunk)
+    {
+        return (chunk.getX() & 31) | ((chunk.getZ() & 31) << 5);
+    }
+
+    @Override
+    public void starting()
+    {
+        writer = Executors.newSingleThreadExecutor();
+        gcTask = scheduler.scheduleRepeating(TaskCategory.MAINTENANCE, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                collectGarbage();
+            }
+        }, GC_INTERVAL, GC_INTERVAL);
+        // chunks which are loaded already, like the spawn chunks, don't fire load events anymore
+        for (World world : plugin.getServer().getWorlds())
+        {
+            if (rootC.isEnabledIn(world))
+            {
+                for (Chunk chunk : world.getLoadedChunks())
+                {
+                    loadChunk(chunk);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void closing()
+    {
+        if (gcTask != -1)
+        {
+            scheduler.cancel(gcTask);
+            gcTask = -1;
+        }
+        // chunks don't fire unload events on shutdown, so save everything that is still loaded
+        for (World world : plugin.getServer().getWorlds())
+        {
+            saveWorld(world);
+        }
+        for (Map<Long, RegionFile> worldRegions : regions.values())
+        {
+            for (RegionFile region : worldRegions.values())
+            {
+                queueWrite(region);
+            }
+        }
+        if (writer != null)
+        {
+            writer.shutdown();
+            try
+            {
+                if (!writer.awaitTermination(30, TimeUnit.SECONDS))
+                {
+                    plugin.getLogger().warning("Timed out writing entity flags, some may be lost.");
+                }
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+        regions.clear();
+    }
+
+    /**
+     * A persisted entity.
+     */
+    private static class Record
+    {
+        final long msb;
+        final long lsb;
+        final int chunkIndex;
+        final int flags;
+        final int damage;
+        final long savedAt;
+
+        Record(long msb, long lsb, int chunkIndex, int flags, int damage, long savedAt)
+        {
+            this.msb = msb;
+            this.lsb = lsb;
+            this.chunkIndex = chunkIndex;
+            this.flags = flags;
+            this.damage = damage;
+            this.savedAt = savedAt;
+        }
+    }
+
+    /**
+     * Records of one region. The file contents are only read, changes are kept in memory
+     * until the writer thread replaces the file. All access is synchronized on the region.
+     */
+    private static class RegionFile
+    {
+        final File file;
+        /**
+         * File contents, null if there is no file.
+         */
+        ByteBuffer data;
+        /**
+         * Number of records in the file.
+         */
+        int recordCount;
+        /**
+         * Records in the file which are no longer valid.
+         */
+        final Set<UUID> removed = new HashSet<UUID>();
+        /**
+         * New records which aren't written yet, these replace file records of the same entity.
+         */
+        final Map<UUID, Record> pending = new HashMap<UUID, Record>();
+        /**
+         * If a write for this region is queued on the writer thread.
+         */
+        boolean writeQueued;
+        /**
+         * Last time the region was used on the main thread.
+         */
+        long lastAccess;
+
+        RegionFile(File file)
+        {
+            this.file = file;
+        }
+
+        /**
+         * (Re)read the file. The file is closed again right away, a mapping would keep it
+         * open until garbage collection and block replacing it on some platforms.
+         */
+        synchronized void load() throws IOException
+        {
+            data = null;
+            recordCount = 0;
+            if (!file.exists())
+            {
+                return;
+            }
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try
+            {
+                byte[] contents = new byte[(int) raf.length()];
+                raf.readFully(contents);
+                ByteBuffer buffer = ByteBuffer.wrap(contents);
+                if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                {
+                    throw new IOException("Not a valid region file");
+                }
+                int count = buffer.getInt(8);
+                if (HEADER_SIZE + (long) count * RECORD_SIZE > buffer.capacity())
+                {
+                    throw new IOException("Truncated region file");
+                }
+                data = buffer;
+                recordCount = count;
+            } finally
+            {
+                raf.close();
+            }
+        }
+
+        synchronized boolean isDirty()
+        {
+            return !removed.isEmpty() || !pending.isEmpty();
+        }
+
+        synchronized void put(Record record)
+        {
+            pending.put(new UUID(record.msb, record.lsb), record);
+        }
+
+        synchronized void remove(UUID uuid)
+        {
+            pending.remove(uuid);
+            removed.add(uuid);
+        }
+
+        /**
+         * Get all live records of a chunk.
+         */
+        synchronized List<Record> get(int chunkIndex)
+        {
+            List<Record> records = new ArrayList<Record>(0);
+            for (int i = 0; i < recordCount; i++)
+            {
+                int offset = HEADER_SIZE + i * RECORD_SIZE;
+                if (data.getShort(offset + 16) != chunkIndex)
+                {
+                    continue;
+                }
+                Record record = readRecord(offset);
+                UUID uuid = new UUID(record.msb, record.lsb);
+                if (!removed.contains(uuid) && !pending.containsKey(uuid))
+                {
+                    records.add(record);
+                }
+            }
+            for (Record record : pending.values())
+            {
+                if (record.chunkIndex == chunkIndex)
+                {
+                    records.add(record);
+                }
+            }
+            return records;
+        }
+
+        /**
+         * Get all live records of the region.
+         */
+        synchronized List<Record> liveRecords()
+        {
+            List<Record> records = new ArrayList<Record>(recordCount + pending.size());
+            for (int i = 0; i < recordCount; i++)
+            {
+                Record record = readRecord(HEADER_SIZE + i * RECORD_SIZE);
+                UUID uuid = new UUID(record.msb, record.lsb);
+                if (!removed.contains(uuid) && !pending.containsKey(uuid))
+                {
+                    records.add(record);
+                }
+            }
+            records.addAll(pending.values());
+            return records;
+        }
+
+        private Record readRecord(int offset)
+        {
+            return new Record(data.getLong(offset), data.getLong(offset + 8), data.getShort(offset + 16),
+                    data.getShort(offset + 18), data.getInt(offset + 20), data.getLong(offset + 24));
+        }
+    }
+}
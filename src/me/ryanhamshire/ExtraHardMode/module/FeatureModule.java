@@ -0,0 +1,189 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.event.feature.BlazeListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.CreeperListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.DragonListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.EndermanListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.ExplosionListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.FarmingListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.FeatureListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.GhastListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.GrinderListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.MonsterSpawnListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.PigZombieListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.PlayerListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.SilverfishListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.SkeletonListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.SpiderListener;
+import me.ryanhamshire.ExtraHardMode.event.feature.ZombieListener;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import org.bukkit.event.HandlerList;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Registers the listeners of the features. A listener is only registered
+ * while one of its features is switched on and EHM is enabled in at least one
+ * world, so the events of disabled features never reach EHM. The toggles are
+ * checked again with {@link #refresh()} when the config is reloaded, and
+ * listeners are registered or unregistered to match.
+ */
+public class FeatureModule extends EHMModule
+{
+    /**
+     * All feature listeners, in the order they are registered.
+     */
+    private final List<FeatureListener> features = new ArrayList<FeatureListener>();
+
+    /**
+     * Feature listeners which are registered right now.
+     */
+    private final Set<FeatureListener> registered = new HashSet<FeatureListener>();
+
+    private final RootConfig rootC;
+    private final RandomModule random;
+    private final PermissionModule permissions;
+    private final SchedulerModule scheduler;
+    private final EffectModule effects;
+    private final EntityModule entityModule;
+    private final EntityIndexModule entityIndex;
+    private final SpawnRegistryModule spawnRegistry;
+    private final TemporaryBlockModule temporaryBlock;
+    private final GrinderModule grinder;
+    private final DragonModule dragon;
+    private final BlockModule blockModule;
+    private final BlockMutationModule mutations;
+
+    /**
+     * Constructor. The modules are handed to the listeners they are used by.
+     *
+     * @param plugin         - plugin instance.
+     * @param rootC          - Configuration.
+     * @param random         - Random streams.
+     * @param permissions    - Cached permissions.
+     * @param scheduler      - Delayed tasks.
+     * @param effects        - Effect timelines.
+     * @param entityModule   - Entity flags.
+     * @param entityIndex    - Index of entities by chunk.
+     * @param spawnRegistry  - Registry of spawned monsters.
+     * @param temporaryBlock - Temporary blocks.
+     * @param grinder        - Grinder detection.
+     * @param dragon         - Dragon fights.
+     * @param blockModule    - Falling blocks.
+     * @param mutations      - Queued block changes.
+     */
+    public FeatureModule(ExtraHardMode plugin, RootConfig rootC, RandomModule random, PermissionModule permissions, SchedulerModule scheduler,
+                         EffectModule effects, EntityModule entityModule, EntityIndexModule entityIndex, SpawnRegistryModule spawnRegistry,
+                         TemporaryBlockModule temporaryBlock, GrinderModule grinder, DragonModule dragon, BlockModule blockModule,
+                         BlockMutationModule mutations)
+    {
+        super(plugin);
+        this.rootC = rootC;
+        this.random = random;
+        this.permissions = permissions;
+        this.scheduler = scheduler;
+        this.effects = effects;
+        this.entityModule = entityModule;
+        this.entityIndex = entityIndex;
+        this.spawnRegistry = spawnRegistry;
+        this.temporaryBlock = temporaryBlock;
+        this.grinder = grinder;
+        this.dragon = dragon;
+        this.blockModule = blockModule;
+        this.mutations = mutations;
+    }
+
+    /**
+     * Register the listeners of enabled features and unregister those of
+     * disabled features.
+     */
+    public void refresh()
+    {
+        boolean anyWorld = rootC.hasEnabledWorlds();
+        for (FeatureListener feature : features)
+        {
+            boolean enabled = anyWorld && feature.isEnabled();
+            if (enabled && registered.add(feature))
+            {
+                plugin.getServer().getPluginManager().registerEvents(feature, plugin);
+            }
+            else if (!enabled && registered.remove(feature))
+            {
+                HandlerList.unregisterAll(feature);
+            }
+        }
+    }
+
+    /**
+     * Number of feature listeners which are registered.
+     *
+     * @return Registered listeners.
+     */
+    public int getRegisteredCount()
+    {
+        return registered.size();
+    }
+
+    /**
+     * Number of feature listeners.
+     *
+     * @return All listeners.
+     */
+    public int getFeatureCount()
+    {
+        return features.size();
+    }
+
+    @Override
+    public void starting()
+    {
+        features.add(new ExplosionListener(plugin, rootC, random, permissions, blockModule, mutations, scheduler));
+        features.add(new MonsterSpawnListener(plugin, rootC, random, permissions, entityModule, grinder));
+        features.add(new GrinderListener(plugin, rootC, random, permissions, entityModule, grinder));
+        features.add(new PlayerListener(plugin, rootC, random, permissions));
+        features.add(new ZombieListener(plugin, rootC, random, permissions, entityModule, scheduler, spawnRegistry));
+        features.add(new SkeletonListener(plugin, rootC, random, permissions, entityModule, spawnRegistry));
+        features.add(new CreeperListener(plugin, rootC, random, permissions, effects, entityModule));
+        features.add(new PigZombieListener(plugin, rootC, random, permissions));
+        features.add(new BlazeListener(plugin, rootC, random, permissions, mutations, effects, entityModule, spawnRegistry));
+        features.add(new DragonListener(plugin, rootC, random, permissions, mutations, dragon, effects, entityIndex, entityModule,
+                spawnRegistry, temporaryBlock));
+        features.add(new GhastListener(plugin, rootC, random, permissions));
+        features.add(new SpiderListener(plugin, rootC, random, permissions, temporaryBlock));
+        features.add(new EndermanListener(plugin, rootC, random, permissions, effects));
+        features.add(new FarmingListener(plugin, rootC, random, permissions));
+        features.add(new SilverfishListener(plugin, rootC, random, permissions));
+        refresh();
+    }
+
+    @Override
+    public void closing()
+    {
+        for (FeatureListener feature : registered)
+        {
+            HandlerList.unregisterAll(feature);
+        }
+        registered.clear();
+        features.clear();
+    }
+}
@@ -0,0 +1,707 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import me.ryanhamshire.ExtraHardMode.task.DropItemsTask;
+import me.ryanhamshire.ExtraHardMode.task.ReachabilityCheckTask;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.World.Environment;
+import org.bukkit.block.BlockFace;
+import org.bukkit.entity.ExperienceOrb;
+import org.bukkit.entity.LivingEntity;
+import org.bukkit.entity.Monster;
+import org.bukkit.entity.Player;
+import org.bukkit.event.entity.CreatureSpawnEvent.SpawnReason;
+import org.bukkit.event.entity.EntityDeathEvent;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Detects monster grinders. Deaths are counted per small cell of blocks, once
+ * enough monsters died to a grinder in a cell the decision is cached for a
+ * while instead of checking the surroundings on every death. Changing a block
+ * in or next to a cell forgets everything learned about it.
+ * <p/>
+ * Whether a monster could have walked to its killer is searched on a worker
+ * thread, on a copy of the blocks around both. Meanwhile the drops are held
+ * back for a few ticks and dropped once the search found a path. If the
+ * search can't run, can't decide or takes too long, a quick check of a few
+ * points between them decides instead.
+ * <p/>
+ * Only use it from the main thread.
+ */
+public class GrinderModule extends EHMModule
+{
+    /**
+     * Cells are 4x4x4 blocks.
+     */
+    private static final int CELL_SHIFT = 2;
+    /**
+     * Deaths are counted in windows of one minute.
+     */
+    private static final long WINDOW_MILLIS = 60 * 1000L;
+    /**
+     * Grinder deaths in one window needed to confirm a cell as grinder.
+     */
+    private static final int CONFIRM_DEATHS = 3;
+    /**
+     * How long a confirmed grinder is trusted without checking again.
+     */
+    private static final long CONFIRMED_MILLIS = 5 * 60 * 1000L;
+    /**
+     * Ticks between removing cells nothing happened in.
+     */
+    private static final long PURGE_INTERVAL = 20L * 60;
+    /**
+     * How long the result of a reachability search is reused for the same cell and killer cell.
+     */
+    private static final long REACH_CACHE_MILLIS = 30 * 1000L;
+    /**
+     * Blocks searched around the monster and its killer.
+     */
+    private static final int SEARCH_MARGIN = 4;
+    /**
+     * Killers further away than this used a bow, they aren't searched.
+     */
+    private static final int MAX_SEARCH_DISTANCE = 24;
+    /**
+     * Positions visited before a search gives up.
+     */
+    private static final int MAX_SEARCH_NODES = 4096;
+    /**
+     * Ticks drops are held back at most.
+     */
+    private static final long MAX_HOLD_TICKS = 5L;
+
+    private static final int AIR = Material.AIR.getId();
+    private static final int WATER = Material.WATER.getId();
+    private static final int STATIONARY_WATER = Material.STATIONARY_WATER.getId();
+    private static final int FENCE = Material.FENCE.getId();
+    private static final int FENCE_GATE = Material.FENCE_GATE.getId();
+    private static final int COBBLE_WALL = Material.COBBLE_WALL.getId();
+    private static final int NETHER_FENCE = Material.NETHER_FENCE.getId();
+
+    /**
+     * Cells by world name and packed cell coordinates.
+     */
+    private final Map<String, Map<Long, Cell>> cells = new HashMap<String, Map<Long, Cell>>();
+
+    /**
+     * Searches started during the current death event, by entity id.
+     */
+    private final Map<Integer, PendingDeath> started = new HashMap<Integer, PendingDeath>();
+    /**
+     * Deaths whose drops are held back.
+     */
+    private final Set<PendingDeath> holding = new HashSet<PendingDeath>();
+
+    private ExecutorService searcher;
+
+    private long purgeTask = -1;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin    - plugin instance.
+     * @param scheduler - Scheduler for the drop deadlines.
+     */
+    public GrinderModule(ExtraHardMode plugin, SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Decide if a monster died in a grinder. Only checks the surroundings if
+     * the spot isn't a confirmed grinder already, and learns from the result.
+     * <p/>
+     * If the monster can't be decided right away a reachability search is
+     * started and false is returned, call holdDrops later in the same event.
+     *
+     * @param entity - Monster that died.
+     * @param killer - Player who killed it, may be null.
+     * @return True if the monster shouldn't drop loot, else false.
+     */
+    public boolean isGrinderDeath(LivingEntity entity, Player killer)
+    {
+        Location location = entity.getLocation();
+        World world = location.getWorld();
+        int x = location.getBlockX();
+        int y = location.getBlockY();
+        int z = location.getBlockZ();
+        long now = System.currentTimeMillis();
+
+        Cell cell = getCell(world, x, y, z);
+        if (cell.confirmedUntil > now)
+        {
+            return true;
+        }
+
+        // also no loot for monsters which die standing in water
+        if (isNearWater(world, x, y, z))
+        {
+            recordDeath(cell, true, now);
+            return true;
+        }
+
+        // also no loot for monsters who can't reach their (melee) killers
+        if (killer != null && killer.getWorld() == world)
+        {
+            Location killerLocation = killer.getLocation();
+            long killerCell = PackedCoords.blockKey(killerLocation.getBlockX() >> CELL_SHIFT, killerLocation.getBlockY() >> CELL_SHIFT,
+                    killerLocation.getBlockZ() >> CELL_SHIFT);
+            if (cell.reachUntil > now && cell.reachKillerCell == killerCell)
+            {
+                recordDeath(cell, !cell.reachable, now);
+                return !cell.reachable;
+            }
+            // the quick check decides if the search can't
+            boolean lineClear = canReach(entity.getEyeLocation(), killer.getEyeLocation());
+            if (startSearch(entity, location, killerLocation, killerCell, lineClear))
+            {
+                return false;
+            }
+            if (!lineClear)
+            {
+                recordDeath(cell, true, now);
+                return true;
+            }
+        }
+
+        recordDeath(cell, false, now);
+        return false;
+    }
+
+    /**
+     * Check if a monster spawns naturally on a block it couldn't spawn on in
+     * the wild, which is where grinders let them spawn.
+     *
+     * @param entity   - Spawning monster.
+     * @param location - Where it spawns.
+     * @param reason   - Reason of the spawn.
+     * @return True if the spawn has to be cancelled.
+     */
+    public boolean isUnnaturalSpawn(LivingEntity entity, Location location, SpawnReason reason)
+    {
+        if (reason != SpawnReason.NATURAL && reason != SpawnReason.VILLAGE_INVASION || !(entity instanceof Monster))
+        {
+            return false;
+        }
+        Environment environment = location.getWorld().getEnvironment();
+
+        Material underBlockType = location.getBlock().getRelative(BlockFace.DOWN).getType();
+        if (environment == Environment.NORMAL)
+        {              //natural blocks
+            return underBlockType != Material.GRASS && underBlockType != Material.STONE
+                    && underBlockType != Material.SAND && underBlockType != Material.GRAVEL
+                    && underBlockType != Material.MOSSY_COBBLESTONE && underBlockType != Material.OBSIDIAN
+                    && underBlockType != Material.COBBLESTONE && underBlockType != Material.BEDROCK
+                    && underBlockType != Material.AIR && underBlockType != Material.WATER; //bats, squid
+        }
+        else if (environment == Environment.NETHER)
+        {
+            // ghasts
+            return underBlockType != Material.NETHERRACK && underBlockType != Material.NETHER_BRICK
+                    && underBlockType != Material.SOUL_SAND && underBlockType != Material.AIR;
+        }
+        else
+        {
+            // ender dragon
+            return underBlockType != Material.ENDER_STONE && underBlockType != Material.OBSIDIAN && underBlockType != Material.AIR;
+        }
+    }
+
+    /**
+     * Hold back the drops of a monster whose reachability search is still
+     * running. Call this after all other changes to the drops were made.
+     *
+     * @param event - Death event of the monster.
+     */
+    public void holdDrops(EntityDeathEvent event)
+    {
+        final PendingDeath pending = started.remove(event.getEntity().getEntityId());
+        if (pending == null)
+        {
+            return;
+        }
+        pending.drops = new ArrayList<ItemStack>(event.getDrops());
+        pending.exp = event.getDroppedExp();
+        event.getDrops().clear();
+        event.setDroppedExp(0);
+        holding.add(pending);
+
+        // don't wait for the search forever, drop everything if it takes too long
+        scheduler.schedule(TaskCategory.GRINDER, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                searchDone(pending, ReachabilityCheckTask.INCONCLUSIVE);
+            }
+        }, MAX_HOLD_TICKS);
+    }
+
+    /**
+     * Copy the blocks between a monster and its killer and search them on the
+     * worker thread.
+     *
+     * @return True if a search was started, else false.
+     */
+    private boolean startSearch(LivingEntity entity, Location location, Location killerLocation, long killerCell, boolean lineClear)
+    {
+        World world = location.getWorld();
+        int[] start = {location.getBlockX(), location.getBlockY(), location.getBlockZ()};
+        int[] goal = {killerLocation.getBlockX(), killerLocation.getBlockY(), killerLocation.getBlockZ()};
+        if (Math.abs(start[0] - goal[0]) > MAX_SEARCH_DISTANCE || Math.abs(start[2] - goal[2]) > MAX_SEARCH_DISTANCE
+                || Math.abs(start[1] - goal[1]) > MAX_SEARCH_DISTANCE)
+        {
+            return false;
+        }
+
+        int maxHeight = world.getMaxHeight();
+        int[] box = {Math.min(start[0], goal[0]) - SEARCH_MARGIN, Math.max(0, Math.min(start[1], goal[1]) - SEARCH_MARGIN),
+                Math.min(start[2], goal[2]) - SEARCH_MARGIN, Math.max(start[0], goal[0]) + SEARCH_MARGIN,
+                Math.min(maxHeight - 1, Math.max(start[1], goal[1]) + SEARCH_MARGIN), Math.max(start[2], goal[2]) + SEARCH_MARGIN};
+
+        // the search also looks one block to the sides, two up for jumps and down for drops
+        int[] area = {box[0] - 1, Math.max(0, box[1] - ReachabilityCheckTask.MAX_DROP - 1), box[2] - 1, box[3] + 1,
+                Math.min(maxHeight - 1, box[4] + 2), box[5] + 1};
+        for (int chunkX = area[0] >> 4; chunkX <= area[3] >> 4; chunkX++)
+        {
+            for (int chunkZ = area[2] >> 4; chunkZ <= area[5] >> 4; chunkZ++)
+            {
+                // don't load chunks to judge a grinder
+                if (!world.isChunkLoaded(chunkX, chunkZ))
+                {
+                    return false;
+                }
+            }
+        }
+        // only the blocks the search can look at, whole chunk snapshots cost far more
+        short[] types = new short[(area[3] - area[0] + 1) * (area[4] - area[1] + 1) * (area[5] - area[2] + 1)];
+        int index = 0;
+        for (int x = area[0]; x <= area[3]; x++)
+        {
+            for (int y = area[1]; y <= area[4]; y++)
+            {
+                for (int z = area[2]; z <= area[5]; z++)
+                {
+                    types[index++] = (short) world.getBlockTypeIdAt(x, y, z);
+                }
+            }
+        }
+
+        final PendingDeath pending = new PendingDeath(world.getName(), start[0], start[1], start[2], killerCell, lineClear, area);
+        started.put(entity.getEntityId(), pending);
+        searcher.execute(new ReachabilityCheckTask(types, area, box, start, goal, maxHeight, MAX_SEARCH_NODES, new ReachabilityCheckTask.Callback()
+        {
+            @Override
+            public void done(final int result)
+            {
+                if (!plugin.isEnabled())
+                {
+                    return;
+                }
+                // back to the main thread
+                scheduler.runOnMainThread(TaskCategory.GRINDER, new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        searchDone(pending, result);
+                    }
+                });
+            }
+        }));
+        return true;
+    }
+
+    /**
+     * Apply the result of a search, or of running out of time. Only the first call for a death counts.
+     */
+    private void searchDone(PendingDeath pending, int result)
+    {
+        if (!holding.remove(pending))
+        {
+            return;
+        }
+        World world = plugin.getServer().getWorld(pending.world);
+        if (world == null)
+        {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        Cell cell = getCell(world, pending.x, pending.y, pending.z);
+        if (result != ReachabilityCheckTask.INCONCLUSIVE)
+        {
+            cell.reachable = result == ReachabilityCheckTask.REACHABLE;
+            cell.reachKillerCell = pending.killerCell;
+            cell.reachUntil = now + REACH_CACHE_MILLIS;
+        }
+        cell.dependOn(pending.area);
+
+        // without an answer from the search the quick check decides
+        boolean grinder = result == ReachabilityCheckTask.UNREACHABLE || result == ReachabilityCheckTask.INCONCLUSIVE && !pending.lineClear;
+        recordDeath(cell, grinder, now);
+        if (!grinder)
+        {
+            release(world, pending);
+        }
+    }
+
+    /**
+     * Drop the held back items and experience of a death.
+     */
+    private void release(World world, PendingDeath pending)
+    {
+        Location location = new Location(world, pending.x + .5, pending.y + .5, pending.z + .5);
+        new DropItemsTask(pending.drops, location).run();
+        if (pending.exp > 0)
+        {
+            world.spawn(location, ExperienceOrb.class).setExperience(pending.exp);
+        }
+    }
+
+    /**
+     * Count a death in a cell and confirm the cell as grinder once most monsters died to it.
+     */
+    private void recordDeath(Cell cell, boolean grinder, long now)
+    {
+        if (now - cell.windowStart > WINDOW_MILLIS)
+        {
+            cell.windowStart = now;
+            cell.deaths = 0;
+            cell.grinderDeaths = 0;
+        }
+        cell.deaths++;
+        if (grinder)
+        {
+            cell.grinderDeaths++;
+            // most monsters dying here died to the grinder, stop checking for a while
+            if (cell.grinderDeaths >= CONFIRM_DEATHS && cell.grinderDeaths * 2 >= cell.deaths)
+            {
+                cell.confirmedUntil = now + CONFIRMED_MILLIS;
+            }
+        }
+    }
+
+    /**
+     * Forget what was learned about the cells around a changed block, and
+     * about every cell whose searches looked at the block.
+     *
+     * @param world - World of the block.
+     * @param x     - X coordinate of the block.
+     * @param y     - Y coordinate of the block.
+     * @param z     - Z coordinate of the block.
+     */
+    public void blockChanged(World world, int x, int y, int z)
+    {
+        Map<Long, Cell> worldCells = cells.get(world.getName());
+        if (worldCells == null || worldCells.isEmpty())
+        {
+            return;
+        }
+        // the checks look one block around the monster, so neighbouring cells can depend on this block too
+        for (int cx = (x - 1) >> CELL_SHIFT; cx <= (x + 1) >> CELL_SHIFT; cx++)
+        {
+            for (int cy = (y - 1) >> CELL_SHIFT; cy <= (y + 1) >> CELL_SHIFT; cy++)
+            {
+                for (int cz = (z - 1) >> CELL_SHIFT; cz <= (z + 1) >> CELL_SHIFT; cz++)
+                {
+                    worldCells.remove(PackedCoords.blockKey(cx, cy, cz));
+                }
+            }
+        }
+        // searches look much further, between the monster and its killer
+        for (Iterator<Cell> it = worldCells.values().iterator(); it.hasNext(); )
+        {
+            if (it.next().dependsOn(x, y, z))
+            {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Forget all cells of a world.
+     *
+     * @param world - World to forget.
+     */
+    public void forgetWorld(World world)
+    {
+        cells.remove(world.getName());
+    }
+
+    /**
+     * Get the cell containing a block, creating it if needed.
+     *
+     * @param world - World of the block.
+     * @param x     - X coordinate.
+     * @param y     - Y coordinate.
+     * @param z     - Z coordinate.
+     * @return Cell.
+     */
+    private Cell getCell(World world, int x, int y, int z)
+    {
+        Map<Long, Cell> worldCells = cells.get(world.getName());
+        if (worldCells == null)
+        {
+            worldCells = new HashMap<Long, Cell>();
+            cells.put(world.getName(), worldCells);
+        }
+        Long key = PackedCoords.blockKey(x >> CELL_SHIFT, y >> CELL_SHIFT, z >> CELL_SHIFT);
+        Cell cell = worldCells.get(key);
+        if (cell == null)
+        {
+            cell = new Cell();
+            worldCells.put(key, cell);
+        }
+        return cell;
+    }
+
+    /**
+     * Check the two layers of 3x3 blocks at and below the feet for water.
+     */
+    private boolean isNearWater(World world, int x, int y, int z)
+    {
+        for (int dy = -1; dy <= 0; dy++)
+        {
+            for (int dx = -1; dx <= 1; dx++)
+            {
+                for (int dz = -1; dz <= 1; dz++)
+                {
+                    int type = world.getBlockTypeIdAt(x + dx, y + dy, z + dz);
+                    if (type == WATER || type == STATIONARY_WATER)
+                    {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check three points between the monster and its killer for anything
+     * stopping the monster from walking to the killer.
+     */
+    private boolean canReach(Location monsterEye, Location playerEye)
+    {
+        World world = monsterEye.getWorld();
+        int y = monsterEye.getBlockY();
+        for (int i = 2; i <= 8; i += 3)
+        {
+            double share = i / 10.0;
+            int x = floor(share * monsterEye.getX() + (1 - share) * playerEye.getX());
+            int z = floor(share * monsterEye.getZ() + (1 - share) * playerEye.getZ());
+
+            // monster is blocked at eye level, unable to advance toward killer
+            if (world.getBlockTypeIdAt(x, y, z) != AIR)
+            {
+                return false;
+            }
+
+            // monster doesn't have room above to hurdle a foot level block, unable to advance toward killer
+            int bottom = world.getBlockTypeIdAt(x, y - 1, z);
+            int top = world.getBlockTypeIdAt(x, y + 1, z);
+            if (top != AIR && bottom != AIR || bottom == FENCE || bottom == FENCE_GATE || bottom == COBBLE_WALL || bottom == NETHER_FENCE)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int floor(double value)
+    {
+        int floor = (int) value;
+        return value < floor ? floor - 1 : floor;
+    }
+
+    /**
+     * Remove cells without recent deaths which aren't confirmed grinders.
+     */
+    private void purge()
+    {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map<Long, Cell>> worlds = cells.values().iterator(); worlds.hasNext(); )
+        {
+            Map<Long, Cell> worldCells = worlds.next();
+            for (Iterator<Cell> it = worldCells.values().iterator(); it.hasNext(); )
+            {
+                Cell cell = it.next();
+                if (cell.confirmedUntil <= now && cell.reachUntil <= now && now - cell.windowStart > WINDOW_MILLIS)
+                {
+                    it.remove();
+                }
+            }
+            if (worldCells.isEmpty())
+            {
+                worlds.remove();
+            }
+        }
+    }
+
+    @Override
+    public void starting()
+    {
+        searcher = Executors.newSingleThreadExecutor();
+        purgeTask = scheduler.scheduleRepeating(TaskCategory.MAINTENANCE, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                purge();
+            }
+        }, PURGE_INTERVAL, PURGE_INTERVAL);
+    }
+
+    @Override
+    public void closing()
+    {
+        if (purgeTask != -1)
+        {
+            scheduler.cancel(purgeTask);
+            purgeTask = -1;
+        }
+        searcher.shutdownNow();
+        // nobody is going to wait for the searches anymore, don't eat the drops
+        for (PendingDeath pending : new ArrayList<PendingDeath>(holding))
+        {
+            World world = plugin.getServer().getWorld(pending.world);
+            if (world != null)
+            {
+                release(world, pending);
+            }
+        }
+        holding.clear();
+        started.clear();
+        cells.clear();
+    }
+
+    /**
+     * What was learned about deaths in one cell.
+     */
+    private static class Cell
+    {
+        /**
+         * Start of the current counting window.
+         */
+        long windowStart;
+        /**
+         * Deaths in the current window.
+         */
+        int deaths;
+        /**
+         * Deaths in the current window which were caused by a grinder.
+         */
+        int grinderDeaths;
+        /**
+         * Cell counts as grinder without checking until this time.
+         */
+        long confirmedUntil;
+        /**
+         * Cell of the killer the last reachability search was done for.
+         */
+        long reachKillerCell;
+        /**
+         * Result of the last reachability search.
+         */
+        boolean reachable;
+        /**
+         * The last reachability search can be reused until this time.
+         */
+        long reachUntil;
+        /**
+         * Blocks the searches of this cell looked at, min x, y, z and max x, y, z. Null if nothing was searched.
+         */
+        int[] searchArea;
+
+        /**
+         * Grow the search area so it also covers the given area.
+         */
+        void dependOn(int[] area)
+        {
+            if (searchArea == null)
+            {
+                searchArea = area.clone();
+                return;
+            }
+            for (int i = 0; i < 3; i++)
+            {
+                searchArea[i] = Math.min(searchArea[i], area[i]);
+                searchArea[i + 3] = Math.max(searchArea[i + 3], area[i + 3]);
+            }
+        }
+
+        /**
+         * Check if a search of this cell looked at a block.
+         */
+        boolean dependsOn(int x, int y, int z)
+        {
+            return searchArea != null && x >= searchArea[0] && y >= searchArea[1] && z >= searchArea[2]
+                    && x <= searchArea[3] && y <= searchArea[4] && z <= searchArea[5];
+        }
+    }
+
+    /**
+     * A death waiting for its reachability search.
+     */
+    private static class PendingDeath
+    {
+        final String world;
+        final int x, y, z;
+        final long killerCell;
+        /**
+         * Result of the quick check, used if the search doesn't decide.
+         */
+        final boolean lineClear;
+        /**
+         * Blocks the search looks at.
+         */
+        final int[] area;
+        List<ItemStack> drops;
+        int exp;
+
+        PendingDeath(String world, int x, int y, int z, long killerCell, boolean lineClear, int[] area)
+        {
+            this.world = world;
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.killerCell = killerCell;
+            this.lineClear = lineClear;
+            this.area = area;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Counts how often plants grow in each chunk during the last minute and
+ * holds back growth in chunks above a limit, so huge farms can't grow
+ * faster than the limit however many plants they have.
+ * <p/>
+ * The minute is a sliding window of six buckets of ten seconds each. Each
+ * time a new bucket starts, chunks nothing grew in for a minute are dropped.
+ */
+final class GrowthGovernor
+{
+    private static final long BUCKET_MILLIS = 10 * 1000;
+    private static final int BUCKETS = 6;
+
+    /**
+     * Counts by world name and packed chunk coordinates.
+     */
+    private final Map<String, Map<Long, Farm>> worlds = new HashMap<String, Map<Long, Farm>>();
+
+    /**
+     * Bucket of the last counted growth.
+     */
+    private long currentBucket = 0;
+
+    /**
+     * Count a growth and decide if it may happen.
+     *
+     * @param block  - Block which grows.
+     * @param limit  - Growths per chunk and minute.
+     * @param now    - Current time in milliseconds.
+     * @param random - Random generator.
+     * @return False if the growth is held back.
+     */
+    boolean allow(Block block, int limit, long now, Random random)
+    {
+        long bucket = now / BUCKET_MILLIS;
+        if (bucket != currentBucket)
+        {
+            currentBucket = bucket;
+            prune(bucket);
+        }
+        String worldName = block.getWorld().getName();
+        Map<Long, Farm> farms = worlds.get(worldName);
+        if (farms == null)
+        {
+            farms = new HashMap<Long, Farm>();
+            worlds.put(worldName, farms);
+        }
+        Long chunkKey = PackedCoords.chunkKey(block.getX() >> 4, block.getZ() >> 4);
+        Farm farm = farms.get(chunkKey);
+        if (farm == null)
+        {
+            farm = new Farm();
+            farms.put(chunkKey, farm);
+        }
+        farm.count(bucket);
+        int growths = farm.growths(bucket);
+        // keep about limit growths per minute, however many plants try to grow
+        if (growths > limit && random.nextInt(growths) < growths - limit)
+        {
+            farm.heldBack++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Get the chunks with the most growths during the last minute.
+     *
+     * @param count - Number of chunks.
+     * @param now   - Current time in milliseconds.
+     * @return Chunks, the most growths first.
+     */
+    List<BlockModule.FarmChunk> getHottest(int count, long now)
+    {
+        long bucket = now / BUCKET_MILLIS;
+        List<BlockModule.FarmChunk> chunks = new ArrayList<BlockModule.FarmChunk>();
+        for (Map.Entry<String, Map<Long, Farm>> worldEntry : worlds.entrySet())
+        {
+            Iterator<Map.Entry<Long, Farm>> iterator = worldEntry.getValue().entrySet().iterator();
+            while (iterator.hasNext())
+            {
+                Map.Entry<Long, Farm> entry = iterator.next();
+                int growths = entry.getValue().growths(bucket);
+                if (growths == 0)
+                {
+                    // nothing grew for a minute, not a farm worth tracking
+                    iterator.remove();
+                    continue;
+                }
+                long key = entry.getKey();
+                chunks.add(new BlockModule.FarmChunk(worldEntry.getKey(), PackedCoords.chunkX(key), PackedCoords.chunkZ(key), growths,
+                        entry.getValue().heldBack));
+            }
+        }
+        Collections.sort(chunks, new Comparator<BlockModule.FarmChunk>()
+        {
+            @Override
+            public int compare(BlockModule.FarmChunk a, BlockModule.FarmChunk b)
+            {
+                return b.growths - a.growths;
+            }
+        });
+        return chunks.size() > count ? new ArrayList<BlockModule.FarmChunk>(chunks.subList(0, count)) : chunks;
+    }
+
+    /**
+     * Drop the chunks nothing grew in during the last minute.
+     */
+    private void prune(long bucket)
+    {
+        for (Iterator<Map<Long, Farm>> worldIterator = worlds.values().iterator(); worldIterator.hasNext(); )
+        {
+            Map<Long, Farm> farms = worldIterator.next();
+            for (Iterator<Farm> iterator = farms.values().iterator(); iterator.hasNext(); )
+            {
+                if (iterator.next().growths(bucket) == 0)
+                {
+                    iterator.remove();
+                }
+            }
+            if (farms.isEmpty())
+            {
+                worldIterator.remove();
+            }
+        }
+    }
+
+    void forgetChunk(Chunk chunk)
+    {
+        Map<Long, Farm> farms = worlds.get(chunk.getWorld().getName());
+        if (farms != null)
+        {
+            farms.remove(PackedCoords.chunkKey(chunk.getX(), chunk.getZ()));
+        }
+    }
+
+    void forgetWorld(World world)
+    {
+        worlds.remove(world.getName());
+    }
+
+    void clear()
+    {
+        worlds.clear();
+    }
+
+    /**
+     * Growths of a chunk.
+     */
+    private static final class Farm
+    {
+        /**
+         * Growths per bucket, by bucket number modulo BUCKETS.
+         */
+        final int[] counts = new int[BUCKETS];
+        /**
+         * Bucket number each count belongs to.
+         */
+        final long[] buckets = new long[BUCKETS];
+        /**
+         * Growths held back since the chunk started growing.
+         */
+        long heldBack = 0;
+
+        void count(long bucket)
+        {
+            int index = (int) (bucket % BUCKETS);
+            if (buckets[index] != bucket)
+            {
+                buckets[index] = bucket;
+                counts[index] = 0;
+            }
+            counts[index]++;
+        }
+
+        int growths(long bucket)
+        {
+            int growths = 0;
+            for (int i = 0; i < BUCKETS; i++)
+            {
+                if (bucket - buckets[i] < BUCKETS)
+                {
+                    growths += counts[i];
+                }
+            }
+            return growths;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.module.DataStoreModule.PlayerData;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.entity.Player;
+
+/**
+ * Caches the permission nodes of players. With permission plugins every
+ * hasPermission walks the attachments of the player, and the bypass and
+ * silent nodes are checked on most player events.
+ * <p/>
+ * The nodes a player has are kept as a bitset by ordinal in his PlayerData,
+ * so a check is a single bit test. The bitset is filled when it's first
+ * needed after it was invalidated, which happens when the player joins,
+ * changes worlds or quits and for everyone when the plugin reloads. The
+ * nodes of all online players are also read again every minute, and right
+ * away by /ehm perms after permissions were changed.
+ * <p/>
+ * Only use it from the main thread.
+ */
+public class PermissionModule extends EHMModule
+{
+    /**
+     * Ticks between refreshing the permissions of all online players.
+     */
+    private static final long REFRESH_INTERVAL = 20L * 60;
+
+    private final DataStoreModule dataStore;
+
+    private long refreshTask = -1;
+
+    /**
+     * Bitsets filled since the module started.
+     */
+    private long refreshes = 0;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin    - plugin instance.
+     * @param dataStore - Player data.
+     * @param scheduler - Runs the repeating task.
+     */
+    public PermissionModule(ExtraHardMode plugin, DataStoreModule dataStore, SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.dataStore = dataStore;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Check if a player has a permission node, from the cache.
+     *
+     * @param player - Player.
+     * @param node   - Permission node.
+     * @return True if the player has the node.
+     */
+    public boolean has(Player player, PermissionNode node)
+    {
+        PlayerData playerData = dataStore.getPlayerData(player);
+        if (!playerData.permissionsCached)
+        {
+            refresh(player, playerData);
+        }
+        return (playerData.permissions & (1 << node.ordinal())) != 0;
+    }
+
+    /**
+     * Read the permission nodes of a player again.
+     *
+     * @param player - Player.
+     */
+    public void refresh(Player player)
+    {
+        refresh(player, dataStore.getPlayerData(player));
+    }
+
+    /**
+     * Read the permission nodes of all online players again.
+     *
+     * @return Number of players refreshed.
+     */
+    public int refreshAll()
+    {
+        Player[] players = plugin.getServer().getOnlinePlayers();
+        for (Player player : players)
+        {
+            refresh(player);
+        }
+        return players.length;
+    }
+
+    /**
+     * Forget the cached nodes of a player, they are read again on the next check.
+     *
+     * @param player - Player.
+     */
+    public void invalidate(Player player)
+    {
+        dataStore.getPlayerData(player).permissionsCached = false;
+    }
+
+    /**
+     * Forget the cached nodes of all online players.
+     */
+    public void invalidateAll()
+    {
+        for (Player player : plugin.getServer().getOnlinePlayers())
+        {
+            invalidate(player);
+        }
+    }
+
+    /**
+     * Get how often the nodes of a player were read since the module started.
+     *
+     * @return Number of refreshes.
+     */
+    public long getRefreshes()
+    {
+        return refreshes;
+    }
+
+    private void refresh(Player player, PlayerData playerData)
+    {
+        int permissions = 0;
+        for (PermissionNode node : PermissionNode.values())
+        {
+            if (player.hasPermission(node.getNode()))
+            {
+                permissions |= 1 << node.ordinal();
+            }
+        }
+        playerData.permissions = permissions;
+        playerData.permissionsCached = true;
+        refreshes++;
+    }
+
+    @Override
+    public void starting()
+    {
+        refreshTask = scheduler.scheduleRepeating(TaskCategory.MAINTENANCE, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                refreshAll();
+            }
+        }, REFRESH_INTERVAL, REFRESH_INTERVAL);
+    }
+
+    @Override
+    public void closing()
+    {
+        if (refreshTask != -1)
+        {
+            scheduler.cancel(refreshTask);
+            refreshTask = -1;
+        }
+    }
+}
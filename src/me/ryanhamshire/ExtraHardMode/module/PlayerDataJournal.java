@@ -0,0 +1,455 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.service.AtomicFiles;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Stores player data on disk. Changed records are appended to a journal by a
+ * background thread, once the journal gets long it is compacted into a
+ * snapshot holding the latest record of every player.
+ * <p/>
+ * All records are read on the background thread when the journal is opened
+ * and kept in memory afterwards, so looking up a record never touches the
+ * disk.
+ */
+public class PlayerDataJournal
+{
+    /**
+     * File header, "EHMP".
+     */
+    private static final int MAGIC = 0x45484D50;
+    /**
+     * File format version.
+     */
+    private static final int VERSION = 1;
+    /**
+     * Records appended to the journal before it is compacted.
+     */
+    private static final int COMPACT_AFTER = 1000;
+
+    private final ExtraHardMode plugin;
+
+    private final File folder;
+    private final File snapshotFile;
+    private final File journalFile;
+
+    /**
+     * Latest record of every player, by UUID.
+     */
+    private final ConcurrentMap<UUID, Record> records = new ConcurrentHashMap<UUID, Record>();
+    /**
+     * UUIDs by lower case player name.
+     */
+    private final ConcurrentMap<String, UUID> names = new ConcurrentHashMap<String, UUID>();
+    /**
+     * UUIDs written during this run, newer than anything read from the files.
+     */
+    private final Set<UUID> written = Collections.newSetFromMap(new ConcurrentHashMap<UUID, Boolean>());
+
+    /**
+     * Released once all records were read.
+     */
+    private final CountDownLatch loaded = new CountDownLatch(1);
+
+    /**
+     * Reads and writes the files. Everything below is only touched by this thread.
+     */
+    private ExecutorService writer;
+    private DataOutputStream journal;
+    private int journalRecords;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     * @param folder - Folder for the journal and snapshot files.
+     */
+    public PlayerDataJournal(ExtraHardMode plugin, File folder)
+    {
+        this.plugin = plugin;
+        this.folder = folder;
+        this.snapshotFile = new File(folder, "players.snapshot");
+        this.journalFile = new File(folder, "players.journal");
+    }
+
+    /**
+     * Start reading the stored records in the background.
+     *
+     * @param whenLoaded - Run on the background thread once all records are read, may be null.
+     */
+    public void open(final Runnable whenLoaded)
+    {
+        writer = Executors.newSingleThreadExecutor();
+        writer.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    read(snapshotFile);
+                    journalRecords = read(journalFile);
+                    // fold the journal of the last run into the snapshot, so every run starts with a short journal
+                    compact();
+                } catch (IOException e)
+                {
+                    plugin.getLogger().log(Level.WARNING, "Could not read stored player data.", e);
+                } finally
+                {
+                    loaded.countDown();
+                }
+                if (whenLoaded != null)
+                {
+                    whenLoaded.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait until the stored records were read.
+     *
+     * @param timeout - Maximum time to wait.
+     * @param unit    - Unit of timeout.
+     * @return True if the records are available, false if the time ran out.
+     */
+    public boolean awaitLoaded(long timeout, TimeUnit unit)
+    {
+        try
+        {
+            return loaded.await(timeout, unit);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Get the stored record of a player.
+     *
+     * @param id   - UUID of the player.
+     * @param name - Name of the player, used if nothing is stored for the UUID.
+     * @return Record, null if nothing is stored or the records aren't read yet.
+     */
+    public Record get(UUID id, String name)
+    {
+        Record record = records.get(id);
+        if (record == null && name != null)
+        {
+            UUID stored = names.get(name.toLowerCase(Locale.ENGLISH));
+            if (stored != null)
+            {
+                record = records.get(stored);
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Store a record, it's appended to the journal in the background.
+     *
+     * @param record - Record to store.
+     */
+    public void write(final Record record)
+    {
+        written.add(record.id);
+        records.put(record.id, record);
+        if (record.name != null)
+        {
+            names.put(record.name.toLowerCase(Locale.ENGLISH), record.id);
+        }
+        writer.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    append(record);
+                    if (journalRecords >= COMPACT_AFTER)
+                    {
+                        compact();
+                    }
+                } catch (IOException e)
+                {
+                    plugin.getLogger().log(Level.WARNING, "Could not write " + journalFile.getPath(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Write everything to the snapshot and stop the background thread, waiting for pending writes.
+     */
+    public void close()
+    {
+        writer.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    compact();
+                    closeJournal();
+                } catch (IOException e)
+                {
+                    plugin.getLogger().log(Level.WARNING, "Could not write " + snapshotFile.getPath(), e);
+                }
+            }
+        });
+        writer.shutdown();
+        try
+        {
+            if (!writer.awaitTermination(30, TimeUnit.SECONDS))
+            {
+                plugin.getLogger().warning("Timed out writing player data.");
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Read all records of a file, a record cut off at the end is ignored.
+     *
+     * @return Number of records read.
+     */
+    private int read(File file) throws IOException
+    {
+        if (!file.exists())
+        {
+            return 0;
+        }
+        int count = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("Unknown format of " + file.getPath());
+            }
+            while (true)
+            {
+                Record record = Record.read(in);
+                count++;
+                if (written.contains(record.id))
+                {
+                    continue;
+                }
+                records.put(record.id, record);
+                if (record.name != null)
+                {
+                    names.put(record.name.toLowerCase(Locale.ENGLISH), record.id);
+                }
+            }
+        } catch (EOFException e)
+        {
+            // end of file, or the last record was cut off by a crash
+        } finally
+        {
+            in.close();
+        }
+        return count;
+    }
+
+    private void append(Record record) throws IOException
+    {
+        if (journal == null)
+        {
+            if (!folder.exists() && !folder.mkdirs())
+            {
+                throw new IOException("Could not create " + folder.getPath());
+            }
+            boolean exists = journalFile.exists() && journalFile.length() > 0;
+            journal = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+            if (!exists)
+            {
+                journal.writeInt(MAGIC);
+                journal.writeInt(VERSION);
+            }
+        }
+        record.write(journal);
+        // the buffer only saves system calls within one batch, don't keep records in memory until the next write
+        journal.flush();
+        journalRecords++;
+    }
+
+    /**
+     * Write the latest records to a new snapshot and start an empty journal.
+     */
+    private void compact() throws IOException
+    {
+        if (records.isEmpty() && !journalFile.exists())
+        {
+            return;
+        }
+        if (!folder.exists() && !folder.mkdirs())
+        {
+            throw new IOException("Could not create " + folder.getPath());
+        }
+        File temp = new File(folder, snapshotFile.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Record record : records.values())
+            {
+                record.write(out);
+            }
+        } finally
+        {
+            out.close();
+        }
+        AtomicFiles.replace(temp, snapshotFile);
+        // everything in the journal is in the snapshot now
+        closeJournal();
+        journalFile.delete();
+        journalRecords = 0;
+    }
+
+    private void closeJournal() throws IOException
+    {
+        if (journal != null)
+        {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Stored state of one player.
+     */
+    public static final class Record
+    {
+        final UUID id;
+        final String name;
+        final int deaths;
+        final int dragonAttempts;
+        /**
+         * Wall clock time all messages together may be sent freely again, 0 if they may already.
+         */
+        final long allMessagesFullAt;
+        /**
+         * Wall clock time each message may be sent freely again, by name of
+         * the message node. Messages which may already aren't in it.
+         */
+        final Map<String, Long> messagesFullAt;
+
+        /**
+         * Constructor.
+         *
+         * @param id                - UUID of the player.
+         * @param name              - Name of the player.
+         * @param deaths            - Number of deaths.
+         * @param dragonAttempts    - Number of dragon fights joined.
+         * @param allMessagesFullAt - Wall clock time the cooldown of all messages ends.
+         * @param messagesFullAt    - Wall clock time the cooldown of each message ends, by name.
+         */
+        public Record(UUID id, String name, int deaths, int dragonAttempts, long allMessagesFullAt, Map<String, Long> messagesFullAt)
+        {
+            this.id = id;
+            this.name = name;
+            this.deaths = deaths;
+            this.dragonAttempts = dragonAttempts;
+            this.allMessagesFullAt = allMessagesFullAt;
+            this.messagesFullAt = messagesFullAt;
+        }
+
+        static Record read(DataInputStream in) throws IOException
+        {
+            UUID id = new UUID(in.readLong(), in.readLong());
+            String name = in.readUTF();
+            int deaths = in.readInt();
+            int dragonAttempts = in.readInt();
+            long allMessagesFullAt = in.readLong();
+            int count = in.readShort();
+            Map<String, Long> messagesFullAt = new HashMap<String, Long>();
+            for (int i = 0; i < count; i++)
+            {
+                messagesFullAt.put(in.readUTF(), in.readLong());
+            }
+            return new Record(id, name.isEmpty() ? null : name, deaths, dragonAttempts, allMessagesFullAt, messagesFullAt);
+        }
+
+        void write(DataOutputStream out) throws IOException
+        {
+            out.writeLong(id.getMostSignificantBits());
+            out.writeLong(id.getLeastSignificantBits());
+            out.writeUTF(name == null ? "" : name);
+            out.writeInt(deaths);
+            out.writeInt(dragonAttempts);
+            out.writeLong(allMessagesFullAt);
+            out.writeShort(messagesFullAt.size());
+            for (Map.Entry<String, Long> entry : messagesFullAt.entrySet())
+            {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        }
+
+        /**
+         * Check if a record holds the same state. The cooldowns are converted
+         * from another clock, so they may be off by a little.
+         *
+         * @param other - Record to compare with.
+         * @return True if nothing worth writing changed.
+         */
+        boolean sameState(Record other)
+        {
+            if (other == null || deaths != other.deaths || dragonAttempts != other.dragonAttempts
+                    || Math.abs(allMessagesFullAt - other.allMessagesFullAt) >= 1000 || !messagesFullAt.keySet().equals(other.messagesFullAt.keySet()))
+            {
+                return false;
+            }
+            for (Map.Entry<String, Long> entry : messagesFullAt.entrySet())
+            {
+                if (Math.abs(entry.getValue() - other.messagesFullAt.get(entry.getKey())) >= 1000)
+                {
+                    return false;
+                }
+            }
+            return (name == null ? other.name == null : name.equals(other.name));
+        }
+    }
+}
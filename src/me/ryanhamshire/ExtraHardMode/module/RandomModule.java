@@ -0,0 +1,120 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
+import me.ryanhamshire.ExtraHardMode.service.SplitMix64Random;
+
+import java.util.Random;
+
+/**
+ * Hands out random numbers, with a stream of its own for every feature.
+ * <p/>
+ * All streams are split from one seed in a fixed order. With a seed set in
+ * the config, every stream gives the same numbers after each start, so a
+ * recorded series of events plays out the same way again. Without one a
+ * new seed is picked and logged, so it can be put into the config to
+ * replay what happened.
+ * <p/>
+ * Only use it from the main thread.
+ */
+public class RandomModule extends EHMModule
+{
+    /**
+     * Streams by ordinal of their feature.
+     */
+    private final Random[] streams = new Random[RandomFeature.values().length];
+
+    private int seed;
+
+    private final RootConfig rootC;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - plugin instance.
+     * @param rootC  - Configuration.
+     */
+    public RandomModule(ExtraHardMode plugin, RootConfig rootC)
+    {
+        super(plugin);
+        this.rootC = rootC;
+    }
+
+    /**
+     * Get the stream of a feature.
+     *
+     * @param feature - Feature.
+     * @return Random generator.
+     */
+    public Random get(RandomFeature feature)
+    {
+        return streams[feature.ordinal()];
+    }
+
+    /**
+     * Computes random chance. 0 or less never succeeds, 100 or more always does.
+     *
+     * @param feature       - Feature deciding.
+     * @param percentChance - Percentage of success.
+     * @return True if it was successful, else false.
+     */
+    public boolean chance(RandomFeature feature, int percentChance)
+    {
+        if (percentChance <= 0)
+        {
+            return false;
+        }
+        return percentChance >= 100 || streams[feature.ordinal()].nextInt(100) < percentChance;
+    }
+
+    /**
+     * Get the seed of all streams.
+     *
+     * @return Seed.
+     */
+    public int getSeed()
+    {
+        return seed;
+    }
+
+    @Override
+    public void starting()
+    {
+        seed = rootC.getInt(RootNode.RANDOM_SEED);
+        if (seed == 0)
+        {
+            while (seed == 0)
+            {
+                seed = new SplitMix64Random(System.nanoTime() ^ System.currentTimeMillis()).nextInt();
+            }
+            plugin.getLogger().info("Random seed is " + seed + ", set it as Plugin.Random Seed to repeat this session.");
+        }
+        SplitMix64Random root = new SplitMix64Random(seed);
+        for (RandomFeature feature : RandomFeature.values())
+        {
+            streams[feature.ordinal()] = root.split();
+        }
+    }
+
+    @Override
+    public void closing()
+    {
+    }
+}
@@ -0,0 +1,597 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Runs the delayed tasks of the plugin from a single repeating task instead
+ * of scheduling each of them with the server.
+ * <p/>
+ * Tasks are kept in a hierarchical timing wheel: an inner wheel with one slot
+ * per tick for the next 256 ticks and an outer wheel with one slot per 256
+ * ticks. Tasks further ahead wait in an overflow list. Every slot is a doubly
+ * linked list, so scheduling and cancelling a task take constant time. When
+ * the inner wheel wraps around, the next slot of the outer wheel is spread
+ * over the inner one.
+ * <p/>
+ * Task records are pooled and reused. A handle holds the index of the record
+ * and its generation, so a stale handle can't cancel a reused record.
+ * <p/>
+ * Tasks may be owned by a world and a player, so all tasks of a world which
+ * unloads or of a player who leaves can be cancelled at once. Tasks should
+ * keep names, UUIDs and packed coordinates instead of worlds, players or
+ * blocks, so pending tasks don't keep them in memory.
+ * <p/>
+ * Repeating tasks keep their record and handle between runs. Tasks which are
+ * still due when a tick used up its time budget wait for the next tick.
+ * <p/>
+ * Only use it from the main thread, other threads hand tasks over with
+ * {@link #runOnMainThread(TaskCategory, Runnable)}.
+ */
+public class SchedulerModule extends EHMModule
+{
+    private static final int INNER_BITS = 8;
+    private static final int INNER_SIZE = 1 << INNER_BITS;
+    private static final int INNER_MASK = INNER_SIZE - 1;
+    private static final int OUTER_SIZE = 64;
+    private static final int OUTER_MASK = OUTER_SIZE - 1;
+
+    /**
+     * List of a record which is in the pool.
+     */
+    private static final int FREE = -1;
+    /**
+     * List of the tasks too far ahead for the outer wheel.
+     */
+    private static final int OVERFLOW = INNER_SIZE + OUTER_SIZE;
+    /**
+     * List of the tasks run in the current tick.
+     */
+    private static final int RUNNING = OVERFLOW + 1;
+    /**
+     * Time tasks may take per tick before the rest waits for the next tick.
+     */
+    private static final long TICK_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Heads of all lists: the slots of the inner wheel, the slots of the outer wheel, overflow and running.
+     */
+    private final Record[] heads = new Record[RUNNING + 1];
+
+    /**
+     * All records ever created, by index.
+     */
+    private Record[] records = new Record[64];
+    private int recordCount = 0;
+    /**
+     * Pooled records, linked by next.
+     */
+    private Record free = null;
+
+    /**
+     * Pending tasks by ordinal of their category.
+     */
+    private final int[] depth = new int[TaskCategory.values().length];
+    /**
+     * Tasks run by ordinal of their category.
+     */
+    private final long[] executed = new long[TaskCategory.values().length];
+    /**
+     * Tasks which were due, but waited for the next tick because of the time budget.
+     */
+    private long deferred = 0;
+
+    /**
+     * Tasks handed over from other threads, scheduled at the start of the next tick.
+     */
+    private final Queue<Handover> handovers = new ConcurrentLinkedQueue<Handover>();
+
+    /**
+     * Ticks since the module started.
+     */
+    private long tick = 0;
+
+    private int wheelTaskId = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - plugin instance.
+     */
+    public SchedulerModule(ExtraHardMode plugin)
+    {
+        super(plugin);
+    }
+
+    /**
+     * Run a task after a delay.
+     *
+     * @param category - Kind of task.
+     * @param task     - Task to run.
+     * @param delay    - Delay in ticks, tasks run in the next tick at the earliest.
+     * @return Handle to cancel the task.
+     */
+    public long schedule(TaskCategory category, Runnable task, long delay)
+    {
+        return schedule(category, task, delay, null, null);
+    }
+
+    /**
+     * Run a task owned by a world and/or a player after a delay.
+     *
+     * @param category - Kind of task.
+     * @param task     - Task to run.
+     * @param delay    - Delay in ticks, tasks run in the next tick at the earliest.
+     * @param world    - Name of the world owning the task, may be null.
+     * @param player   - UUID of the player owning the task, may be null.
+     * @return Handle to cancel the task.
+     */
+    public long schedule(TaskCategory category, Runnable task, long delay, String world, UUID player)
+    {
+        return schedule(category, task, delay, 0L, world, player);
+    }
+
+    /**
+     * Run a task after a delay and then again and again, until it is cancelled.
+     *
+     * @param category - Kind of task.
+     * @param task     - Task to run.
+     * @param delay    - Delay of the first run in ticks, tasks run in the next tick at the earliest.
+     * @param period   - Ticks between two runs.
+     * @return Handle to cancel the task.
+     */
+    public long scheduleRepeating(TaskCategory category, Runnable task, long delay, long period)
+    {
+        return schedule(category, task, delay, Math.max(1L, period), null, null);
+    }
+
+    /**
+     * Run a task in the next tick. Unlike all other methods this one may be
+     * called from any thread, the task runs on the main thread.
+     *
+     * @param category - Kind of task.
+     * @param task     - Task to run.
+     */
+    public void runOnMainThread(TaskCategory category, Runnable task)
+    {
+        handovers.add(new Handover(category, task));
+    }
+
+    private long schedule(TaskCategory category, Runnable task, long delay, long period, String world, UUID player)
+    {
+        Record record = allocate();
+        record.task = task;
+        record.category = category;
+        record.world = world;
+        record.player = player;
+        record.period = period;
+        record.due = tick + Math.max(1L, delay);
+        place(record);
+        depth[category.ordinal()]++;
+        return ((long) record.generation << 32) | record.index;
+    }
+
+    /**
+     * Cancel a task which hasn't run yet.
+     *
+     * @param handle - Handle returned when the task was scheduled.
+     * @return True if the task was cancelled, false if it already ran or was cancelled before.
+     */
+    public boolean cancel(long handle)
+    {
+        int index = (int) handle;
+        if (index < 0 || index >= recordCount)
+        {
+            return false;
+        }
+        Record record = records[index];
+        if (record.list == FREE || record.generation != (int) (handle >>> 32))
+        {
+            return false;
+        }
+        unlink(record);
+        release(record);
+        return true;
+    }
+
+    /**
+     * Cancel all pending tasks of a world, e.g. because it unloads.
+     *
+     * @param world - World owning the tasks.
+     * @return Number of tasks cancelled.
+     */
+    public int cancelWorld(World world)
+    {
+        int cancelled = 0;
+        for (int i = 0; i < recordCount; i++)
+        {
+            Record record = records[i];
+            if (record.list != FREE && world.getName().equals(record.world))
+            {
+                unlink(record);
+                release(record);
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancel all pending tasks of a player, e.g. because he left.
+     *
+     * @param player - UUID of the player owning the tasks.
+     * @return Number of tasks cancelled.
+     */
+    public int cancelPlayer(UUID player)
+    {
+        int cancelled = 0;
+        for (int i = 0; i < recordCount; i++)
+        {
+            Record record = records[i];
+            if (record.list != FREE && player.equals(record.player))
+            {
+                unlink(record);
+                release(record);
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancel all pending tasks, including the repeating ones.
+     *
+     * @return Number of tasks cancelled.
+     */
+    public int cancelAll()
+    {
+        int cancelled = 0;
+        for (int i = 0; i < recordCount; i++)
+        {
+            Record record = records[i];
+            if (record.list != FREE)
+            {
+                unlink(record);
+                release(record);
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Cancel all pending tasks which run once, e.g. because the plugin
+     * reloads. The repeating tasks of the modules keep running.
+     *
+     * @return Number of tasks cancelled.
+     */
+    public int cancelDelayed()
+    {
+        int cancelled = 0;
+        for (int i = 0; i < recordCount; i++)
+        {
+            Record record = records[i];
+            if (record.list != FREE && record.period == 0)
+            {
+                unlink(record);
+                release(record);
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Get the number of pending tasks of a category.
+     *
+     * @param category - Kind of task.
+     * @return Number of tasks waiting to run.
+     */
+    public int getQueueDepth(TaskCategory category)
+    {
+        return depth[category.ordinal()];
+    }
+
+    /**
+     * Get the number of tasks of a category which ran since the module started.
+     *
+     * @param category - Kind of task.
+     * @return Number of tasks run.
+     */
+    public long getExecuted(TaskCategory category)
+    {
+        return executed[category.ordinal()];
+    }
+
+    /**
+     * Get the number of times a due task waited for the next tick because the time budget was used up.
+     *
+     * @return Number of deferred runs.
+     */
+    public long getDeferred()
+    {
+        return deferred;
+    }
+
+    /**
+     * Advance the wheel by one tick and run the tasks which are due.
+     */
+    private void advance()
+    {
+        long start = System.nanoTime();
+        tick++;
+        if ((tick & INNER_MASK) == 0)
+        {
+            if (((tick >> INNER_BITS) & OUTER_MASK) == 0)
+            {
+                cascade(OVERFLOW);
+            }
+            cascade(INNER_SIZE + (int) ((tick >> INNER_BITS) & OUTER_MASK));
+        }
+
+        // move the slot aside, so tasks can schedule and cancel tasks while it runs
+        int slot = (int) (tick & INNER_MASK);
+        for (Record record = heads[slot]; record != null; record = record.next)
+        {
+            record.list = RUNNING;
+        }
+        heads[RUNNING] = heads[slot];
+        heads[slot] = null;
+
+        for (Handover handover = handovers.poll(); handover != null; handover = handovers.poll())
+        {
+            Record record = allocate();
+            record.task = handover.task;
+            record.category = handover.category;
+            record.due = tick;
+            record.list = RUNNING;
+            record.next = heads[RUNNING];
+            if (record.next != null)
+            {
+                record.next.prev = record;
+            }
+            heads[RUNNING] = record;
+            depth[record.category.ordinal()]++;
+        }
+
+        while (heads[RUNNING] != null)
+        {
+            if (System.nanoTime() - start > TICK_BUDGET_NANOS)
+            {
+                // out of time, everything left runs first thing next tick
+                while (heads[RUNNING] != null)
+                {
+                    Record record = heads[RUNNING];
+                    unlink(record);
+                    record.due = tick + 1;
+                    place(record);
+                    deferred++;
+                }
+                return;
+            }
+            Record record = heads[RUNNING];
+            unlink(record);
+            Runnable task = record.task;
+            TaskCategory category = record.category;
+            if (record.period > 0)
+            {
+                // placed before it runs, so the task can cancel itself
+                record.due = tick + record.period;
+                place(record);
+            }
+            else
+            {
+                release(record);
+            }
+            executed[category.ordinal()]++;
+            try
+            {
+                task.run();
+            } catch (Throwable t)
+            {
+                plugin.getLogger().log(Level.WARNING, "Task of category " + category + " failed.", t);
+            }
+        }
+    }
+
+    /**
+     * Place all records of a list again, relative to the current tick.
+     */
+    private void cascade(int list)
+    {
+        Record record = heads[list];
+        heads[list] = null;
+        while (record != null)
+        {
+            Record next = record.next;
+            place(record);
+            record = next;
+        }
+    }
+
+    /**
+     * Link a record into the list for its due tick.
+     */
+    private void place(Record record)
+    {
+        int list;
+        if (record.due - tick < INNER_SIZE)
+        {
+            list = (int) (record.due & INNER_MASK);
+        }
+        else if ((record.due >> INNER_BITS) - (tick >> INNER_BITS) < OUTER_SIZE)
+        {
+            list = INNER_SIZE + (int) ((record.due >> INNER_BITS) & OUTER_MASK);
+        }
+        else
+        {
+            list = OVERFLOW;
+        }
+        record.list = list;
+        record.prev = null;
+        record.next = heads[list];
+        if (record.next != null)
+        {
+            record.next.prev = record;
+        }
+        heads[list] = record;
+    }
+
+    private void unlink(Record record)
+    {
+        if (record.prev != null)
+        {
+            record.prev.next = record.next;
+        }
+        else
+        {
+            heads[record.list] = record.next;
+        }
+        if (record.next != null)
+        {
+            record.next.prev = record.prev;
+        }
+        record.prev = null;
+        record.next = null;
+    }
+
+    private Record allocate()
+    {
+        Record record = free;
+        if (record != null)
+        {
+            free = record.next;
+            record.next = null;
+            return record;
+        }
+        if (recordCount == records.length)
+        {
+            records = Arrays.copyOf(records, records.length * 2);
+        }
+        record = new Record(recordCount);
+        records[recordCount++] = record;
+        return record;
+    }
+
+    /**
+     * Return a record to the pool, invalidating its handles.
+     */
+    private void release(Record record)
+    {
+        depth[record.category.ordinal()]--;
+        record.task = null;
+        record.category = null;
+        record.world = null;
+        record.player = null;
+        record.period = 0;
+        record.generation++;
+        record.list = FREE;
+        record.next = free;
+        free = record;
+    }
+
+    @Override
+    public void starting()
+    {
+        wheelTaskId = plugin.getServer().getScheduler().scheduleSyncRepeatingTask(plugin, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                advance();
+            }
+        }, 1L, 1L);
+    }
+
+    @Override
+    public void closing()
+    {
+        if (wheelTaskId != -1)
+        {
+            plugin.getServer().getScheduler().cancelTask(wheelTaskId);
+            wheelTaskId = -1;
+        }
+        // keep the records, so handles of cancelled tasks stay stale
+        cancelAll();
+        handovers.clear();
+    }
+
+    /**
+     * A scheduled task.
+     */
+    private static final class Record
+    {
+        final int index;
+        /**
+         * Incremented every time the record returns to the pool.
+         */
+        int generation = 0;
+        /**
+         * List the record is linked into, FREE while pooled.
+         */
+        int list = FREE;
+        Record prev;
+        Record next;
+        /**
+         * Tick the task is due.
+         */
+        long due;
+        /**
+         * Ticks between two runs, 0 if the task runs once.
+         */
+        long period;
+        Runnable task;
+        TaskCategory category;
+        /**
+         * Name of the owning world, null if none.
+         */
+        String world;
+        /**
+         * UUID of the owning player, null if none.
+         */
+        UUID player;
+
+        Record(int index)
+        {
+            this.index = index;
+        }
+    }
+
+    /**
+     * A task handed over from another thread.
+     */
+    private static final class Handover
+    {
+        final TaskCategory category;
+        final Runnable task;
+
+        Handover(TaskCategory category, Runnable task)
+        {
+            this.category = category;
+            this.task = task;
+        }
+    }
+}
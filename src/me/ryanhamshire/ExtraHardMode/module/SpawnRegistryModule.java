@@ -0,0 +1,449 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.service.AtomicFiles;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Registry of the monsters spawned by the plugin itself, like dragon minions,
+ * reanimated zombies, silverfish shot by skeletons and split blazes. Cleanups
+ * remove exactly these monsters instead of every monster of a type.
+ * <p/>
+ * Monsters are kept by UUID with the chunk they were last seen in. Monsters
+ * in loaded chunks are held weakly and removed directly, monsters in unloaded
+ * chunks are removed when their chunk loads next. No chunk is loaded for a
+ * cleanup. The registry is saved when the plugin is disabled and read again
+ * when it is enabled, so monsters spawned before a restart are still known.
+ * <p/>
+ * Only use it from the main thread.
+ */
+public class SpawnRegistryModule extends EHMModule
+{
+    /**
+     * File header, "EHMS".
+     */
+    private static final int MAGIC = 0x45484D53;
+    /**
+     * File format version.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Ticks between dropping monsters which despawned.
+     */
+    private static final long PRUNE_INTERVAL = 20L * 60;
+
+    /**
+     * Registered monsters by world name and UUID.
+     */
+    private final Map<String, Map<UUID, Spawned>> worlds = new HashMap<String, Map<UUID, Spawned>>();
+
+    private long pruneTask = -1;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin    - plugin instance.
+     * @param scheduler - Runs the repeating task.
+     */
+    public SpawnRegistryModule(ExtraHardMode plugin, SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Register a monster the plugin spawned.
+     *
+     * @param entity - Spawned monster.
+     */
+    public void register(Entity entity)
+    {
+        Map<UUID, Spawned> spawned = worlds.get(entity.getWorld().getName());
+        if (spawned == null)
+        {
+            spawned = new HashMap<UUID, Spawned>();
+            worlds.put(entity.getWorld().getName(), spawned);
+        }
+        spawned.put(entity.getUniqueId(), new Spawned(entity, chunkKey(entity)));
+    }
+
+    /**
+     * Forget a monster, e.g. because it died.
+     *
+     * @param entity - Monster to forget.
+     */
+    public void unregister(Entity entity)
+    {
+        Map<UUID, Spawned> spawned = worlds.get(entity.getWorld().getName());
+        if (spawned != null)
+        {
+            spawned.remove(entity.getUniqueId());
+        }
+    }
+
+    /**
+     * Pick up the registered monsters of a chunk which just loaded, and
+     * remove the ones a cleanup missed while the chunk wasn't loaded.
+     *
+     * @param chunk - Loaded chunk.
+     */
+    public void attachChunk(Chunk chunk)
+    {
+        Map<UUID, Spawned> spawned = worlds.get(chunk.getWorld().getName());
+        if (spawned == null || spawned.isEmpty())
+        {
+            return;
+        }
+        long key = PackedCoords.chunkKey(chunk.getX(), chunk.getZ());
+        for (Entity entity : chunk.getEntities())
+        {
+            Spawned entry = spawned.get(entity.getUniqueId());
+            if (entry == null)
+            {
+                continue;
+            }
+            if (entry.removeOnLoad)
+            {
+                entity.remove();
+                spawned.remove(entity.getUniqueId());
+            }
+            else
+            {
+                entry.entity = new WeakReference<Entity>(entity);
+                entry.chunkKey = key;
+            }
+        }
+        // whatever isn't in the chunk it was last seen in is gone for good
+        for (Iterator<Spawned> it = spawned.values().iterator(); it.hasNext(); )
+        {
+            Spawned entry = it.next();
+            if (entry.entity == null && entry.chunkKey == key)
+            {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Remember where the registered monsters of an unloading chunk are.
+     *
+     * @param chunk - Unloading chunk.
+     */
+    public void detachChunk(Chunk chunk)
+    {
+        Map<UUID, Spawned> spawned = worlds.get(chunk.getWorld().getName());
+        if (spawned == null || spawned.isEmpty())
+        {
+            return;
+        }
+        for (Entity entity : chunk.getEntities())
+        {
+            Spawned entry = spawned.get(entity.getUniqueId());
+            if (entry != null)
+            {
+                entry.entity = null;
+                entry.chunkKey = PackedCoords.chunkKey(chunk.getX(), chunk.getZ());
+            }
+        }
+    }
+
+    /**
+     * Remove all registered monsters of a world. Monsters in unloaded chunks
+     * are removed when their chunk loads next.
+     *
+     * @param world - World to clean up.
+     * @return Number of monsters removed right away.
+     */
+    public int removeAll(World world)
+    {
+        Map<UUID, Spawned> spawned = worlds.get(world.getName());
+        if (spawned == null)
+        {
+            return 0;
+        }
+        int removed = 0;
+        for (Iterator<Spawned> it = spawned.values().iterator(); it.hasNext(); )
+        {
+            Spawned entry = it.next();
+            if (entry.entity == null)
+            {
+                entry.removeOnLoad = true;
+                continue;
+            }
+            Entity entity = entry.entity.get();
+            if (entity != null && entity.isValid())
+            {
+                entity.remove();
+                removed++;
+            }
+            it.remove();
+        }
+        return removed;
+    }
+
+    /**
+     * Get the number of registered monsters of a world.
+     *
+     * @param world - World to count in.
+     * @return Number of monsters.
+     */
+    public int getCount(World world)
+    {
+        Map<UUID, Spawned> spawned = worlds.get(world.getName());
+        return spawned == null ? 0 : spawned.size();
+    }
+
+    /**
+     * Forget the monsters of a world.
+     *
+     * @param world - Unloaded world.
+     */
+    public void forgetWorld(World world)
+    {
+        worlds.remove(world.getName());
+    }
+
+    /**
+     * Drop monsters which despawned or were removed while their chunk was loaded.
+     */
+    private void prune()
+    {
+        for (Map<UUID, Spawned> spawned : worlds.values())
+        {
+            for (Iterator<Spawned> it = spawned.values().iterator(); it.hasNext(); )
+            {
+                Spawned entry = it.next();
+                if (entry.entity != null)
+                {
+                    Entity entity = entry.entity.get();
+                    if (entity == null || !entity.isValid())
+                    {
+                        it.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    private static long chunkKey(Entity entity)
+    {
+        Location location = entity.getLocation();
+        return PackedCoords.chunkKey(location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    /**
+     * Read the monsters saved when the plugin was disabled last. They are
+     * picked up once their chunk is attached.
+     */
+    private void load(File file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("Unknown file format");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                String world = in.readUTF();
+                UUID id = new UUID(in.readLong(), in.readLong());
+                Spawned entry = new Spawned(null, in.readLong());
+                entry.removeOnLoad = in.readBoolean();
+                Map<UUID, Spawned> spawned = worlds.get(world);
+                if (spawned == null)
+                {
+                    spawned = new HashMap<UUID, Spawned>();
+                    worlds.put(world, spawned);
+                }
+                spawned.put(id, entry);
+            }
+        } finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Write all monsters which are still around, with the chunk they were last seen in.
+     */
+    private void save(File file) throws IOException
+    {
+        int count = 0;
+        for (Map<UUID, Spawned> spawned : worlds.values())
+        {
+            for (Iterator<Spawned> it = spawned.values().iterator(); it.hasNext(); )
+            {
+                Spawned entry = it.next();
+                if (entry.entity != null)
+                {
+                    Entity entity = entry.entity.get();
+                    if (entity == null || !entity.isValid())
+                    {
+                        it.remove();
+                        continue;
+                    }
+                    entry.chunkKey = chunkKey(entity);
+                }
+                count++;
+            }
+        }
+        if (count == 0)
+        {
+            if (file.exists() && !file.delete())
+            {
+                throw new IOException("Could not delete " + file.getPath());
+            }
+            return;
+        }
+        File folder = file.getParentFile();
+        if (!folder.exists() && !folder.mkdirs())
+        {
+            throw new IOException("Could not create " + folder.getPath());
+        }
+        // write next to the old file first, a crash while writing must not cost the old one
+        File temp = new File(folder, file.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            for (Map.Entry<String, Map<UUID, Spawned>> world : worlds.entrySet())
+            {
+                for (Map.Entry<UUID, Spawned> entry : world.getValue().entrySet())
+                {
+                    out.writeUTF(world.getKey());
+                    out.writeLong(entry.getKey().getMostSignificantBits());
+                    out.writeLong(entry.getKey().getLeastSignificantBits());
+                    out.writeLong(entry.getValue().chunkKey);
+                    out.writeBoolean(entry.getValue().removeOnLoad);
+                }
+            }
+        } finally
+        {
+            out.close();
+        }
+        AtomicFiles.replace(temp, file);
+    }
+
+    private File getFile()
+    {
+        return new File(plugin.getDataFolder(), "spawned-monsters.dat");
+    }
+
+    @Override
+    public void starting()
+    {
+        File file = getFile();
+        if (file.exists())
+        {
+            try
+            {
+                load(file);
+            } catch (IOException e)
+            {
+                plugin.getLogger().log(Level.WARNING, "Could not read " + file.getPath() + ", monsters spawned before won't be cleaned up.", e);
+            }
+        }
+        // chunks which are loaded already, like the spawn chunks, don't fire load events anymore
+        for (World world : plugin.getServer().getWorlds())
+        {
+            for (Chunk chunk : world.getLoadedChunks())
+            {
+                attachChunk(chunk);
+            }
+        }
+        pruneTask = scheduler.scheduleRepeating(TaskCategory.MAINTENANCE, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                prune();
+            }
+        }, PRUNE_INTERVAL, PRUNE_INTERVAL);
+    }
+
+    @Override
+    public void closing()
+    {
+        if (pruneTask != -1)
+        {
+            scheduler.cancel(pruneTask);
+            pruneTask = -1;
+        }
+        File file = getFile();
+        try
+        {
+            save(file);
+        } catch (IOException e)
+        {
+            plugin.getLogger().log(Level.WARNING, "Could not write " + file.getPath() + ", monsters spawned before won't be cleaned up.", e);
+        }
+        worlds.clear();
+    }
+
+    /**
+     * A registered monster.
+     */
+    private static class Spawned
+    {
+        /**
+         * The monster while its chunk is loaded, null while it's unloaded.
+         */
+        WeakReference<Entity> entity;
+        /**
+         * Packed coordinates of the chunk it was last seen in.
+         */
+        long chunkKey;
+        /**
+         * Whether a cleanup missed it while its chunk wasn't loaded.
+         */
+        boolean removeOnLoad;
+
+        Spawned(Entity entity, long chunkKey)
+        {
+            this.entity = entity == null ? null : new WeakReference<Entity>(entity);
+            this.chunkKey = chunkKey;
+        }
+    }
+}
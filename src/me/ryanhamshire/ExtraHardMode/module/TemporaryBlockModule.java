@@ -0,0 +1,467 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.module;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.config.RootConfig;
+import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.service.AtomicFiles;
+import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.TaskCategory;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.logging.Level;
+
+/**
+ * Registry of blocks EHM placed for a while only, like the webs of dead
+ * spiders. Each block is turned back to air when it expires, unless it was
+ * replaced by something else in the meantime.
+ * <p/>
+ * Blocks are kept as packed coordinates with the material they are expected
+ * to have, in a heap per world ordered by the tick they expire. Only a
+ * limited number of blocks is removed per tick, the rest waits for the next
+ * tick. Blocks which expire while their chunk isn't loaded wait for the
+ * chunk, no chunk is loaded just to remove them. Pending blocks are saved
+ * when the plugin is disabled and resumed when it is enabled again.
+ */
+public class TemporaryBlockModule extends EHMModule
+{
+    /**
+     * File header, "EHMT".
+     */
+    private static final int MAGIC = 0x45484D54;
+    /**
+     * File format version.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Blocks by world name.
+     */
+    private final Map<String, WorldBlocks> worlds = new HashMap<String, WorldBlocks>();
+
+    /**
+     * Ticks since the module started.
+     */
+    private long tick = 0;
+
+    /**
+     * Blocks removed since the module started.
+     */
+    private long removed = 0;
+
+    private long tickTask = -1;
+
+    private final RootConfig rootC;
+
+    private final GrinderModule grinder;
+
+    private final SchedulerModule scheduler;
+
+    /**
+     * Constructor.
+     *
+     * @param plugin    - plugin instance.
+     * @param rootC     - Configuration.
+     * @param grinder   - Learns about removed blocks.
+     * @param scheduler - Runs the repeating task.
+     */
+    public TemporaryBlockModule(ExtraHardMode plugin, RootConfig rootC, GrinderModule grinder, SchedulerModule scheduler)
+    {
+        super(plugin);
+        this.rootC = rootC;
+        this.grinder = grinder;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Remove a block after a while, if it still is of the given material then.
+     *
+     * @param block    - Block which was just placed, or is about to be placed.
+     * @param material - Material of the placed block.
+     * @param lifetime - Ticks until it is removed.
+     */
+    public void register(Block block, Material material, long lifetime)
+    {
+        getWorld(block.getWorld().getName()).expiring.add(new TemporaryBlock(PackedCoords.blockKey(block.getX(), block.getY(), block.getZ()),
+                material, tick + lifetime));
+    }
+
+    /**
+     * Blocks which expired while the chunk wasn't loaded are removed soon.
+     *
+     * @param chunk - Chunk which loaded.
+     */
+    public void resumeChunk(Chunk chunk)
+    {
+        WorldBlocks blocks = worlds.get(chunk.getWorld().getName());
+        if (blocks == null)
+        {
+            return;
+        }
+        List<TemporaryBlock> waiting = blocks.waiting.remove(PackedCoords.chunkKey(chunk.getX(), chunk.getZ()));
+        if (waiting != null)
+        {
+            for (TemporaryBlock block : waiting)
+            {
+                block.expiresAt = tick;
+                blocks.expiring.add(block);
+            }
+        }
+    }
+
+    /**
+     * Get the number of blocks of a world which weren't removed yet.
+     *
+     * @param world - World.
+     * @return Number of blocks, including those waiting for their chunk.
+     */
+    public int getCount(World world)
+    {
+        WorldBlocks blocks = worlds.get(world.getName());
+        if (blocks == null)
+        {
+            return 0;
+        }
+        int count = blocks.expiring.size();
+        for (List<TemporaryBlock> waiting : blocks.waiting.values())
+        {
+            count += waiting.size();
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of blocks of a world which expired and wait for their chunk to load.
+     *
+     * @param world - World.
+     * @return Number of blocks.
+     */
+    public int getWaitingCount(World world)
+    {
+        WorldBlocks blocks = worlds.get(world.getName());
+        if (blocks == null)
+        {
+            return 0;
+        }
+        int count = 0;
+        for (List<TemporaryBlock> waiting : blocks.waiting.values())
+        {
+            count += waiting.size();
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of blocks removed since the module started.
+     *
+     * @return Number of blocks.
+     */
+    public long getRemoved()
+    {
+        return removed;
+    }
+
+    private WorldBlocks getWorld(String name)
+    {
+        WorldBlocks blocks = worlds.get(name);
+        if (blocks == null)
+        {
+            blocks = new WorldBlocks();
+            worlds.put(name, blocks);
+        }
+        return blocks;
+    }
+
+    /**
+     * Remove expired blocks, up to the configured number per tick. Worlds
+     * take turns block by block, so a long backlog in one world doesn't hold
+     * up the others.
+     */
+    private void drain()
+    {
+        tick++;
+        int budget = rootC.getInt(RootNode.TEMPORARY_BLOCKS_PER_TICK);
+        List<WorldBlocks> due = new ArrayList<WorldBlocks>();
+        List<World> dueWorlds = new ArrayList<World>();
+        for (Map.Entry<String, WorldBlocks> entry : worlds.entrySet())
+        {
+            PriorityQueue<TemporaryBlock> expiring = entry.getValue().expiring;
+            if (expiring.isEmpty() || expiring.peek().expiresAt > tick)
+            {
+                continue;
+            }
+            // blocks of worlds which aren't loaded wait for the world
+            World world = plugin.getServer().getWorld(entry.getKey());
+            if (world != null)
+            {
+                due.add(entry.getValue());
+                dueWorlds.add(world);
+            }
+        }
+        while (budget > 0 && !due.isEmpty())
+        {
+            for (int i = 0; i < due.size() && budget > 0; i++)
+            {
+                PriorityQueue<TemporaryBlock> expiring = due.get(i).expiring;
+                if (expiring.isEmpty() || expiring.peek().expiresAt > tick)
+                {
+                    due.remove(i);
+                    dueWorlds.remove(i--);
+                    continue;
+                }
+                if (expire(dueWorlds.get(i), due.get(i), expiring.poll()))
+                {
+                    budget--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove an expired block, or let it wait if its chunk isn't loaded.
+     *
+     * @return True if the block was looked at, false if it waits for its chunk.
+     */
+    private boolean expire(World world, WorldBlocks blocks, TemporaryBlock block)
+    {
+        int x = PackedCoords.blockX(block.key);
+        int z = PackedCoords.blockZ(block.key);
+        if (!world.isChunkLoaded(x >> 4, z >> 4))
+        {
+            long chunkKey = PackedCoords.chunkKey(x >> 4, z >> 4);
+            List<TemporaryBlock> waiting = blocks.waiting.get(chunkKey);
+            if (waiting == null)
+            {
+                waiting = new ArrayList<TemporaryBlock>();
+                blocks.waiting.put(chunkKey, waiting);
+            }
+            waiting.add(block);
+            return false;
+        }
+        Block current = world.getBlockAt(x, PackedCoords.blockY(block.key), z);
+        // there's a chance the block was replaced since it was placed
+        if (current.getType() == block.material)
+        {
+            current.setType(Material.AIR);
+            grinder.blockChanged(world, current.getX(), current.getY(), current.getZ());
+            removed++;
+        }
+        return true;
+    }
+
+    /**
+     * Read the blocks saved when the plugin was disabled last.
+     */
+    private void load(File file) throws IOException
+    {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                throw new IOException("Unknown file format");
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                String world = in.readUTF();
+                long key = in.readLong();
+                Material material = Material.getMaterial(in.readUTF());
+                long remaining = in.readLong();
+                if (material != null)
+                {
+                    getWorld(world).expiring.add(new TemporaryBlock(key, material, tick + remaining));
+                }
+            }
+        } finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Write all blocks which weren't removed yet, with the ticks they have left.
+     */
+    private void save(File file) throws IOException
+    {
+        List<String> names = new ArrayList<String>();
+        List<TemporaryBlock> blocks = new ArrayList<TemporaryBlock>();
+        for (Map.Entry<String, WorldBlocks> entry : worlds.entrySet())
+        {
+            for (TemporaryBlock block : entry.getValue().expiring)
+            {
+                names.add(entry.getKey());
+                blocks.add(block);
+            }
+            for (List<TemporaryBlock> waiting : entry.getValue().waiting.values())
+            {
+                for (TemporaryBlock block : waiting)
+                {
+                    names.add(entry.getKey());
+                    blocks.add(block);
+                }
+            }
+        }
+        if (blocks.isEmpty())
+        {
+            if (file.exists() && !file.delete())
+            {
+                throw new IOException("Could not delete " + file.getPath());
+            }
+            return;
+        }
+        File folder = file.getParentFile();
+        if (!folder.exists() && !folder.mkdirs())
+        {
+            throw new IOException("Could not create " + folder.getPath());
+        }
+        // write next to the old file first, a crash while writing must not cost the old one
+        File temp = new File(folder, file.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(blocks.size());
+            for (int i = 0; i < blocks.size(); i++)
+            {
+                TemporaryBlock block = blocks.get(i);
+                out.writeUTF(names.get(i));
+                out.writeLong(block.key);
+                out.writeUTF(block.material.name());
+                out.writeLong(Math.max(0, block.expiresAt - tick));
+            }
+        } finally
+        {
+            out.close();
+        }
+        AtomicFiles.replace(temp, file);
+    }
+
+    private File getFile()
+    {
+        return new File(plugin.getDataFolder(), "temporary-blocks.dat");
+    }
+
+    @Override
+    public void starting()
+    {
+        File file = getFile();
+        if (file.exists())
+        {
+            try
+            {
+                load(file);
+            } catch (IOException e)
+            {
+                plugin.getLogger().log(Level.WARNING, "Could not read " + file.getPath() + ", temporary blocks placed before will stay.", e);
+            }
+        }
+        tickTask = scheduler.scheduleRepeating(TaskCategory.TICK, new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                drain();
+            }
+        }, 1L, 1L);
+    }
+
+    @Override
+    public void closing()
+    {
+        if (tickTask != -1)
+        {
+            scheduler.cancel(tickTask);
+            tickTask = -1;
+        }
+        File file = getFile();
+        try
+        {
+            save(file);
+        } catch (IOException e)
+        {
+            plugin.getLogger().log(Level.WARNING, "Could not write " + file.getPath() + ", temporary blocks placed before will stay.", e);
+        }
+        worlds.clear();
+    }
+
+    /**
+     * Blocks of a world.
+     */
+    private static final class WorldBlocks
+    {
+        /**
+         * Blocks by the tick they expire, soonest first.
+         */
+        final PriorityQueue<TemporaryBlock> expiring = new PriorityQueue<TemporaryBlock>(64, new Comparator<TemporaryBlock>()
+        {
+            @Override
+            public int compare(TemporaryBlock a, TemporaryBlock b)
+            {
+                return a.expiresAt < b.expiresAt ? -1 : a.expiresAt == b.expiresAt ? 0 : 1;
+            }
+        });
+        /**
+         * Expired blocks waiting for their chunk to load, by packed chunk coordinates.
+         */
+        final Map<Long, List<TemporaryBlock>> waiting = new HashMap<Long, List<TemporaryBlock>>();
+    }
+
+    /**
+     * A block to remove.
+     */
+    private static final class TemporaryBlock
+    {
+        /**
+         * Packed coordinates of the block.
+         */
+        final long key;
+        /**
+         * Material the block is expected to have, it is left alone otherwise.
+         */
+        final Material material;
+        /**
+         * Tick the block expires.
+         */
+        long expiresAt;
+
+        TemporaryBlock(long key, Material material, long expiresAt)
+        {
+            this.key = key;
+            this.material = material;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -16,6 +16,7 @@ package me.ryanhamshire.ExtraHardMode.module;
 
 import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import me.ryanhamshire.ExtraHardMode.service.EHMModule;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
 import org.bukkit.Color;
 import org.bukkit.FireworkEffect;
 import org.bukkit.Location;
@@ -24,20 +25,26 @@ import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Firework;
 import org.bukkit.inventory.meta.FireworkMeta;
 
+import java.util.Random;
+
 /**
  * Put all the Utility Stuff here that doesn't fit into the other modules
  */
 @SuppressWarnings("SameParameterValue")
 public class UtilityModule extends EHMModule
 {
+    private final RandomModule randomModule;
+
     /**
      * Constructor.
      *
-     * @param plugin - Plugin instance.
+     * @param plugin       - Plugin instance.
+     * @param randomModule - Random streams.
      */
-    public UtilityModule(ExtraHardMode plugin)
+    public UtilityModule(ExtraHardMode plugin, RandomModule randomModule)
     {
         super(plugin);
+        this.randomModule = randomModule;
     }
 
     /**
@@ -52,9 +59,10 @@ public class UtilityModule extends EHMModule
         FireworkMeta fireworkMeta = firework.getFireworkMeta();
 
         //Generate the colors
-        int rdmInt1 = plugin.getRandom().nextInt(255);
-        int rdmInt2 = plugin.getRandom().nextInt(255);
-        int rdmInt3 = plugin.getRandom().nextInt(255);
+        Random random = randomModule.get(RandomFeature.EFFECTS);
+        int rdmInt1 = random.nextInt(255);
+        int rdmInt2 = random.nextInt(255);
+        int rdmInt3 = random.nextInt(255);
         Color mainColor = Color.fromRGB(rdmInt1, rdmInt2, rdmInt3);
         Color fadeColor = Color.fromRGB(rdmInt2, rdmInt3, rdmInt1);
         //mainColor = Color.BLUE;
@@ -0,0 +1,119 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Replaces files with a temporary file written next to them, so a crash while
+ * writing never leaves a half written file behind.
+ * <p/>
+ * On Java 7 and later the temporary file is moved with
+ * {@code Files.move(..., ATOMIC_MOVE, REPLACE_EXISTING)}, which replaces the
+ * file in one step on every platform. The plugin still runs on Java 6, so the
+ * method is looked up at runtime. Without it, or if the file system can't move
+ * atomically, the file is renamed and, where renaming doesn't replace existing
+ * files, deleted and renamed.
+ */
+public final class AtomicFiles
+{
+    /**
+     * File.toPath(), null before Java 7.
+     */
+    private static final Method TO_PATH;
+    /**
+     * Files.move(Path, Path, CopyOption...), null before Java 7.
+     */
+    private static final Method MOVE;
+    /**
+     * ATOMIC_MOVE and REPLACE_EXISTING, null before Java 7.
+     */
+    private static final Object OPTIONS;
+
+    static
+    {
+        Method toPath = null;
+        Method move = null;
+        Object options = null;
+        try
+        {
+            Class<?> pathClass = Class.forName("java.nio.file.Path");
+            Class<?> optionClass = Class.forName("java.nio.file.CopyOption");
+            Class<?> standardClass = Class.forName("java.nio.file.StandardCopyOption");
+            options = Array.newInstance(optionClass, 2);
+            Array.set(options, 0, standardClass.getField("ATOMIC_MOVE").get(null));
+            Array.set(options, 1, standardClass.getField("REPLACE_EXISTING").get(null));
+            move = Class.forName("java.nio.file.Files").getMethod("move", pathClass, pathClass, options.getClass());
+            toPath = File.class.getMethod("toPath");
+        } catch (Exception e)
+        {
+            // Java 6, only renaming is left
+            toPath = null;
+            move = null;
+            options = null;
+        }
+        TO_PATH = toPath;
+        MOVE = move;
+        OPTIONS = options;
+    }
+
+    private AtomicFiles()
+    {
+    }
+
+    /**
+     * Replace a file with a temporary file.
+     *
+     * @param temp - Completely written temporary file, in the same folder as the file.
+     * @param file - File to replace, doesn't have to exist.
+     * @throws IOException - Thrown if the file couldn't be replaced, the temporary file is left in place then.
+     */
+    public static void replace(File temp, File file) throws IOException
+    {
+        if (MOVE != null)
+        {
+            try
+            {
+                MOVE.invoke(null, TO_PATH.invoke(temp), TO_PATH.invoke(file), OPTIONS);
+                return;
+            } catch (InvocationTargetException e)
+            {
+                Throwable cause = e.getCause();
+                // the file system can't move atomically, renaming is the best there is
+                if (!cause.getClass().getName().equals("java.nio.file.AtomicMoveNotSupportedException"))
+                {
+                    throw cause instanceof IOException ? (IOException) cause : new IOException("Could not replace " + file.getPath(), cause);
+                }
+            } catch (IllegalAccessException e)
+            {
+                // public methods of the platform, can't happen
+                throw new IOException("Could not replace " + file.getPath(), e);
+            }
+        }
+        if (!temp.renameTo(file))
+        {
+            // some platforms don't replace existing files on rename
+            file.delete();
+            if (!temp.renameTo(file))
+            {
+                throw new IOException("Could not replace " + file.getPath());
+            }
+        }
+    }
+}
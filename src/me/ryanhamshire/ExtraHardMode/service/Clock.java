@@ -0,0 +1,41 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.service;
+
+/**
+ * Source of time for cooldowns and timeouts. Only meant for measuring elapsed
+ * time, the values have no relation to the wall clock.
+ */
+public interface Clock
+{
+    /**
+     * Clock backed by System.nanoTime.
+     */
+    Clock SYSTEM = new Clock()
+    {
+        @Override
+        public long nanoTime()
+        {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * Current time.
+     *
+     * @return Time in nanoseconds.
+     */
+    long nanoTime();
+}
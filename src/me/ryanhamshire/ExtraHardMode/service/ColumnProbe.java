@@ -0,0 +1,110 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.service;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+
+/**
+ * Bounded scans up and down a column of blocks. Every scan stops at the world
+ * limits and after a given number of blocks, reads block ids by coordinates and
+ * returns keys packed with PackedCoords.blockKey, so no Block objects are
+ * created.
+ */
+public final class ColumnProbe
+{
+    /**
+     * Returned if a scan found nothing.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private static final int AIR = Material.AIR.getId();
+
+    private ColumnProbe()
+    {
+    }
+
+    /**
+     * Find the first block that isn't air at or below a position.
+     *
+     * @param world    - World to scan.
+     * @param x        - X coordinate.
+     * @param y        - Y coordinate to start at.
+     * @param z        - Z coordinate.
+     * @param maxDepth - Maximum number of blocks to read.
+     * @return Packed coordinates of the block, NONE if there is none in range.
+     */
+    public static long findGround(World world, int x, int y, int z, int maxDepth)
+    {
+        // nothing solid in the whole column, e.g. over the void in the end
+        if (world.getHighestBlockYAt(x, z) <= 0)
+        {
+            return NONE;
+        }
+        int start = Math.min(y, world.getMaxHeight() - 1);
+        int end = Math.max(0, start - maxDepth + 1);
+        for (int currentY = start; currentY >= end; currentY--)
+        {
+            if (world.getBlockTypeIdAt(x, currentY, z) != AIR)
+            {
+                return PackedCoords.blockKey(x, currentY, z);
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Find the first position at or above a position with two blocks of air,
+     * enough room for a player or monster.
+     *
+     * @param world   - World to scan.
+     * @param x       - X coordinate.
+     * @param y       - Y coordinate to start at.
+     * @param z       - Z coordinate.
+     * @param maxRise - Maximum number of blocks to move up.
+     * @return Packed coordinates of the lower air block, NONE if there is none in range.
+     */
+    public static long findHeadroom(World world, int x, int y, int z, int maxRise)
+    {
+        int start = Math.max(0, y);
+        int end = Math.min(world.getMaxHeight() - 2, start + maxRise);
+        // reuse the upper block of the last pair as lower block of the next one
+        boolean lowerIsAir = start <= end && world.getBlockTypeIdAt(x, start, z) == AIR;
+        for (int currentY = start; currentY <= end; currentY++)
+        {
+            boolean upperIsAir = world.getBlockTypeIdAt(x, currentY + 1, z) == AIR;
+            if (lowerIsAir && upperIsAir)
+            {
+                return PackedCoords.blockKey(x, currentY, z);
+            }
+            lowerIsAir = upperIsAir;
+        }
+        return NONE;
+    }
+
+    /**
+     * Get the lowest position in a column which is open to the sky, read from the heightmap.
+     *
+     * @param world - World to read.
+     * @param x     - X coordinate.
+     * @param z     - Z coordinate.
+     * @return Packed coordinates of the position.
+     */
+    public static long surface(World world, int x, int z)
+    {
+        int y = Math.max(0, Math.min(world.getHighestBlockYAt(x, z), world.getMaxHeight() - 1));
+        return PackedCoords.blockKey(x, y, z);
+    }
+}
@@ -0,0 +1,314 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.service;
+
+import java.util.Arrays;
+
+/**
+ * Per entity state keyed by entity id. Open addressing with linear probing over
+ * parallel primitive arrays, so updates don't allocate.
+ * <p/>
+ * Not thread safe, only use it from the main thread.
+ */
+public class EntityStateStore
+{
+    /**
+     * Entity won't drop loot or experience.
+     */
+    public static final int FLAG_LOOTLESS = 1;
+    /**
+     * Entity has taken fire damage at least once.
+     */
+    public static final int FLAG_FIRE_TRACKED = 1 << 1;
+
+    /**
+     * Marks a used slot, never exposed through getFlags.
+     */
+    private static final int USED = 1 << 31;
+
+    /**
+     * Initial capacity, has to be a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int[] keys;
+    private int[] flags;
+    private int[] damage;
+    private int[] fireCount;
+
+    /**
+     * Number of used slots.
+     */
+    private int size;
+    /**
+     * Capacity - 1.
+     */
+    private int mask;
+
+    /**
+     * Constructor.
+     */
+    public EntityStateStore()
+    {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Get the flags of an entity.
+     *
+     * @param id - Entity id.
+     * @return Flags, 0 if the entity isn't tracked.
+     */
+    public int getFlags(int id)
+    {
+        int slot = find(id);
+        return slot < 0 ? 0 : flags[slot] & ~USED;
+    }
+
+    /**
+     * Check if an entity has the given flag.
+     *
+     * @param id   - Entity id.
+     * @param flag - Flag to check.
+     * @return True if set, else false.
+     */
+    public boolean hasFlag(int id, int flag)
+    {
+        return (getFlags(id) & flag) != 0;
+    }
+
+    /**
+     * Set the given flags for an entity, keeping all other flags.
+     *
+     * @param id   - Entity id.
+     * @param flag - Flags to set.
+     */
+    public void addFlags(int id, int flag)
+    {
+        int slot = findOrInsert(id);
+        flags[slot] |= flag & ~USED;
+    }
+
+    /**
+     * Get the accumulated environmental damage of an entity.
+     *
+     * @param id - Entity id.
+     * @return Damage, 0 if the entity isn't tracked.
+     */
+    public int getDamage(int id)
+    {
+        int slot = find(id);
+        return slot < 0 ? 0 : damage[slot];
+    }
+
+    /**
+     * Add to the environmental damage of an entity.
+     *
+     * @param id     - Entity id.
+     * @param amount - Damage to add.
+     */
+    public void addDamage(int id, int amount)
+    {
+        int slot = findOrInsert(id);
+        damage[slot] += amount;
+    }
+
+    /**
+     * Get the fire counter of an entity.
+     *
+     * @param id - Entity id.
+     * @return Counter, 0 if the entity isn't tracked.
+     */
+    public int getFireCount(int id)
+    {
+        int slot = find(id);
+        return slot < 0 ? 0 : fireCount[slot];
+    }
+
+    /**
+     * Set the fire counter of an entity.
+     *
+     * @param id    - Entity id.
+     * @param count - New counter value.
+     */
+    public void setFireCount(int id, int count)
+    {
+        int slot = findOrInsert(id);
+        fireCount[slot] = count;
+    }
+
+    /**
+     * Check if anything is stored for an entity.
+     *
+     * @param id - Entity id.
+     * @return True if tracked, else false.
+     */
+    public boolean contains(int id)
+    {
+        return find(id) >= 0;
+    }
+
+    /**
+     * Forget everything stored for an entity.
+     *
+     * @param id - Entity id.
+     */
+    public void remove(int id)
+    {
+        int slot = find(id);
+        if (slot < 0)
+        {
+            return;
+        }
+        // backward shift deletion, keeps probe sequences intact without tombstones
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while ((flags[next] & USED) != 0)
+        {
+            int home = hash(keys[next]);
+            // move the entry into the hole if its home slot isn't between the hole and its position
+            if (((next - home) & mask) >= ((next - hole) & mask))
+            {
+                keys[hole] = keys[next];
+                flags[hole] = flags[next];
+                damage[hole] = damage[next];
+                fireCount[hole] = fireCount[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        flags[hole] = 0;
+        damage[hole] = 0;
+        fireCount[hole] = 0;
+        size--;
+    }
+
+    /**
+     * Forget every entity which isn't in the given ids, e.g. entities which
+     * despawned without dying.
+     *
+     * @param liveIds - Sorted ids of the entities which still exist.
+     * @param count   - Number of ids used in the array.
+     * @return Number of entities forgotten.
+     */
+    public int retain(int[] liveIds, int count)
+    {
+        int[] stale = new int[size];
+        int staleCount = 0;
+        for (int slot = 0; slot < keys.length; slot++)
+        {
+            if ((flags[slot] & USED) != 0 && Arrays.binarySearch(liveIds, 0, count, keys[slot]) < 0)
+            {
+                stale[staleCount++] = keys[slot];
+            }
+        }
+        // removing shifts entries around, so only remove once all slots were visited
+        for (int i = 0; i < staleCount; i++)
+        {
+            remove(stale[i]);
+        }
+        return staleCount;
+    }
+
+    /**
+     * Number of tracked entities.
+     *
+     * @return Size.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Forget all entities.
+     */
+    public void clear()
+    {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private int find(int id)
+    {
+        int slot = hash(id);
+        while ((flags[slot] & USED) != 0)
+        {
+            if (keys[slot] == id)
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int findOrInsert(int id)
+    {
+        int slot = hash(id);
+        while ((flags[slot] & USED) != 0)
+        {
+            if (keys[slot] == id)
+            {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // keep the load factor at or below 0.5
+        if ((size + 1) * 2 > keys.length)
+        {
+            grow();
+            return findOrInsert(id);
+        }
+        keys[slot] = id;
+        flags[slot] = USED;
+        size++;
+        return slot;
+    }
+
+    private int hash(int id)
+    {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new int[capacity];
+        flags = new int[capacity];
+        damage = new int[capacity];
+        fireCount = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void grow()
+    {
+        int[] oldKeys = keys;
+        int[] oldFlags = flags;
+        int[] oldDamage = damage;
+        int[] oldFireCount = fireCount;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++)
+        {
+            if ((oldFlags[i] & USED) != 0)
+            {
+                int slot = findOrInsert(oldKeys[i]);
+                flags[slot] = oldFlags[i];
+                damage[slot] = oldDamage[i];
+                fireCount[slot] = oldFireCount[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.service;
+
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates modules in the order of their dependencies. A module declares what
+ * it depends on through its constructor: every parameter besides the plugin
+ * is another module, which is created and started first and handed in, so
+ * modules keep final references instead of looking each other up.
+ */
+public class ModuleContainer
+{
+    /**
+     * Plugin instance.
+     */
+    private final ExtraHardMode plugin;
+
+    /**
+     * Constructor to use for each added module, in the order they were added.
+     */
+    private final Map<Class<? extends IModule>, Constructor<?>> constructors = new LinkedHashMap<Class<? extends IModule>, Constructor<?>>();
+
+    /**
+     * Modules by level, modules of a level only depend on modules of earlier levels.
+     */
+    private final List<List<Class<? extends IModule>>> levels = new ArrayList<List<Class<? extends IModule>>>();
+
+    /**
+     * Constructor.
+     *
+     * @param plugin - Plugin instance.
+     */
+    public ModuleContainer(ExtraHardMode plugin)
+    {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Add a module. It needs exactly one public constructor that only takes
+     * the plugin and other modules.
+     *
+     * @param clazz - Class of the module.
+     * @return This container.
+     * @throws IllegalArgumentException - Thrown if the module has no usable constructor or was added already.
+     */
+    public ModuleContainer add(Class<? extends IModule> clazz)
+    {
+        if (constructors.containsKey(clazz))
+        {
+            throw new IllegalArgumentException(clazz.getSimpleName() + " was added already");
+        }
+        Constructor<?> found = null;
+        for (Constructor<?> constructor : clazz.getConstructors())
+        {
+            if (isInjectable(constructor))
+            {
+                if (found != null)
+                {
+                    throw new IllegalArgumentException(clazz.getSimpleName() + " has more than one constructor taking only modules");
+                }
+                found = constructor;
+            }
+        }
+        if (found == null)
+        {
+            throw new IllegalArgumentException(clazz.getSimpleName() + " has no constructor taking only modules");
+        }
+        constructors.put(clazz, found);
+        return this;
+    }
+
+    /**
+     * Create, start and register all added modules, every module after the ones it depends on.
+     *
+     * @throws IllegalStateException - Thrown if a dependency wasn't added or modules depend on each other.
+     */
+    public void start()
+    {
+        sort();
+        for (List<Class<? extends IModule>> level : levels)
+        {
+            for (Class<? extends IModule> clazz : level)
+            {
+                Constructor<?> constructor = constructors.get(clazz);
+                Class<?>[] types = constructor.getParameterTypes();
+                Object[] args = new Object[types.length];
+                for (int i = 0; i < types.length; i++)
+                {
+                    args[i] = types[i] == ExtraHardMode.class ? plugin : plugin.getModuleForClass(types[i].asSubclass(IModule.class));
+                }
+                register(clazz, create(constructor, args));
+            }
+        }
+    }
+
+    /**
+     * Close all started modules in reverse order, every module before the
+     * ones it depends on.
+     */
+    public void stop()
+    {
+        for (int i = levels.size() - 1; i >= 0; i--)
+        {
+            List<Class<? extends IModule>> level = levels.get(i);
+            for (int j = level.size() - 1; j >= 0; j--)
+            {
+                plugin.deregisterModuleForClass(level.get(j));
+            }
+        }
+    }
+
+    /**
+     * Order the modules into levels, keeping the order they were added in within a level.
+     */
+    private void sort()
+    {
+        levels.clear();
+        Map<Class<? extends IModule>, Integer> missing = new LinkedHashMap<Class<? extends IModule>, Integer>();
+        for (Map.Entry<Class<? extends IModule>, Constructor<?>> entry : constructors.entrySet())
+        {
+            int count = 0;
+            for (Class<?> type : entry.getValue().getParameterTypes())
+            {
+                if (type == ExtraHardMode.class)
+                {
+                    continue;
+                }
+                if (!constructors.containsKey(type))
+                {
+                    throw new IllegalStateException(entry.getKey().getSimpleName() + " depends on " + type.getSimpleName() + ", which wasn't added");
+                }
+                count++;
+            }
+            missing.put(entry.getKey(), count);
+        }
+        while (!missing.isEmpty())
+        {
+            List<Class<? extends IModule>> level = new ArrayList<Class<? extends IModule>>();
+            for (Map.Entry<Class<? extends IModule>, Integer> entry : missing.entrySet())
+            {
+                if (entry.getValue() == 0)
+                {
+                    level.add(entry.getKey());
+                }
+            }
+            if (level.isEmpty())
+            {
+                List<String> names = new ArrayList<String>();
+                for (Class<? extends IModule> clazz : missing.keySet())
+                {
+                    names.add(clazz.getSimpleName());
+                }
+                throw new IllegalStateException("Modules depend on each other: " + names);
+            }
+            for (Class<? extends IModule> clazz : level)
+            {
+                missing.remove(clazz);
+            }
+            for (Map.Entry<Class<? extends IModule>, Integer> entry : missing.entrySet())
+            {
+                for (Class<?> type : constructors.get(entry.getKey()).getParameterTypes())
+                {
+                    if (level.contains(type))
+                    {
+                        entry.setValue(entry.getValue() - 1);
+                    }
+                }
+            }
+            levels.add(level);
+        }
+    }
+
+    /**
+     * Check if a constructor only takes the plugin and modules.
+     */
+    private static boolean isInjectable(Constructor<?> constructor)
+    {
+        for (Class<?> type : constructor.getParameterTypes())
+        {
+            if (type != ExtraHardMode.class && !IModule.class.isAssignableFrom(type))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Call a module constructor.
+     */
+    private static IModule create(Constructor<?> constructor, Object[] args)
+    {
+        try
+        {
+            return (IModule) constructor.newInstance(args);
+        } catch (InvocationTargetException e)
+        {
+            throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getSimpleName(), e.getCause());
+        } catch (InstantiationException e)
+        {
+            throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getSimpleName(), e);
+        } catch (IllegalAccessException e)
+        {
+            throw new IllegalStateException("Could not create " + constructor.getDeclaringClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Register a module with the plugin, which starts it.
+     */
+    private <T extends IModule> void register(Class<T> clazz, IModule module)
+    {
+        plugin.registerModule(clazz, clazz.cast(module));
+    }
+}
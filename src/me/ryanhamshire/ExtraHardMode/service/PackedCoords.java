@@ -0,0 +1,106 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.service;
+
+/**
+ * Packs coordinates into primitive keys, so they can be stored without holding
+ * on to Chunk, Block or Location objects.
+ */
+public final class PackedCoords
+{
+    private PackedCoords()
+    {
+    }
+
+    /**
+     * Pack block coordinates into one key. X and z use 26 bits, y uses 12 bits.
+     *
+     * @param x - X coordinate.
+     * @param y - Y coordinate, 0-4095.
+     * @param z - Z coordinate.
+     * @return Key.
+     */
+    public static long blockKey(int x, int y, int z)
+    {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    /**
+     * Get the x coordinate of a key created by blockKey.
+     *
+     * @param key - Packed key.
+     * @return X coordinate.
+     */
+    public static int blockX(long key)
+    {
+        return (int) (key >> 38);
+    }
+
+    /**
+     * Get the y coordinate of a key created by blockKey.
+     *
+     * @param key - Packed key.
+     * @return Y coordinate.
+     */
+    public static int blockY(long key)
+    {
+        return (int) (key & 0xFFF);
+    }
+
+    /**
+     * Get the z coordinate of a key created by blockKey.
+     *
+     * @param key - Packed key.
+     * @return Z coordinate.
+     */
+    public static int blockZ(long key)
+    {
+        return (int) (key << 26 >> 38);
+    }
+
+    /**
+     * Pack two ints, e.g. chunk or region coordinates, into one key.
+     *
+     * @param x - X coordinate.
+     * @param z - Z coordinate.
+     * @return Key.
+     */
+    public static long chunkKey(int x, int z)
+    {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the x coordinate of a key created by chunkKey.
+     *
+     * @param key - Packed key.
+     * @return X coordinate.
+     */
+    public static int chunkX(long key)
+    {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Get the z coordinate of a key created by chunkKey.
+     *
+     * @param key - Packed key.
+     * @return Z coordinate.
+     */
+    public static int chunkZ(long key)
+    {
+        return (int) key;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.service;
+
+/**
+ * Features with their own stream of random numbers, so the decisions of one
+ * feature don't change when another one draws more or less numbers.
+ */
+public enum RandomFeature
+{
+    /**
+     * Monsters spawning and what they spawn as.
+     */
+    MONSTER_SPAWNS,
+    /**
+     * Monsters fighting players.
+     */
+    COMBAT,
+    /**
+     * Monsters dying, their drops and what they leave behind.
+     */
+    DEATHS,
+    /**
+     * Ender dragon fights.
+     */
+    DRAGON,
+    /**
+     * Blocks breaking and catching fire.
+     */
+    BLOCKS,
+    /**
+     * Crops dying and growth held back.
+     */
+    FARMING,
+    /**
+     * Rain and snow.
+     */
+    WEATHER,
+    /**
+     * Fireworks and other effects.
+     */
+    EFFECTS
+}
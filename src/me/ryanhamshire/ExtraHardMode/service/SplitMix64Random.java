@@ -0,0 +1,106 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.service;
+
+import java.util.Random;
+
+/**
+ * SplitMix64 generator. Much faster than java.util.Random, because it keeps
+ * its state in a plain long instead of updating an AtomicLong, and it can be
+ * split into independent generators. Every split generator steps through its
+ * state with its own odd increment, the gamma, like SplittableRandom does.
+ * <p/>
+ * Not thread safe, every thread needs its own generator.
+ */
+public class SplitMix64Random extends Random
+{
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    /**
+     * Added to the state for every number, always odd.
+     */
+    private final long gamma;
+
+    /**
+     * Constructor.
+     *
+     * @param seed - Seed, the same seed gives the same numbers.
+     */
+    public SplitMix64Random(long seed)
+    {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    private SplitMix64Random(long seed, long gamma)
+    {
+        super(seed);
+        state = seed;
+        this.gamma = gamma;
+    }
+
+    @Override
+    public void setSeed(long seed)
+    {
+        // also called by the constructor of Random
+        super.setSeed(seed);
+        state = seed;
+    }
+
+    @Override
+    public long nextLong()
+    {
+        state += gamma;
+        return mix(state);
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Create a new generator with a seed and gamma drawn from this one. With
+     * a different gamma it walks a different sequence, so its numbers are
+     * independent of the ones of this generator for all practical purposes.
+     *
+     * @return Generator seeded from this one.
+     */
+    public SplitMix64Random split()
+    {
+        return new SplitMix64Random(mix(nextLong()), mixGamma(nextLong()));
+    }
+
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Turn a number into a gamma: odd, and with enough bit flips between
+     * neighbouring bits that the states don't look alike.
+     */
+    private static long mixGamma(long z)
+    {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+    }
+}
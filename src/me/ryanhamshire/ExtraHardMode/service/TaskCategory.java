@@ -0,0 +1,62 @@
+/*
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package me.ryanhamshire.ExtraHardMode.service;
+
+/**
+ * Kinds of tasks run by the scheduler module, used for metrics.
+ */
+public enum TaskCategory
+{
+    /**
+     * Blocks falling after they were broken or placed.
+     */
+    PHYSICS,
+    /**
+     * Extra explosions of TNT.
+     */
+    EXPLOSION,
+    /**
+     * Zombies reanimating.
+     */
+    ZOMBIE_RESPAWN,
+    /**
+     * Water placed or melted evaporating.
+     */
+    EVAPORATE,
+    /**
+     * Rain putting out torches.
+     */
+    RAIN,
+    /**
+     * Health and food of respawned players.
+     */
+    RESPAWN,
+    /**
+     * Drops held back while checking for monster grinders.
+     */
+    GRINDER,
+    /**
+     * Work the modules spread over every tick, like queued block changes and chunk loads.
+     */
+    TICK,
+    /**
+     * Periodic sweeps, clean ups and saves of the modules.
+     */
+    MAINTENANCE,
+    /**
+     * Anything else.
+     */
+    OTHER
+}
@@ -19,7 +19,9 @@ package me.ryanhamshire.ExtraHardMode.task;
 
 import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import me.ryanhamshire.ExtraHardMode.module.BlockModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 
@@ -35,9 +37,19 @@ public class BlockPhysicsCheckTask implements Runnable
     private ExtraHardMode plugin;
 
     /**
-     * Target block.
+     * Module applying the physics.
      */
-    private Block block;
+    private final BlockModule module;
+
+    /**
+     * Name of the world of the target block.
+     */
+    private final String world;
+
+    /**
+     * Packed coordinates of the target block.
+     */
+    private final long blockKey;
 
     /**
      * Recursion count.
@@ -48,21 +60,30 @@ public class BlockPhysicsCheckTask implements Runnable
      * Constructor.
      *
      * @param plugin         - Plugin instance.
+     * @param module         - Module applying the physics.
      * @param block          - Target block for task.
      * @param recursionCount - Recursion count for task.
      */
-    public BlockPhysicsCheckTask(ExtraHardMode plugin, Block block, int recursionCount)
+    public BlockPhysicsCheckTask(ExtraHardMode plugin, BlockModule module, Block block, int recursionCount)
     {
         this.plugin = plugin;
-        this.block = block;
+        this.module = module;
+        this.world = block.getWorld().getName();
+        this.blockKey = PackedCoords.blockKey(block.getX(), block.getY(), block.getZ());
         this.recursionCount = recursionCount;
     }
 
     @Override
     public void run()
     {
-        BlockModule module = plugin.getModuleForClass(BlockModule.class);
-        block = block.getWorld().getBlockAt(block.getLocation());
+        World world = plugin.getServer().getWorld(this.world);
+        int x = PackedCoords.blockX(blockKey);
+        int z = PackedCoords.blockZ(blockKey);
+        if (world == null || !world.isChunkLoaded(x >> 4, z >> 4))
+        {
+            return;
+        }
+        Block block = world.getBlockAt(x, PackedCoords.blockY(blockKey), z);
         boolean fall = false;
         Material material = block.getType();
         if ((block.getRelative(BlockFace.DOWN).getType() == Material.AIR || block.getRelative(BlockFace.DOWN).isLiquid() || block.getRelative(
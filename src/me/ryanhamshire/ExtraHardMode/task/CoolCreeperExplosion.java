@@ -19,12 +19,11 @@
 package me.ryanhamshire.ExtraHardMode.task;
 
 import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
-import me.ryanhamshire.ExtraHardMode.module.UtilityModule;
+import me.ryanhamshire.ExtraHardMode.module.EffectModule;
 import org.bukkit.FireworkEffect;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Creeper;
-import org.bukkit.scheduler.BukkitScheduler;
 import org.bukkit.util.Vector;
 
 /**
@@ -34,22 +33,20 @@ public class CoolCreeperExplosion implements Runnable
 {
     private Creeper deadBomber;
     private Creeper suicideBomber;
+    private Location location;
     private ExtraHardMode plugin;
-    private UtilityModule utils;
-    private BukkitScheduler scheduler;
+    private EffectModule effects;
 
     private final int numOfExplosions = 5;
     private final int ticksBetweenExplosions = 4;
     private final int ticksBeforeCatapult = 3;
     private final int ticksBeforeSuicide = 8;
-    private int mainDelay = 0;
 
-    public CoolCreeperExplosion(Creeper entity, ExtraHardMode plugin)
+    public CoolCreeperExplosion(Creeper entity, ExtraHardMode plugin, EffectModule effects)
     {
         deadBomber = entity;
         this.plugin = plugin;
-        utils = plugin.getModuleForClass(UtilityModule.class);
-        scheduler = plugin.getServer().getScheduler();
+        this.effects = effects;
     }
 
     /**
@@ -58,29 +55,38 @@ public class CoolCreeperExplosion implements Runnable
     @Override
     public void run()
     {
-        /*
-            Using Runnables and Asyncs seems to be the only way to introduce delays between actions without blocking the main thread
-         */
-
-        //For simplicity we let the creeper die and spawn a new one at the same location
         World world = deadBomber.getWorld();
-        Location location = deadBomber.getLocation();
-        suicideBomber = world.spawn(location, Creeper.class);
-        if (suicideBomber instanceof Creeper)
+        location = deadBomber.getLocation();
+        //Too many shows running, skip straight to the big bang
+        if (!effects.canPlay())
         {
-            if (deadBomber.isPowered())
-                suicideBomber.setPowered(true);
+            new CreateExplosionTask(plugin, location, 4F).run(); //equal to tnt
+            return;
         }
+
+        //For simplicity we let the creeper die and spawn a new one at the same location
+        suicideBomber = world.spawn(location, Creeper.class);
+        if (deadBomber.isPowered())
+            suicideBomber.setPowered(true);
+
+        //The whole show stops if the new creeper is killed before it explodes
+        EffectModule.Timeline timeline = new EffectModule.Timeline(suicideBomber);
+        int mainDelay = 0;
         //Everyone loves fireworks
         for (int i = 0; i < numOfExplosions; i++)
         {
-            //TODO Method is deprecated but it doesn't suggest the new name in jdocs
             mainDelay += ticksBetweenExplosions;
-            scheduler.scheduleAsyncDelayedTask(plugin, new Firework(), mainDelay);
+            timeline.at(mainDelay, new Firework());
         }
         //Catapult into air and explode midair
         mainDelay += ticksBeforeCatapult;
-        scheduler.scheduleAsyncDelayedTask(plugin, new AscendToHeaven(), mainDelay);
+        timeline.at(mainDelay, new AscendToHeaven());
+        for (int ticksInbetween = 1; ticksInbetween < ticksBeforeSuicide; ticksInbetween += ticksInbetween)
+        {
+            timeline.at(mainDelay + ticksInbetween, new RiseToGlory());
+        }
+        timeline.at(mainDelay + ticksBeforeSuicide, new Suicide());
+        effects.play(timeline);
     }
 
     private class Firework implements Runnable
@@ -88,7 +94,7 @@ public class CoolCreeperExplosion implements Runnable
         @Override
         public void run()
         {
-            utils.fireWorkRandomColors(FireworkEffect.Type.CREEPER, deadBomber.getLocation());
+            effects.firework(FireworkEffect.Type.CREEPER, location);
         }
     }
 
@@ -101,17 +107,7 @@ public class CoolCreeperExplosion implements Runnable
         @Override
         public void run()
         {
-            if (suicideBomber != null)
-            {
-                int ticksInbetween = 1;
-                suicideBomber.setTarget(null);
-                for (int i = 0; i < 10; i++)
-                {
-                    scheduler.scheduleAsyncDelayedTask(plugin, new RiseToGlory(), ticksInbetween);
-                    ticksInbetween += ticksInbetween;
-                }
-                scheduler.scheduleAsyncDelayedTask(plugin, new Suicide(), ticksBeforeSuicide);
-            }
+            suicideBomber.setTarget(null);
         }
     }
 
@@ -123,11 +119,8 @@ public class CoolCreeperExplosion implements Runnable
         @Override
         public void run()
         {
-            if (suicideBomber != null)
-            {
-                Vector holyGrail = suicideBomber.getVelocity().setY(0.5);
-                suicideBomber.setVelocity(holyGrail);
-            }
+            Vector holyGrail = suicideBomber.getVelocity().setY(0.5);
+            suicideBomber.setVelocity(holyGrail);
         }
     }
 
@@ -139,10 +132,9 @@ public class CoolCreeperExplosion implements Runnable
         @Override
         public void run()
         {
-            CreateExplosionTask boomBoom = new CreateExplosionTask(suicideBomber.getLocation(), 4F); //equal to tnt
+            CreateExplosionTask boomBoom = new CreateExplosionTask(plugin, suicideBomber.getLocation(), 4F); //equal to tnt
             boomBoom.run();
-            if (suicideBomber != null)
-                suicideBomber.remove();
+            suicideBomber.remove();
         }
     }
 
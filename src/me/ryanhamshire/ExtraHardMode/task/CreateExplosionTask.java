@@ -19,7 +19,9 @@
 
 package me.ryanhamshire.ExtraHardMode.task;
 
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import org.bukkit.Location;
+import org.bukkit.World;
 
 /**
  * Creates an explosion of specified power at the target location.
@@ -27,9 +29,17 @@ import org.bukkit.Location;
 public class CreateExplosionTask implements Runnable
 {
     /**
-     * Location of explosion.
+     * Plugin instance.
      */
-    private Location location;
+    private final ExtraHardMode plugin;
+    /**
+     * Name of the world of the explosion.
+     */
+    private final String world;
+    /**
+     * Coordinates of the explosion.
+     */
+    private final double x, y, z;
     /**
      * Power of explosion.
      */
@@ -38,18 +48,27 @@ public class CreateExplosionTask implements Runnable
     /**
      * Constructor.
      *
+     * @param plugin   - Plugin instance.
      * @param location - Location to make explosion occur.
      * @param power    - Power of resulting explosion.
      */
-    public CreateExplosionTask(Location location, float power)
+    public CreateExplosionTask(ExtraHardMode plugin, Location location, float power)
     {
-        this.location = location;
+        this.plugin = plugin;
+        this.world = location.getWorld().getName();
+        this.x = location.getX();
+        this.y = location.getY();
+        this.z = location.getZ();
         this.power = power;
     }
 
     @Override
     public void run()
     {
-        this.location.getWorld().createExplosion(this.location, this.power);
+        World world = plugin.getServer().getWorld(this.world);
+        if (world != null)
+        {
+            world.createExplosion(x, y, z, this.power);
+        }
     }
 }
@@ -19,12 +19,18 @@
 
 package me.ryanhamshire.ExtraHardMode.task;
 
-import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.module.DragonModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.service.ColumnProbe;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.*;
 import org.bukkit.util.Vector;
 
+import java.util.Random;
+
 /**
  * Task to allow a dragon to do additional attacks.
  */
@@ -32,9 +38,13 @@ public class DragonAttackTask implements Runnable
 {
 
     /**
-     * Plugin instance.
+     * Module spawning the fireballs.
+     */
+    private final DragonModule dragons;
+    /**
+     * Random streams.
      */
-    private ExtraHardMode plugin;
+    private final RandomModule random;
     /**
      * Target player.
      */
@@ -47,13 +57,15 @@ public class DragonAttackTask implements Runnable
     /**
      * Constructor.
      *
-     * @param plugin - Plugin instance.
-     * @param dragon - Dragon.
-     * @param player - Target player.
+     * @param dragons - Module spawning the fireballs.
+     * @param random  - Random streams.
+     * @param dragon  - Dragon.
+     * @param player  - Target player.
      */
-    public DragonAttackTask(ExtraHardMode plugin, Entity dragon, Player player)
+    public DragonAttackTask(DragonModule dragons, RandomModule random, Entity dragon, Player player)
     {
-        this.plugin = plugin;
+        this.dragons = dragons;
+        this.random = random;
         this.dragon = dragon;
         this.player = player;
     }
@@ -77,22 +89,23 @@ public class DragonAttackTask implements Runnable
         Location dragonLocation = this.dragon.getLocation();
 
         Location targetLocation;
-        if (plugin.random(20))
+        if (random.chance(RandomFeature.DRAGON, 20))
         {
-            targetLocation = world.getHighestBlockAt(dragonLocation).getLocation();
+            long surface = ColumnProbe.surface(world, dragonLocation.getBlockX(), dragonLocation.getBlockZ());
+            targetLocation = new Location(world, PackedCoords.blockX(surface), PackedCoords.blockY(surface), PackedCoords.blockZ(surface));
         }
         else
         {
             targetLocation = player.getLocation();
         }
 
-        Location offsetLocation = targetLocation.add(plugin.getRandom().nextInt(10) - 5, plugin.getRandom().nextInt(3) - 1,
-                plugin.getRandom().nextInt(10) - 5);
+        Random offset = random.get(RandomFeature.DRAGON);
+        Location offsetLocation = targetLocation.add(offset.nextInt(10) - 5, offset.nextInt(3) - 1, offset.nextInt(10) - 5);
 
         Vector vector = new Vector(offsetLocation.getX() - dragonLocation.getX(), offsetLocation.getY() - dragonLocation.getY(), offsetLocation.getZ()
                 - dragonLocation.getZ());
 
-        Fireball fireball = (Fireball) world.spawnEntity(dragonLocation, EntityType.FIREBALL);
+        Fireball fireball = dragons.spawnFireball(dragonLocation);
         fireball.setShooter((EnderDragon) this.dragon);
         fireball.setDirection(vector);
     }
@@ -27,7 +27,7 @@ import java.util.List;
 /**
  * Task to drop items at a specified location.
  */
-class DropItemsTask implements Runnable
+public class DropItemsTask implements Runnable
 {
 
     /**
@@ -19,7 +19,11 @@
 
 package me.ryanhamshire.ExtraHardMode.task;
 
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
+import me.ryanhamshire.ExtraHardMode.module.BlockMutationModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 
 /**
@@ -30,26 +34,52 @@ public class EvaporateWaterTask implements Runnable
 {
 
     /**
-     * Target block.
+     * Plugin instance.
      */
-    private Block block;
+    private final ExtraHardMode plugin;
+
+    /**
+     * Queues the block change.
+     */
+    private final BlockMutationModule mutations;
+
+    /**
+     * Name of the world of the target block.
+     */
+    private final String world;
+
+    /**
+     * Packed coordinates of the target block.
+     */
+    private final long blockKey;
 
     /**
      * Constructor.
      *
-     * @param block - Target block.
+     * @param plugin    - Plugin instance.
+     * @param mutations - Queues the block change.
+     * @param block     - Target block.
      */
-    public EvaporateWaterTask(Block block)
+    public EvaporateWaterTask(ExtraHardMode plugin, BlockMutationModule mutations, Block block)
     {
-        this.block = block;
+        this.plugin = plugin;
+        this.mutations = mutations;
+        this.world = block.getWorld().getName();
+        this.blockKey = PackedCoords.blockKey(block.getX(), block.getY(), block.getZ());
     }
 
     @Override
     public void run()
     {
-        if (this.block.getType() == Material.STATIONARY_WATER)
+        World world = plugin.getServer().getWorld(this.world);
+        int x = PackedCoords.blockX(blockKey);
+        int z = PackedCoords.blockZ(blockKey);
+        if (world == null || !world.isChunkLoaded(x >> 4, z >> 4))
         {
-            this.block.setData((byte) 1);
+            return;
         }
+        Block block = world.getBlockAt(x, PackedCoords.blockY(blockKey), z);
+        // with physics, so the water starts to flow away
+        mutations.setData(block, (byte) 1, true, Material.STATIONARY_WATER);
     }
 }
@@ -22,7 +22,10 @@ import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import me.ryanhamshire.ExtraHardMode.config.RootConfig;
 import me.ryanhamshire.ExtraHardMode.config.RootNode;
 import me.ryanhamshire.ExtraHardMode.module.DataStoreModule;
+import me.ryanhamshire.ExtraHardMode.module.PermissionModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
 import me.ryanhamshire.ExtraHardMode.service.PermissionNode;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
 import org.bukkit.*;
 import org.bukkit.World.Environment;
 import org.bukkit.block.Block;
@@ -50,7 +53,19 @@ public class MoreMonstersTask implements Runnable
     /**
      * Config instanz
      */
-    private RootConfig rootC;
+    private final RootConfig rootC;
+    /**
+     * Previous locations of players.
+     */
+    private final DataStoreModule dataStore;
+    /**
+     * Random streams.
+     */
+    private final RandomModule randomModule;
+    /**
+     * Cached permissions of players.
+     */
+    private final PermissionModule permissions;
     /**
      * Constructor.
      *
@@ -60,12 +75,14 @@ public class MoreMonstersTask implements Runnable
     {
         this.plugin = plugin;
         rootC = plugin.getModuleForClass(RootConfig.class);
+        dataStore = plugin.getModuleForClass(DataStoreModule.class);
+        randomModule = plugin.getModuleForClass(RandomModule.class);
+        permissions = plugin.getModuleForClass(PermissionModule.class);
     }
 
     @Override
     public void run()
     {
-        DataStoreModule dataStore = plugin.getModuleForClass(DataStoreModule.class);
         // spawn monsters from the last pass
         for (SimpleEntry<Player, Location> entry : dataStore.getPreviousLocations())
         {
@@ -96,7 +113,7 @@ public class MoreMonstersTask implements Runnable
                         // spawn random monster(s)
                         if (world.getEnvironment() == Environment.NORMAL)
                         {
-                            int randomMonster = plugin.getRandom().nextInt(90);
+                            int randomMonster = randomModule.get(RandomFeature.MONSTER_SPAWNS).nextInt(90);
                             EntityType monsterType;
                             int typeMultiplier = 1;
 
@@ -132,7 +149,7 @@ public class MoreMonstersTask implements Runnable
                         }
                         else if (world.getEnvironment() == Environment.NETHER)
                         {
-                            int random = plugin.getRandom().nextInt();
+                            int random = randomModule.get(RandomFeature.MONSTER_SPAWNS).nextInt();
 
                             if (random < 80)
                             {
@@ -156,7 +173,7 @@ public class MoreMonstersTask implements Runnable
         {
             Location verifiedLocation = null;
             //only if player hasn't got bypass and is in survival check location
-            if (!player.hasPermission(PermissionNode.BYPASS.getNode()) && player.getGameMode() == GameMode.SURVIVAL)
+            if (!permissions.has(player, PermissionNode.BYPASS) && player.getGameMode() == GameMode.SURVIVAL)
                 verifiedLocation = verifyLocation(player.getLocation());
             if (verifiedLocation != null)
                 dataStore.getPreviousLocations().add(new SimpleEntry<Player, Location>(player, verifiedLocation));
@@ -174,7 +191,7 @@ public class MoreMonstersTask implements Runnable
         Block playerBlock = location.getBlock();
         World world = location.getWorld();
 
-        if (rootC.getStringList(RootNode.WORLDS).contains(world.getName()))
+        if (rootC.isEnabledIn(world))
         {
             // Only spawn monsters in normal world. End is crowded with endermen
             // and nether is too extreme anyway, add config later
@@ -0,0 +1,287 @@
+/*
+    ExtraHardMode Server Plugin for Minecraft
+    Copyright (C) 2012 Ryan Hamshire
+
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package me.ryanhamshire.ExtraHardMode.task;
+
+import org.bukkit.Material;
+
+/**
+ * Searches a path a monster could walk from its feet to the feet of its
+ * killer. Works on a copy of the block types around both only, so it can run
+ * off the main thread.
+ * <p/>
+ * The search is a breadth first search limited to a box around both points
+ * and to a number of visited positions. Monsters are two blocks tall, can
+ * step up one block unless it's a fence or wall and can drop down up to three
+ * blocks.
+ */
+public class ReachabilityCheckTask implements Runnable
+{
+    /**
+     * Killer can be reached.
+     */
+    public static final int REACHABLE = 0;
+    /**
+     * Every walkable position in the box was visited without reaching the killer.
+     */
+    public static final int UNREACHABLE = 1;
+    /**
+     * Ran out of budget, nothing can be said.
+     */
+    public static final int INCONCLUSIVE = 2;
+
+    /**
+     * Highest drop a monster walks down.
+     */
+    public static final int MAX_DROP = 3;
+
+    /**
+     * Block ids monsters can walk through.
+     */
+    private static final boolean[] PASSABLE;
+    /**
+     * Block ids monsters can't jump onto.
+     */
+    private static final boolean[] FENCE_LIKE;
+
+    static
+    {
+        int maxId = 0;
+        for (Material material : Material.values())
+        {
+            maxId = Math.max(maxId, material.getId());
+        }
+        PASSABLE = new boolean[maxId + 1];
+        FENCE_LIKE = new boolean[maxId + 1];
+        for (Material material : Material.values())
+        {
+            if (material.isBlock() && !material.isSolid() && material != Material.LAVA && material != Material.STATIONARY_LAVA)
+            {
+                PASSABLE[material.getId()] = true;
+            }
+        }
+        FENCE_LIKE[Material.FENCE.getId()] = true;
+        FENCE_LIKE[Material.FENCE_GATE.getId()] = true;
+        FENCE_LIKE[Material.COBBLE_WALL.getId()] = true;
+        FENCE_LIKE[Material.NETHER_FENCE.getId()] = true;
+    }
+
+    private static final int[] DIRECTION_X = {1, -1, 0, 0};
+    private static final int[] DIRECTION_Z = {0, 0, 1, -1};
+
+    /**
+     * Block type ids of the copied area, indexed like the positions of the search.
+     */
+    private final short[] types;
+    private final int areaMinX, areaMinY, areaMinZ, areaMaxX, areaMaxY, areaMaxZ;
+    private final int minX, minY, minZ, maxX, maxY, maxZ;
+    private final int startX, startY, startZ;
+    private final int goalX, goalY, goalZ;
+    private final int maxHeight;
+    private final int maxNodes;
+    /**
+     * Receives the result, runs on the thread of the search.
+     */
+    private final Callback callback;
+
+    /**
+     * Constructor.
+     *
+     * @param types     - Block type ids of the area, by x, then y, then z.
+     * @param area      - Bounds of the copied blocks minX, minY, minZ, maxX, maxY, maxZ, inclusive.
+     * @param box       - Bounds of the search minX, minY, minZ, maxX, maxY, maxZ, inclusive.
+     * @param start     - Feet of the monster as x, y, z.
+     * @param goal      - Feet of the killer as x, y, z.
+     * @param maxHeight - Height of the world.
+     * @param maxNodes  - Maximum number of positions to visit.
+     * @param callback  - Receives the result.
+     */
+    public ReachabilityCheckTask(short[] types, int[] area, int[] box, int[] start, int[] goal, int maxHeight, int maxNodes, Callback callback)
+    {
+        this.types = types;
+        this.areaMinX = area[0];
+        this.areaMinY = area[1];
+        this.areaMinZ = area[2];
+        this.areaMaxX = area[3];
+        this.areaMaxY = area[4];
+        this.areaMaxZ = area[5];
+        this.minX = box[0];
+        this.minY = box[1];
+        this.minZ = box[2];
+        this.maxX = box[3];
+        this.maxY = box[4];
+        this.maxZ = box[5];
+        this.startX = start[0];
+        this.startY = start[1];
+        this.startZ = start[2];
+        this.goalX = goal[0];
+        this.goalY = goal[1];
+        this.goalZ = goal[2];
+        this.maxHeight = maxHeight;
+        this.maxNodes = maxNodes;
+        this.callback = callback;
+    }
+
+    @Override
+    public void run()
+    {
+        callback.done(search());
+    }
+
+    /**
+     * Run the search.
+     *
+     * @return REACHABLE, UNREACHABLE or INCONCLUSIVE.
+     */
+    int search()
+    {
+        int sizeX = maxX - minX + 1;
+        int sizeY = maxY - minY + 1;
+        int sizeZ = maxZ - minZ + 1;
+        boolean[] visited = new boolean[sizeX * sizeY * sizeZ];
+        // positions are stored as indices into the box
+        int[] queue = new int[maxNodes];
+        int head = 0;
+        int tail = 0;
+
+        if (!inBox(startX, startY, startZ))
+        {
+            return INCONCLUSIVE;
+        }
+        int startIndex = index(startX, startY, startZ, sizeY, sizeZ);
+        visited[startIndex] = true;
+        queue[tail++] = startIndex;
+
+        while (head < tail)
+        {
+            int index = queue[head++];
+            int x = minX + index / (sizeY * sizeZ);
+            int y = minY + (index / sizeZ) % sizeY;
+            int z = minZ + index % sizeZ;
+
+            // close enough to hit the killer
+            if (Math.abs(x - goalX) <= 1 && Math.abs(z - goalZ) <= 1 && Math.abs(y - goalY) <= 1)
+            {
+                return REACHABLE;
+            }
+
+            for (int direction = 0; direction < 4; direction++)
+            {
+                int nx = x + DIRECTION_X[direction];
+                int nz = z + DIRECTION_Z[direction];
+                int ny;
+
+                if (isPassable(nx, y, nz) && isPassable(nx, y + 1, nz))
+                {
+                    // walk straight or drop down
+                    ny = y;
+                    int drop = 0;
+                    while (drop <= MAX_DROP && ny > minY && isPassable(nx, ny - 1, nz))
+                    {
+                        ny--;
+                        drop++;
+                    }
+                    if (drop > MAX_DROP)
+                    {
+                        continue;
+                    }
+                }
+                else if (!isPassable(nx, y, nz) && !isFenceLike(nx, y, nz)
+                        && isPassable(nx, y + 1, nz) && isPassable(nx, y + 2, nz) && isPassable(x, y + 2, z))
+                {
+                    // jump up one block
+                    ny = y + 1;
+                }
+                else
+                {
+                    continue;
+                }
+
+                if (!inBox(nx, ny, nz))
+                {
+                    continue;
+                }
+                int next = index(nx, ny, nz, sizeY, sizeZ);
+                if (!visited[next])
+                {
+                    if (tail == maxNodes)
+                    {
+                        return INCONCLUSIVE;
+                    }
+                    visited[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return UNREACHABLE;
+    }
+
+    private boolean inBox(int x, int y, int z)
+    {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    private int index(int x, int y, int z, int sizeY, int sizeZ)
+    {
+        return ((x - minX) * sizeY + (y - minY)) * sizeZ + (z - minZ);
+    }
+
+    private int typeAt(int x, int y, int z)
+    {
+        if (y < 0)
+        {
+            return Material.BEDROCK.getId();
+        }
+        if (y >= maxHeight)
+        {
+            return Material.AIR.getId();
+        }
+        // outside of the copied area counts as a wall
+        if (x < areaMinX || x > areaMaxX || y < areaMinY || y > areaMaxY || z < areaMinZ || z > areaMaxZ)
+        {
+            return Material.BEDROCK.getId();
+        }
+        return types[((x - areaMinX) * (areaMaxY - areaMinY + 1) + (y - areaMinY)) * (areaMaxZ - areaMinZ + 1) + (z - areaMinZ)];
+    }
+
+    private boolean isPassable(int x, int y, int z)
+    {
+        int type = typeAt(x, y, z);
+        return type < PASSABLE.length && PASSABLE[type];
+    }
+
+    private boolean isFenceLike(int x, int y, int z)
+    {
+        int type = typeAt(x, y, z);
+        return type < FENCE_LIKE.length && FENCE_LIKE[type];
+    }
+
+    /**
+     * Receives the result of a search.
+     */
+    public interface Callback
+    {
+        /**
+         * Called on the thread which ran the search.
+         *
+         * @param result - REACHABLE, UNREACHABLE or INCONCLUSIVE.
+         */
+        void done(int result);
+    }
+}
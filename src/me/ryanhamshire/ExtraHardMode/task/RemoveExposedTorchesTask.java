@@ -21,8 +21,13 @@ package me.ryanhamshire.ExtraHardMode.task;
 import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import me.ryanhamshire.ExtraHardMode.config.RootConfig;
 import me.ryanhamshire.ExtraHardMode.config.RootNode;
+import me.ryanhamshire.ExtraHardMode.module.BlockMutationModule;
+import me.ryanhamshire.ExtraHardMode.module.RandomModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
+import me.ryanhamshire.ExtraHardMode.service.RandomFeature;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.block.Biome;
 import org.bukkit.block.Block;
 import org.bukkit.inventory.ItemStack;
@@ -38,33 +43,56 @@ public class RemoveExposedTorchesTask implements Runnable
      */
     private ExtraHardMode plugin;
     /**
-     * Chunk to iterate over.
+     * Name of the world of the chunk.
      */
-    private Chunk chunk;
+    private final String world;
+    /**
+     * Packed coordinates of the chunk to iterate over.
+     */
+    private final long chunkKey;
     /**
      * Config instance
      */
-    private RootConfig rootC;
+    private final RootConfig rootC;
+    /**
+     * Queues the block changes.
+     */
+    private final BlockMutationModule mutations;
+    /**
+     * Random streams.
+     */
+    private final RandomModule randomModule;
 
     /**
      * Constructor.
      *
-     * @param plugin - Plugin instance.
-     * @param chunk  - Target chunk.
+     * @param plugin       - Plugin instance.
+     * @param rootC        - Config instance.
+     * @param mutations    - Queues the block changes.
+     * @param randomModule - Random streams.
+     * @param chunk        - Target chunk.
      */
-    public RemoveExposedTorchesTask(ExtraHardMode plugin, Chunk chunk)
+    public RemoveExposedTorchesTask(ExtraHardMode plugin, RootConfig rootC, BlockMutationModule mutations, RandomModule randomModule, Chunk chunk)
     {
         this.plugin = plugin;
-        this.chunk = chunk;
-        rootC = this.plugin.getModuleForClass(RootConfig.class);
+        this.world = chunk.getWorld().getName();
+        this.chunkKey = PackedCoords.chunkKey(chunk.getX(), chunk.getZ());
+        this.rootC = rootC;
+        this.mutations = mutations;
+        this.randomModule = randomModule;
     }
 
     @Override
     public void run()
     {
+        World world = plugin.getServer().getWorld(this.world);
         // if rain has stopped, don't do anything
-        if (!this.chunk.getWorld().hasStorm())
+        if (world == null || !world.hasStorm())
+            return;
+        // don't load a chunk just to check its torches
+        if (!world.isChunkLoaded(PackedCoords.chunkX(chunkKey), PackedCoords.chunkZ(chunkKey)))
             return;
+        Chunk chunk = world.getChunkAt(PackedCoords.chunkX(chunkKey), PackedCoords.chunkZ(chunkKey));
 
         for (int x = 0; x < 16; x++)
         {
@@ -97,15 +125,9 @@ public class RemoveExposedTorchesTask implements Runnable
                         if (biome == Biome.FROZEN_OCEAN || biome == Biome.FROZEN_RIVER || biome == Biome.ICE_MOUNTAINS || biome == Biome.ICE_PLAINS
                                 || biome == Biome.TAIGA || biome == Biome.TAIGA_HILLS)
                         {
-                            block.setType(Material.SNOW);
-                            if (plugin.getRandom().nextBoolean())
-                            {
-                                block.setData((byte) 1);
-                            }
-                            else
-                            {
-                                block.setData((byte) 2);
-                            }
+                            // a thin layer of snow where the plant was doesn't affect neighbours
+                            byte layers = randomModule.get(RandomFeature.WEATHER).nextBoolean() ? (byte) 1 : (byte) 2;
+                            mutations.setType(block, Material.SNOW, layers, false, blockType);
                         }
                     }
                     else
@@ -21,12 +21,16 @@ package me.ryanhamshire.ExtraHardMode.task;
 
 import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import me.ryanhamshire.ExtraHardMode.module.EntityModule;
-import org.bukkit.Chunk;
+import me.ryanhamshire.ExtraHardMode.module.SpawnRegistryModule;
+import me.ryanhamshire.ExtraHardMode.service.PackedCoords;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Player;
 import org.bukkit.entity.Zombie;
 
+import java.util.UUID;
+
 /**
  * Respawn a zombie for a given location with a target player.
  */
@@ -38,46 +42,73 @@ public class RespawnZombieTask implements Runnable
      */
     private ExtraHardMode plugin;
     /**
-     * Respawn location.
+     * Marks the zombie lootless.
+     */
+    private final EntityModule entityModule;
+    /**
+     * Registers the zombie as spawned by the plugin.
+     */
+    private final SpawnRegistryModule spawnRegistry;
+    /**
+     * Name of the world to respawn in.
+     */
+    private final String world;
+    /**
+     * Packed coordinates of the respawn block.
      */
-    private Location location;
+    private final long blockKey;
     /**
-     * Target player.
+     * UUID of the target player, null if none.
      */
-    private Player player;
+    private final UUID player;
 
     /**
      * Constructor.
      *
-     * @param plugin   - Plugin instance.
-     * @param location - Respawn location.
-     * @param target   - Target player.
+     * @param plugin        - Plugin instance.
+     * @param entityModule  - Marks the zombie lootless.
+     * @param spawnRegistry - Registers the zombie.
+     * @param location      - Respawn location.
+     * @param target        - Target player.
      */
-    public RespawnZombieTask(ExtraHardMode plugin, Location location, Player target)
+    public RespawnZombieTask(ExtraHardMode plugin, EntityModule entityModule, SpawnRegistryModule spawnRegistry, Location location, Player target)
     {
         this.plugin = plugin;
-        this.location = location;
-        this.player = target;
+        this.entityModule = entityModule;
+        this.spawnRegistry = spawnRegistry;
+        this.world = location.getWorld().getName();
+        this.blockKey = PackedCoords.blockKey(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        this.player = target == null ? null : target.getUniqueId();
     }
 
     @Override
     public void run()
     {
-        Chunk chunk = location.getChunk();
-        if (!chunk.isLoaded())
+        World world = plugin.getServer().getWorld(this.world);
+        int x = PackedCoords.blockX(blockKey);
+        int z = PackedCoords.blockZ(blockKey);
+        if (world == null || !world.isChunkLoaded(x >> 4, z >> 4))
         {
             return;
         }
-        EntityModule module = plugin.getModuleForClass(EntityModule.class);
-        Zombie zombie = (Zombie) location.getWorld().spawnEntity(location, EntityType.ZOMBIE);
+        Location location = new Location(world, x + .5, PackedCoords.blockY(blockKey), z + .5);
+        Zombie zombie = (Zombie) world.spawnEntity(location, EntityType.ZOMBIE);
         // zombie has half normal zombie health
         zombie.setHealth(zombie.getHealth() / 2);
         // this zombie will not drop loot (again)
-        module.markLootLess(zombie);
+        entityModule.markLootLess(zombie);
+        spawnRegistry.register(zombie);
         // zombie is still madat the same player
-        if (this.player != null && this.player.isOnline())
+        if (this.player != null)
         {
-            zombie.setTarget(this.player);
+            for (Player target : world.getPlayers())
+            {
+                if (target.getUniqueId().equals(this.player))
+                {
+                    zombie.setTarget(target);
+                    break;
+                }
+            }
         }
     }
 }
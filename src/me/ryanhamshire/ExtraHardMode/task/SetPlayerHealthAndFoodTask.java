@@ -19,8 +19,11 @@
 
 package me.ryanhamshire.ExtraHardMode.task;
 
+import me.ryanhamshire.ExtraHardMode.ExtraHardMode;
 import org.bukkit.entity.Player;
 
+import java.util.UUID;
+
 /**
  * Set the target player's health and food levels.
  */
@@ -28,9 +31,13 @@ public class SetPlayerHealthAndFoodTask implements Runnable
 {
 
     /**
-     * Target player.
+     * Plugin instance.
+     */
+    private final ExtraHardMode plugin;
+    /**
+     * UUID of the target player.
      */
-    private Player player;
+    private final UUID player;
     /**
      * Health level.
      */
@@ -43,13 +50,15 @@ public class SetPlayerHealthAndFoodTask implements Runnable
     /**
      * Constructor.
      *
+     * @param plugin - Plugin instance.
      * @param player - Player to adjust.
      * @param health - Health level.
      * @param food   - Food level.
      */
-    public SetPlayerHealthAndFoodTask(Player player, int health, int food)
+    public SetPlayerHealthAndFoodTask(ExtraHardMode plugin, Player player, int health, int food)
     {
-        this.player = player;
+        this.plugin = plugin;
+        this.player = player.getUniqueId();
         this.health = health;
         this.food = food;
     }
@@ -57,17 +66,18 @@ public class SetPlayerHealthAndFoodTask implements Runnable
     @Override
     public void run()
     {
-        try
+        for (Player player : plugin.getServer().getOnlinePlayers())
         {
-            try
+            if (player.getUniqueId().equals(this.player))
             {
-                this.player.setHealth(this.health);
-            } catch (IllegalArgumentException ignored){} // if less than zero or higher than max, no changes
+                try
+                {
+                    player.setHealth(this.health);
+                } catch (IllegalArgumentException ignored){} // if less than zero or higher than max, no changes
 
-            this.player.setFoodLevel(this.food);
-        } catch (NullPointerException e)
-        {
-            // Catch if player is null.
+                player.setFoodLevel(this.food);
+                return;
+            }
         }
     }
 